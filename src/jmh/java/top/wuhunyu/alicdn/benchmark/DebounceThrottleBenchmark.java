@@ -0,0 +1,151 @@
+package top.wuhunyu.alicdn.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import top.wuhunyu.alicdn.core.Debounce;
+import top.wuhunyu.alicdn.core.KeyedDebounce;
+import top.wuhunyu.alicdn.core.KeyedThrottle;
+import top.wuhunyu.alicdn.core.Throttle;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 防抖器 与 节流器 提交任务的吞吐量与延迟
+ * <p>
+ * 分别在 1、8、64 个线程竞争下测试：
+ * <p>
+ * single：所有线程提交同一个 key，竞争最激烈；keyed：每次随机选择 1024 个 key 中的一个
+ * <p>
+ * 防抖的延迟时间足够长，任务不会执行，只测试提交的开销；节流的任务直接在提交线程执行一个空任务
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 18:50
+ **/
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DebounceThrottleBenchmark {
+
+    private static final int KEYS = 1024;
+
+    private static final Runnable NOOP = () -> {
+    };
+
+    private Debounce debounce;
+
+    private KeyedDebounce<Integer> keyedDebounce;
+
+    private Throttle throttle;
+
+    private KeyedThrottle<Integer> keyedThrottle;
+
+    @Setup
+    public void setup() {
+        debounce = Debounce.init("benchmark-debounce", 1L, TimeUnit.HOURS);
+        keyedDebounce = KeyedDebounce.init("benchmark-keyed-debounce", 1L, TimeUnit.HOURS);
+        throttle = Throttle.init("benchmark-throttle", 1L, TimeUnit.MILLISECONDS, Runnable::run);
+        keyedThrottle = KeyedThrottle.init("benchmark-keyed-throttle", 1000D, 10,
+                Runnable::run, KeyedThrottle.Policy.DROP);
+    }
+
+    @TearDown
+    public void tearDown() {
+        debounce.close();
+        for (int i = 0; i < KEYS; i++) {
+            keyedDebounce.cancel(i);
+        }
+        throttle.close();
+    }
+
+    private static int randomKey() {
+        return ThreadLocalRandom.current().nextInt(KEYS);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void debounceSingle1() {
+        debounce.debounce(NOOP);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void debounceSingle8() {
+        debounce.debounce(NOOP);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void debounceSingle64() {
+        debounce.debounce(NOOP);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void debounceKeyed1() {
+        keyedDebounce.debounce(randomKey(), NOOP);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void debounceKeyed8() {
+        keyedDebounce.debounce(randomKey(), NOOP);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void debounceKeyed64() {
+        keyedDebounce.debounce(randomKey(), NOOP);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void throttleSingle1() {
+        throttle.throttle(NOOP);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void throttleSingle8() {
+        throttle.throttle(NOOP);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void throttleSingle64() {
+        throttle.throttle(NOOP);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean throttleKeyed1() {
+        return keyedThrottle.throttle(randomKey(), NOOP);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean throttleKeyed8() {
+        return keyedThrottle.throttle(randomKey(), NOOP);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean throttleKeyed64() {
+        return keyedThrottle.throttle(randomKey(), NOOP);
+    }
+
+}
@@ -0,0 +1,161 @@
+package top.wuhunyu.alicdn.benchmark;
+
+import top.wuhunyu.alicdn.core.Metrics;
+import top.wuhunyu.alicdn.handler.SetCdnDomainSSLCertificate;
+import top.wuhunyu.alicdn.model.AliAccount;
+import top.wuhunyu.alicdn.model.PushResult;
+import top.wuhunyu.alicdn.model.RunResult;
+import top.wuhunyu.alicdn.model.TriggerSource;
+import top.wuhunyu.alicdn.properties.AliCdnProperties;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 大批量域名证书更新的压测
+ * <p>
+ * 生成 domains 个域名的证书与配置，按 accounts 个阿里云账号平均分配，启动 {@link CdnApiSimulator} 并把 endpoint 指向它，
+ * 然后执行一次完整的证书更新（包括预检查、限流、重试），输出：
+ * <p>
+ * 1. 吞吐量：每秒完成的域名数
+ * <p>
+ * 2. 延迟：每个域名从提交到完成的耗时（包括排队与重试）的 p50 与 p99，取自 alicdn_push_latency_seconds 直方图，
+ * 精度为直方图的桶（2 的幂毫秒）
+ * <p>
+ * 3. 重试放大：模拟服务收到的证书修改请求数 / 需要修改的域名数
+ * <p>
+ * adaptive=false 时关闭自适应并发数，用于对比限流场景下的重试放大
+ * <p>
+ * 运行：mvn -Pbenchmark test-compile exec:exec@load-test -Dload.args="domains=10000 throttleQps=50 failureRate=0.01"
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 23:00
+ **/
+
+public final class LoadTestDriver {
+
+    private static final String LATENCY_BUCKET = "alicdn_push_latency_seconds_bucket{";
+
+    private LoadTestDriver() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> arguments = BenchmarkFixtures.arguments(args);
+        int n = Integer.parseInt(arguments.getOrDefault("domains", "10000"));
+        int accounts = Integer.parseInt(arguments.getOrDefault("accounts", "1"));
+
+        Path workDir = Files.createTempDirectory("alicdn-load-test");
+        Path sslPath = Files.createDirectories(workDir.resolve("ssl"));
+        Path statePath = Files.createDirectories(workDir.resolve("state"));
+        long generateStart = System.nanoTime();
+        List<String> domains = BenchmarkFixtures.generate(sslPath, n);
+        System.out.printf("生成 %d 个域名的证书，耗时 %d ms，目录：%s%n", n,
+                (System.nanoTime() - generateStart) / 1_000_000L, workDir);
+
+        try (CdnApiSimulator simulator = CdnApiSimulator.start(0,
+                Double.parseDouble(arguments.getOrDefault("latency", "50")),
+                Double.parseDouble(arguments.getOrDefault("sigma", "0.5")),
+                Double.parseDouble(arguments.getOrDefault("throttleQps", "0")),
+                Double.parseDouble(arguments.getOrDefault("failureRate", "0")))) {
+            // 在第一次使用 SetCdnDomainSSLCertificate 之前替换配置，调度器与重试调度器按该配置创建
+            BenchmarkFixtures.install(sslPath, statePath, domains, n << 1);
+            AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+            aliCdnProperties.setEndpoint(simulator.endpoint());
+            aliCdnProperties.setMaxInFlight(Integer.parseInt(arguments.getOrDefault("maxInFlight", "64")));
+            aliCdnProperties.setQps(Double.parseDouble(arguments.getOrDefault("qps", "200")));
+            aliCdnProperties.setAdaptiveConcurrency(Boolean.parseBoolean(arguments.getOrDefault("adaptive", "true")));
+            aliCdnProperties.setRetryBaseDelay(Long.parseLong(arguments.getOrDefault("retryBaseDelay", "200")));
+            aliCdnProperties.setRetryMaxDelay(Long.parseLong(arguments.getOrDefault("retryMaxDelay", "10000")));
+            aliCdnProperties.setRetryTimeWhenException(Integer.parseInt(arguments.getOrDefault("retries", "5")));
+            aliCdnProperties.setBatchMode(Boolean.parseBoolean(arguments.getOrDefault("batchMode", "false")));
+            aliCdnProperties.setPreflight(Boolean.parseBoolean(arguments.getOrDefault("preflight", "true")));
+            aliCdnProperties.setClientMaxConnections(aliCdnProperties.getMaxInFlight());
+            // 第 0 个账号使用默认的访问key，其余账号写入域名 -> 账号的映射
+            Map<String, AliAccount> accountMap = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                int account = i % Math.max(1, accounts);
+                if (account > 0) {
+                    accountMap.put(domains.get(i), new AliAccount("load-test-" + account, "load-test", null));
+                }
+            }
+            aliCdnProperties.setAccounts(accountMap);
+
+            RunResult result = SetCdnDomainSSLCertificate.run(null, Boolean.FALSE, TriggerSource.MANUAL);
+            LoadTestDriver.report(result, simulator, n, accounts);
+        }
+        // 退出时不等待 CDN 客户端与调度器的线程
+        System.exit(0);
+    }
+
+    private static void report(RunResult result, CdnApiSimulator simulator, int n, int accounts) {
+        Map<PushResult.PushStatus, Long> counts = result.getResults()
+                .stream()
+                .collect(Collectors.groupingBy(PushResult::getStatus, Collectors.counting()));
+        long success = counts.getOrDefault(PushResult.PushStatus.SUCCESS, 0L);
+        long pushed = n - counts.getOrDefault(PushResult.PushStatus.SKIPPED, 0L);
+        double seconds = result.getElapsed() / 1000D;
+        String scrape = Metrics.INSTANCE.scrape();
+
+        System.out.println();
+        System.out.printf("域名数：%d，账号数：%d，耗时：%.2f s%n", n, accounts, seconds);
+        System.out.printf("结果：%s%n", new TreeMap<>(counts));
+        System.out.printf("吞吐量：%.1f 个域名/s%n", success / Math.max(seconds, 1e-9));
+        System.out.printf("延迟：p50 <= %s，p99 <= %s，最大 <= %s%n",
+                LoadTestDriver.percentile(scrape, 0.5D),
+                LoadTestDriver.percentile(scrape, 0.99D),
+                LoadTestDriver.percentile(scrape, 1D));
+        System.out.printf("模拟服务：证书修改请求 %d，查询请求 %d，限流 %d，故障 %d%n",
+                simulator.writeRequests(),
+                simulator.requests("DescribeCdnHttpsDomainList"),
+                simulator.throttled(),
+                simulator.failed());
+        System.out.printf("重试：%s 次，重试放大：%.3f（证书修改请求数 / 需要修改的域名数）%n",
+                LoadTestDriver.sample(scrape, "alicdn_push_retries_total"),
+                (double) simulator.writeRequests() / Math.max(1L, pushed));
+        System.out.printf("模拟服务中已设置证书的域名：%d%n", simulator.domains());
+    }
+
+    /**
+     * 合并全部域名的延迟直方图，返回第一个累计次数达到分位数的桶的上界
+     */
+    private static String percentile(String scrape, double quantile) {
+        // 上界 -> 累计次数
+        Map<Double, Long> cumulative = new TreeMap<>();
+        scrape.lines()
+                .filter(line -> line.startsWith(LATENCY_BUCKET))
+                .forEach(line -> {
+                    int le = line.lastIndexOf("le=\"");
+                    String bound = line.substring(le + 4, line.indexOf('"', le + 4));
+                    long value = Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+                    cumulative.merge("+Inf".equals(bound) ? Double.POSITIVE_INFINITY : Double.parseDouble(bound),
+                            value, Long::sum);
+                });
+        long total = cumulative.getOrDefault(Double.POSITIVE_INFINITY, 0L);
+        if (total == 0L) {
+            return "-";
+        }
+        Function<Double, String> format = bound -> bound.isInfinite() ? "+Inf" : Math.round(bound * 1000) + " ms";
+        for (Map.Entry<Double, Long> entry : cumulative.entrySet()) {
+            if (entry.getValue() >= Math.ceil(quantile * total)) {
+                return format.apply(entry.getKey());
+            }
+        }
+        return "+Inf";
+    }
+
+    private static String sample(String scrape, String name) {
+        return scrape.lines()
+                .filter(line -> line.startsWith(name + " "))
+                .map(line -> line.substring(name.length() + 1))
+                .findFirst()
+                .orElse("0");
+    }
+
+}
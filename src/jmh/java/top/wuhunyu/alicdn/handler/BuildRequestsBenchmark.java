@@ -0,0 +1,76 @@
+package top.wuhunyu.alicdn.handler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import top.wuhunyu.alicdn.benchmark.BenchmarkFixtures;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 构建证书修改请求的开销
+ * <p>
+ * 域名数量：10、1000、10000；
+ * warm 为 true 时证书文件缓存足够大，测试命中缓存的开销；为 false 时缓存只有 1 个，每次都重新读取并解析证书文件
+ * <p>
+ * 每组参数使用单独的 jvm，证书文件缓存在 jvm 内只初始化一次
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 19:00
+ **/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuildRequestsBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int domains;
+
+    @Param({"true", "false"})
+    private boolean warm;
+
+    private Path workDir;
+
+    @Setup
+    public void setup() throws IOException {
+        workDir = Files.createTempDirectory("alicdn-benchmark-");
+        Path sslPath = Files.createDirectories(workDir.resolve("ssl"));
+        Path statePath = Files.createDirectories(workDir.resolve("state"));
+        List<String> generated = BenchmarkFixtures.generate(sslPath, domains);
+        BenchmarkFixtures.install(sslPath, statePath, generated, warm ? domains * 2 : 1);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object buildAll() {
+        return SetCdnDomainSSLCertificate.buildSetCdnDomainSSLCertificateRequests(null);
+    }
+
+}
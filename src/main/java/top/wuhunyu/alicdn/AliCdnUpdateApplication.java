@@ -2,10 +2,23 @@ package top.wuhunyu.alicdn;
 
 import cn.hutool.cron.CronUtil;
 import lombok.extern.slf4j.Slf4j;
+import top.wuhunyu.alicdn.handler.ConfigReloader;
+import top.wuhunyu.alicdn.handler.ExpiryScheduler;
 import top.wuhunyu.alicdn.handler.ListenFileModify;
+import top.wuhunyu.alicdn.handler.MetricsServer;
 import top.wuhunyu.alicdn.handler.SetCdnDomainSSLCertificate;
+import top.wuhunyu.alicdn.model.PushResult;
+import top.wuhunyu.alicdn.model.RunResult;
+import top.wuhunyu.alicdn.model.TriggerSource;
 import top.wuhunyu.alicdn.properties.AliCdnProperties;
 
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static top.wuhunyu.alicdn.constants.CommonConstants.RUN_MODE_ONCE;
+import static top.wuhunyu.alicdn.constants.CommonConstants.SCHEDULE_MODE_EXPIRY;
+
 /**
  * 阿里云cdn更新
  *
@@ -16,14 +29,40 @@ import top.wuhunyu.alicdn.properties.AliCdnProperties;
 @Slf4j
 public class AliCdnUpdateApplication {
 
+    /**
+     * 单次运行模式的退出码：全部域名更新成功 或者 无需更新
+     */
+    private static final int EXIT_OK = 0;
+
+    /**
+     * 单次运行模式的退出码：存在更新失败的域名
+     */
+    private static final int EXIT_FAILED = 1;
+
+    /**
+     * 单次运行模式的退出码：超时 或者 被中断，存在尚未完成的域名
+     */
+    private static final int EXIT_CANCELLED = 2;
+
+    /**
+     * 单次运行模式的退出码：配置错误
+     */
+    private static final int EXIT_CONFIG_ERROR = 3;
+
     /**
      * 启动一个定时器，用于周期性执行阿里云 cdn 证书更新任务
+     * <p>
+     * expiry 模式下根据证书过期时间调度；cron 模式下按照 cron 表达式全量更新
      */
     private static void schedule() {
         AliCdnProperties instance = AliCdnProperties.getInstance();
+        if (Objects.equals(instance.getScheduleMode(), SCHEDULE_MODE_EXPIRY)) {
+            ExpiryScheduler.start();
+            return;
+        }
         CronUtil.schedule(instance.getScheduledCron(), (Runnable) () -> {
             log.info("触发定时器，执行阿里云 CDN 证书更新任务");
-            SetCdnDomainSSLCertificate.invoke(null);
+            SetCdnDomainSSLCertificate.run(null, instance.getForceWhenScheduled(), TriggerSource.CRON);
         });
         // 设置支持秒级任务
         CronUtil.setMatchSecond(Boolean.TRUE);
@@ -35,18 +74,74 @@ public class AliCdnUpdateApplication {
      * 启动一个监听器，用于监听证书文件的变化，并触发阿里云 cdn 证书更新任务
      */
     private static void listen() {
-        ListenFileModify.listen(SetCdnDomainSSLCertificate::invoke);
+        ListenFileModify.listen(domain -> SetCdnDomainSSLCertificate.runAsync(List.of(domain), Boolean.FALSE,
+                TriggerSource.WATCH));
+    }
+
+    /**
+     * 单次运行：只更新一次需要更新的域名，不启动指标服务、定时任务、文件监听与配置热加载
+     * <p>
+     * 阿里云客户端在第一次发出请求时才创建，无需更新时不会创建
+     *
+     * @param mainStart 进入 main 方法的时间，单位：纳秒
+     * @return 退出码
+     */
+    private static int once(long mainStart) {
+        long jvmStartup = ProcessHandle.current()
+                .info()
+                .startInstant()
+                .map(start -> System.currentTimeMillis() - start.toEpochMilli() -
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mainStart))
+                .orElse(-1L);
+        long configLoaded = System.nanoTime();
+        log.info("启动耗时：JVM 启动 {} ms，加载配置 {} ms", jvmStartup,
+                TimeUnit.NANOSECONDS.toMillis(configLoaded - mainStart));
+
+        RunResult result = SetCdnDomainSSLCertificate.run(null, Boolean.FALSE, TriggerSource.ONCE);
+        long failed = 0L;
+        long cancelled = 0L;
+        for (PushResult pushResult : result.getResults()) {
+            if (pushResult.getStatus() == PushResult.PushStatus.FAILED) {
+                failed++;
+                log.warn("更新失败：{}，原因：{}", pushResult.getDomain(), pushResult.getMessage());
+            } else if (pushResult.getStatus() == PushResult.PushStatus.CANCELLED) {
+                cancelled++;
+                log.warn("更新取消：{}，原因：{}", pushResult.getDomain(), pushResult.getMessage());
+            }
+        }
+        int exitCode = cancelled > 0 ? EXIT_CANCELLED : failed > 0 ? EXIT_FAILED : EXIT_OK;
+        log.info("单次运行完成，退出码：{}，更新证书 {} ms，总耗时 {} ms", exitCode, result.getElapsed(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mainStart) + Math.max(jvmStartup, 0L));
+        return exitCode;
     }
 
     public static void main(String[] args) throws InterruptedException {
+        long mainStart = System.nanoTime();
         // 启动应用
         log.info("阿里云 CDN 更新程序启动中");
+        AliCdnProperties aliCdnProperties;
+        try {
+            aliCdnProperties = AliCdnProperties.getInstance();
+        } catch (RuntimeException e) {
+            log.error("读取配置失败：", e);
+            System.exit(EXIT_CONFIG_ERROR);
+            return;
+        }
+        if (Objects.equals(aliCdnProperties.getRunMode(), RUN_MODE_ONCE)) {
+            // 退出时由关闭钩子刷新状态文件
+            System.exit(AliCdnUpdateApplication.once(mainStart));
+            return;
+        }
+        // 启动指标服务
+        MetricsServer.start();
         // 启动定时任务
         schedule();
         // 启动证书监听器
         listen();
+        // 启动配置热加载
+        ConfigReloader.start();
         // 主动执行一次证书修改
-        SetCdnDomainSSLCertificate.invoke(null);
+        SetCdnDomainSSLCertificate.runAsync(null, Boolean.FALSE, TriggerSource.STARTUP);
         // 阻塞主线程
         synchronized (AliCdnUpdateApplication.class) {
             AliCdnUpdateApplication.class.wait();
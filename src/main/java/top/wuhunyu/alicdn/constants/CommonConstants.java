@@ -17,6 +17,11 @@ public final class CommonConstants {
      */
     public static final String CONFIG_PATH = "aliCdnProperties.properties";
 
+    /**
+     * 外部配置文件路径的环境变量，配置文件修改后自动重新加载
+     */
+    public static final String CONFIG_FILE = "configFile";
+
     /**
      * 阿里云访问key
      */
@@ -58,6 +63,47 @@ public final class CommonConstants {
      */
     public static final String DEFAULT_SCHEDULED_CRON = "0 0 1 * * ?";
 
+    /**
+     * 定时更新的模式
+     */
+    public static final String SCHEDULE_MODE = "scheduleMode";
+
+    /**
+     * 定时更新的模式：根据证书过期时间调度检查
+     */
+    public static final String SCHEDULE_MODE_EXPIRY = "expiry";
+
+    /**
+     * 定时更新的模式：按照 cron 表达式全量更新
+     */
+    public static final String SCHEDULE_MODE_CRON = "cron";
+
+    /**
+     * 运行模式
+     */
+    public static final String RUN_MODE = "runMode";
+
+    /**
+     * 运行模式：常驻运行，启动定时任务、文件监听与配置热加载
+     */
+    public static final String RUN_MODE_DAEMON = "daemon";
+
+    /**
+     * 运行模式：只更新一次证书，完成后以退出码表示结果，适合 Kubernetes CronJob
+     */
+    public static final String RUN_MODE_ONCE = "once";
+
+    /**
+     * 是否以低内存、少线程的方式运行：调度器与重试共用一个时间轮线程，后台循环使用虚拟线程，证书文件内容不缓存
+     */
+    public static final String LEAN_MODE = "leanMode";
+
+    /**
+     * 默认是否以低内存、少线程的方式运行
+     * 默认不开启
+     */
+    public static final boolean DEFAULT_LEAN_MODE = false;
+
     /**
      * 文件监听延迟时间，单位：毫秒
      */
@@ -80,4 +126,313 @@ public final class CommonConstants {
      */
     public static final int DEFAULT_TIME_RETRY_WHEN_EXCEPTION = 3;
 
+    /**
+     * 状态文件保存的目录
+     */
+    public static final String STATE_PATH = "statePath";
+
+    /**
+     * 默认状态文件保存的目录
+     */
+    public static final String DEFAULT_STATE_PATH = "/app/state";
+
+    /**
+     * 证书指纹文件名称
+     */
+    public static final String FINGERPRINT_FILE_NAME = "fingerprint.properties";
+
+    /**
+     * 已上传证书文件名称
+     */
+    public static final String UPLOADED_CERT_FILE_NAME = "uploaded-cert.properties";
+
+    /**
+     * 证书更新日志文件名称
+     */
+    public static final String JOURNAL_FILE_NAME = "push.journal";
+
+    /**
+     * 定时任务是否强制更新证书
+     */
+    public static final String FORCE_WHEN_SCHEDULED = "forceWhenScheduled";
+
+    /**
+     * 定时任务是否强制更新证书
+     * 默认不强制，证书未发生变化时跳过
+     */
+    public static final boolean DEFAULT_FORCE_WHEN_SCHEDULED = false;
+
+    /**
+     * 证书修改请求的最大并发数
+     */
+    public static final String MAX_IN_FLIGHT = "maxInFlight";
+
+    /**
+     * 默认证书修改请求的最大并发数
+     * 默认 8 个
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    /**
+     * 证书修改请求的每秒请求数
+     */
+    public static final String QPS = "qps";
+
+    /**
+     * 默认证书修改请求的每秒请求数
+     * 默认每秒 10 个
+     */
+    public static final double DEFAULT_QPS = 10D;
+
+    /**
+     * 是否根据限流、服务端异常与耗时自动调整证书修改请求的并发数
+     */
+    public static final String ADAPTIVE_CONCURRENCY = "adaptiveConcurrency";
+
+    /**
+     * 默认是否自动调整证书修改请求的并发数
+     * 默认调整，并发数在 1 ~ maxInFlight 之间变化
+     */
+    public static final boolean DEFAULT_ADAPTIVE_CONCURRENCY = true;
+
+    /**
+     * 连续多少个请求被限流或者服务端异常时熔断，同一批并发发出的请求只计一次
+     */
+    public static final String CIRCUIT_FAILURE_THRESHOLD = "circuitFailureThreshold";
+
+    /**
+     * 默认连续多少个请求被限流或者服务端异常时熔断
+     * 默认 10 个
+     */
+    public static final int DEFAULT_CIRCUIT_FAILURE_THRESHOLD = 10;
+
+    /**
+     * 熔断多久后放行探测请求，单位：毫秒
+     */
+    public static final String CIRCUIT_OPEN_TIMEOUT = "circuitOpenTimeout";
+
+    /**
+     * 默认熔断多久后放行探测请求，单位：毫秒
+     * 默认 30000 毫秒
+     */
+    public static final long DEFAULT_CIRCUIT_OPEN_TIMEOUT = 30000L;
+
+    /**
+     * 熔断期间请求最多排队多久，单位：毫秒
+     */
+    public static final String CIRCUIT_QUEUE_TIMEOUT = "circuitQueueTimeout";
+
+    /**
+     * 默认熔断期间请求最多排队多久，单位：毫秒
+     * 默认 120000 毫秒
+     */
+    public static final long DEFAULT_CIRCUIT_QUEUE_TIMEOUT = 120000L;
+
+    /**
+     * 重试的基础延迟时间，单位：毫秒
+     */
+    public static final String RETRY_BASE_DELAY = "retryBaseDelay";
+
+    /**
+     * 默认重试的基础延迟时间，单位：毫秒
+     * 默认 2000 毫秒，之后每次重试翻倍
+     */
+    public static final long DEFAULT_RETRY_BASE_DELAY = 2000L;
+
+    /**
+     * 重试的最大延迟时间，单位：毫秒
+     */
+    public static final String RETRY_MAX_DELAY = "retryMaxDelay";
+
+    /**
+     * 默认重试的最大延迟时间，单位：毫秒
+     * 默认 300000 毫秒（5 分钟）
+     */
+    public static final long DEFAULT_RETRY_MAX_DELAY = 300000L;
+
+    /**
+     * 是否开启批量模式，共用同一个证书的域名通过一次请求批量修改
+     */
+    public static final String BATCH_MODE = "batchMode";
+
+    /**
+     * 默认是否开启批量模式
+     * 默认不开启
+     */
+    public static final boolean DEFAULT_BATCH_MODE = false;
+
+    /**
+     * 批量模式下，一次请求最多修改的域名数量
+     */
+    public static final String BATCH_SIZE = "batchSize";
+
+    /**
+     * 默认批量模式下，一次请求最多修改的域名数量
+     * 默认 10 个
+     */
+    public static final int DEFAULT_BATCH_SIZE = 10;
+
+    /**
+     * 是否复用证书，同一个证书只上传一次，其余域名通过证书名称绑定
+     */
+    public static final String CERT_REUSE = "certReuse";
+
+    /**
+     * 默认是否复用证书
+     * 默认不复用，每次更新都会上传一个新的证书
+     */
+    public static final boolean DEFAULT_CERT_REUSE = false;
+
+    /**
+     * 复用证书时，证书所在的地域
+     */
+    public static final String CERT_REGION = "certRegion";
+
+    /**
+     * 默认复用证书时，证书所在的地域
+     * 默认 cn-hangzhou，国际站为 ap-southeast-1
+     */
+    public static final String DEFAULT_CERT_REGION = "cn-hangzhou";
+
+    /**
+     * 证书文件内容缓存的最大数量
+     */
+    public static final String CERT_CACHE_SIZE = "certCacheSize";
+
+    /**
+     * 默认证书文件内容缓存的最大数量
+     * 默认 1024 个文件
+     */
+    public static final int DEFAULT_CERT_CACHE_SIZE = 1024;
+
+    /**
+     * 低内存模式下证书文件内容缓存的最大数量
+     * 最多 64 个文件，配置的数量更小时以配置为准
+     */
+    public static final int LEAN_CERT_CACHE_SIZE = 64;
+
+    /**
+     * 更新证书前，是否在本地校验公私钥：私钥与证书匹配、证书链顺序、有效期、证书包含域名
+     */
+    public static final String CERT_VALIDATION = "certValidation";
+
+    /**
+     * 默认更新证书前，是否在本地校验公私钥
+     * 默认校验，校验失败的域名在文件修改之前不再更新
+     */
+    public static final boolean DEFAULT_CERT_VALIDATION = true;
+
+    /**
+     * 更新证书前，是否先查询 CDN 当前使用的证书，一致时跳过更新
+     */
+    public static final String PREFLIGHT = "preflight";
+
+    /**
+     * 默认更新证书前，是否先查询 CDN 当前使用的证书
+     * 默认查询
+     */
+    public static final boolean DEFAULT_PREFLIGHT = true;
+
+    /**
+     * CDN 当前使用的证书的缓存时间，单位：毫秒
+     */
+    public static final String LIVE_CERT_CACHE_TTL = "liveCertCacheTtl";
+
+    /**
+     * 默认 CDN 当前使用的证书的缓存时间，单位：毫秒
+     * 默认 60000 毫秒
+     */
+    public static final long DEFAULT_LIVE_CERT_CACHE_TTL = 60000L;
+
+    /**
+     * 指标服务的端口
+     */
+    public static final String METRICS_PORT = "metricsPort";
+
+    /**
+     * 默认指标服务的端口
+     * 默认 0，不启动指标服务
+     */
+    public static final int DEFAULT_METRICS_PORT = 0;
+
+    /**
+     * 一次证书更新的截止时间，单位：毫秒
+     */
+    public static final String RUN_TIMEOUT = "runTimeout";
+
+    /**
+     * 默认一次证书更新的截止时间，单位：毫秒
+     * 默认 1800000 毫秒
+     */
+    public static final long DEFAULT_RUN_TIMEOUT = 1800000L;
+
+    /**
+     * 清单文件的路径，每行一个 json 对象：{"domain":"...","pub":"...","pri":"..."}，可以指定域名所属的阿里云账号与地域
+     */
+    public static final String MANIFEST = "manifest";
+
+    /**
+     * 域名映射的目录约定
+     */
+    public static final String AUTO_MAPPING = "autoMapping";
+
+    /**
+     * 域名映射的目录约定：不扫描证书目录
+     */
+    public static final String AUTO_MAPPING_NONE = "none";
+
+    /**
+     * 域名映射的目录约定：按照 acme.sh 的目录结构扫描证书目录，&lt;domain&gt;_ecc/fullchain.cer
+     */
+    public static final String AUTO_MAPPING_ACME = "acme";
+
+    /**
+     * 阿里云客户端的连接超时时间，单位：毫秒
+     */
+    public static final String CLIENT_CONNECT_TIMEOUT = "clientConnectTimeout";
+
+    /**
+     * 默认阿里云客户端的连接超时时间，单位：毫秒
+     * 默认 10000 毫秒
+     */
+    public static final long DEFAULT_CLIENT_CONNECT_TIMEOUT = 10000L;
+
+    /**
+     * 阿里云客户端的响应超时时间，单位：毫秒
+     */
+    public static final String CLIENT_RESPONSE_TIMEOUT = "clientResponseTimeout";
+
+    /**
+     * 默认阿里云客户端的响应超时时间，单位：毫秒
+     * 默认 30000 毫秒
+     */
+    public static final long DEFAULT_CLIENT_RESPONSE_TIMEOUT = 30000L;
+
+    /**
+     * 每个阿里云客户端的最大连接数
+     */
+    public static final String CLIENT_MAX_CONNECTIONS = "clientMaxConnections";
+
+    /**
+     * 默认每个阿里云客户端的最大连接数
+     * 默认 32
+     */
+    public static final int DEFAULT_CLIENT_MAX_CONNECTIONS = 32;
+
+    /**
+     * 阿里云客户端空闲多久后关闭，单位：毫秒
+     */
+    public static final String CLIENT_IDLE_TIMEOUT = "clientIdleTimeout";
+
+    /**
+     * 默认阿里云客户端空闲多久后关闭，单位：毫秒
+     * 默认 600000 毫秒
+     */
+    public static final long DEFAULT_CLIENT_IDLE_TIMEOUT = 600000L;
+
+    /**
+     * 阿里云 CDN 接口的地址，例如 http://127.0.0.1:8080，为空时使用 SDK 默认的地址
+     */
+    public static final String ENDPOINT = "endpoint";
+
 }
@@ -0,0 +1,169 @@
+package top.wuhunyu.alicdn.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+
+/**
+ * 自适应并发限制
+ * <p>
+ * 使用场景：
+ * <p>
+ * 服务端的承载能力未知且会变化，在 1 ~ maxLimit 之间动态调整允许的并发数，收敛到服务端能够承受的最大并发数
+ * <p>
+ * AIMD：每个正常的请求使并发数增加 1 / limit（每一轮并发约增加 1）；
+ * 被限流、服务端异常时并发数减半，耗时超过最小耗时的 {@link #LATENCY_TOLERANCE} 倍时并发数减少 10%；
+ * 同一轮请求（一个平滑耗时之内）只减少一次，避免同一批失败的请求把并发数降到 1
+ * <p>
+ * 使用示例
+ * <p>
+ * {@link AdaptiveLimiter#init} 之后 请求完成时调用 {@link AdaptiveLimiter#onSample}，通过 {@link AdaptiveLimiter#limit} 获取当前的并发数
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 23:30
+ */
+
+@Slf4j
+public class AdaptiveLimiter {
+
+    /**
+     * 被限流、服务端异常时的缩减比例
+     */
+    private static final double DROP_BACKOFF = 0.5D;
+
+    /**
+     * 耗时上升时的缩减比例
+     */
+    private static final double LATENCY_BACKOFF = 0.9D;
+
+    /**
+     * 耗时超过最小耗时的多少倍时认为服务端开始排队
+     */
+    private static final double LATENCY_TOLERANCE = 2D;
+
+    /**
+     * 最小耗时的统计窗口，每隔多少个请求使用上一个窗口的最小耗时，适应服务端耗时的整体变化
+     */
+    private static final int RTT_WINDOW = 500;
+
+    /**
+     * 平滑耗时的权重
+     */
+    private static final double SMOOTHING = 0.2D;
+
+    private final String limiterName;
+
+    private final int maxLimit;
+
+    private final boolean adaptive;
+
+    private double limit;
+
+    /**
+     * 当前统计窗口之前的最小耗时，单位：纳秒
+     */
+    private long minRtt;
+
+    /**
+     * 当前统计窗口内的最小耗时，单位：纳秒
+     */
+    private long windowMinRtt;
+
+    private int windowSamples;
+
+    /**
+     * 平滑后的耗时，单位：纳秒
+     */
+    private double smoothedRtt;
+
+    /**
+     * 上一次缩减的时间，单位：纳秒
+     */
+    private long lastDecrease;
+
+    private AdaptiveLimiter(final String limiterName, final Integer maxLimit, final Boolean adaptive) {
+        Objects.requireNonNull(limiterName, "并发限制名称不能为空");
+        Objects.requireNonNull(maxLimit, "最大并发数不能为空");
+        Objects.requireNonNull(adaptive, "是否自适应不能为空");
+        if (maxLimit < 1) {
+            throw new IllegalArgumentException("最大并发数必须大于 0");
+        }
+
+        this.limiterName = limiterName;
+        this.maxLimit = maxLimit;
+        this.adaptive = adaptive;
+        this.limit = maxLimit;
+        this.minRtt = Long.MAX_VALUE;
+        this.windowMinRtt = Long.MAX_VALUE;
+        this.lastDecrease = System.nanoTime();
+    }
+
+    /**
+     * 初始化一个 自适应并发限制，初始并发数为最大并发数
+     *
+     * @param limiterName 并发限制名称 非空
+     * @param maxLimit    最大并发数 非空
+     * @param adaptive    是否自适应 非空，false 时并发数固定为最大并发数
+     * @return 自适应并发限制实例
+     */
+    public static AdaptiveLimiter init(final String limiterName, final Integer maxLimit, final Boolean adaptive) {
+        return new AdaptiveLimiter(limiterName, maxLimit, adaptive);
+    }
+
+    /**
+     * 当前允许的并发数
+     *
+     * @return 并发数，1 ~ maxLimit
+     */
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    /**
+     * 记录一个请求的结果
+     * <p>
+     * 保证并发安全
+     *
+     * @param rttNanos   请求的耗时，单位：纳秒
+     * @param overloaded 是否被限流 或者 服务端异常
+     */
+    public synchronized void onSample(final long rttNanos, final boolean overloaded) {
+        if (!adaptive) {
+            return;
+        }
+        long now = System.nanoTime();
+        smoothedRtt = smoothedRtt == 0D ? rttNanos : smoothedRtt + SMOOTHING * (rttNanos - smoothedRtt);
+        if (overloaded) {
+            this.decrease(now, DROP_BACKOFF, "被限流或服务端异常");
+            return;
+        }
+
+        windowMinRtt = Math.min(windowMinRtt, rttNanos);
+        minRtt = Math.min(minRtt, rttNanos);
+        if (++windowSamples >= RTT_WINDOW) {
+            minRtt = windowMinRtt;
+            windowMinRtt = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+
+        if (rttNanos > minRtt * LATENCY_TOLERANCE) {
+            this.decrease(now, LATENCY_BACKOFF, "耗时上升");
+            return;
+        }
+        limit = Math.min(maxLimit, limit + 1D / limit);
+    }
+
+    private void decrease(long now, double backoff, String reason) {
+        // 同一轮请求只缩减一次
+        if (now - lastDecrease < (long) smoothedRtt) {
+            return;
+        }
+        lastDecrease = now;
+        int before = (int) limit;
+        limit = Math.max(1D, limit * backoff);
+        if ((int) limit != before) {
+            log.info("{} {}，并发数 {} -> {}", limiterName, reason, before, (int) limit);
+        }
+    }
+
+}
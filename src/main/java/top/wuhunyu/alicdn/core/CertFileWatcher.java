@@ -0,0 +1,400 @@
+package top.wuhunyu.alicdn.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 证书文件监听器
+ * <p>
+ * 使用场景：
+ * <p>
+ * certbot、acme.sh 续期时通常通过 原子重命名 或者 替换软链接（live/ -> archive/）发布新证书，
+ * 只监听修改事件会漏掉这类更新；递归监听整个证书目录在子目录较多时注册开销也很大
+ * <p>
+ * 实现：
+ * <p>
+ * 1. 只监听证书文件所在的目录 与 软链接目标所在的目录，需要时才注册；目录不存在时监听最近的已存在的上级目录，目录创建后再向下注册
+ * <p>
+ * 2. 目录发生 创建、删除、修改、溢出 事件时，重新读取该目录下证书文件的状态（真实路径、文件标识、修改时间、大小），
+ * 只通知状态发生变化的文件，同一批事件中一个文件只通知一次
+ * <p>
+ * 3. 超出 inotify 的限制、无法注册的目录，退化为按修改时间定期轮询
+ * <p>
+ * 使用示例
+ * <p>
+ * {@link CertFileWatcher#start} 之后，证书文件发生变化时回调配置中的证书文件路径；配置变化后调用 {@link CertFileWatcher#reindex}
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 21:30
+ */
+
+@Slf4j
+public class CertFileWatcher implements Closeable {
+
+    /**
+     * 轮询的间隔，同时也是等待监听事件的最长时间
+     */
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(5);
+
+    private final String watcherName;
+
+    /**
+     * 为空时全部目录都通过轮询检查
+     */
+    private final WatchService watchService;
+
+    /**
+     * 证书文件发生变化时的回调，参数为配置中的证书文件路径
+     */
+    private final Consumer<Path> listener;
+
+    /**
+     * 证书文件 -> 最后一次读取到的状态，文件不存在时没有对应的值
+     */
+    private final Map<Path, FileState> states;
+
+    /**
+     * 证书文件 -> 依赖的目录
+     */
+    private final Map<Path, Set<Path>> dirsOfFile;
+
+    /**
+     * 目录 -> 依赖该目录的证书文件
+     */
+    private final Map<Path, Set<Path>> filesOfDir;
+
+    private final Map<Path, WatchKey> keys;
+
+    /**
+     * 无法注册监听，需要轮询的目录
+     */
+    private final Set<Path> polledDirs;
+
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    private CertFileWatcher(final String watcherName, final Set<Path> files, final Consumer<Path> listener) {
+        Objects.requireNonNull(watcherName, "监听器名称不能为空");
+        Objects.requireNonNull(files, "证书文件不能为空");
+        Objects.requireNonNull(listener, "回调不能为空");
+
+        this.watcherName = watcherName;
+        this.watchService = CertFileWatcher.newWatchService();
+        this.listener = listener;
+        this.states = new HashMap<>();
+        this.dirsOfFile = new HashMap<>();
+        this.filesOfDir = new HashMap<>();
+        this.keys = new HashMap<>();
+        this.polledDirs = new HashSet<>();
+        this.reindex(files);
+
+        Metrics.INSTANCE.gauge("alicdn_watch_directories", "证书文件监听器监听的目录数",
+                this::watchedDirs, "name", watcherName, "mode", "watch");
+        Metrics.INSTANCE.gauge("alicdn_watch_directories", "证书文件监听器监听的目录数",
+                this::polledDirs, "name", watcherName, "mode", "poll");
+
+        this.thread = new Thread(this::loop, watcherName);
+        this.thread.setDaemon(Boolean.TRUE);
+        this.thread.start();
+    }
+
+    /**
+     * 开始监听证书文件
+     *
+     * @param watcherName 监听器名称 非空
+     * @param files       证书文件 非空
+     * @param listener    证书文件发生变化时的回调 非空，在监听线程中执行，不应阻塞
+     * @return 监听器实例
+     */
+    public static CertFileWatcher start(final String watcherName, final Set<Path> files,
+                                        final Consumer<Path> listener) {
+        return new CertFileWatcher(watcherName, files, listener);
+    }
+
+    /**
+     * 替换需要监听的证书文件，新增的文件从当前状态开始监听，不会触发回调
+     * <p>
+     * 保证并发安全
+     *
+     * @param files 证书文件 非空
+     */
+    public synchronized void reindex(final Set<Path> files) {
+        Objects.requireNonNull(files, "证书文件不能为空");
+        for (Path file : List.copyOf(dirsOfFile.keySet())) {
+            if (!files.contains(file)) {
+                this.unwatch(file);
+            }
+        }
+        for (Path file : files) {
+            if (!dirsOfFile.containsKey(file)) {
+                this.refresh(file);
+            }
+        }
+    }
+
+    private synchronized int watchedDirs() {
+        return keys.size();
+    }
+
+    private synchronized int polledDirs() {
+        return polledDirs.size();
+    }
+
+    private void loop() {
+        long nextPoll = System.nanoTime() + POLL_INTERVAL.toNanos();
+        while (!closed) {
+            Set<Path> changed = new LinkedHashSet<>();
+            try {
+                WatchKey key = null;
+                if (Objects.isNull(watchService)) {
+                    TimeUnit.NANOSECONDS.sleep(POLL_INTERVAL.toNanos());
+                } else {
+                    key = watchService.poll(POLL_INTERVAL.toNanos(), TimeUnit.NANOSECONDS);
+                }
+                // 一次处理全部已经到达的事件，同一个文件只通知一次
+                while (Objects.nonNull(key)) {
+                    this.onEvent(key, changed);
+                    key = watchService.poll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+            if (System.nanoTime() - nextPoll >= 0L) {
+                nextPoll = System.nanoTime() + POLL_INTERVAL.toNanos();
+                this.poll(changed);
+            }
+            for (Path file : changed) {
+                try {
+                    listener.accept(file);
+                } catch (Exception e) {
+                    log.error("证书文件监听器 {} 回调异常：", watcherName, e);
+                }
+            }
+        }
+    }
+
+    private synchronized void onEvent(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                log.warn("证书文件监听器 {} 的事件溢出，重新检查目录 {}", watcherName, dir);
+            }
+        }
+        // 目录被删除 或者 替换时，监听失效，重新检查时会注册到新的目录 或者 上级目录
+        if (!key.reset()) {
+            keys.remove(dir, key);
+        }
+        this.check(dir, changed);
+    }
+
+    private synchronized void poll(Set<Path> changed) {
+        for (Path dir : List.copyOf(polledDirs)) {
+            this.check(dir, changed);
+        }
+    }
+
+    /**
+     * 重新读取依赖该目录的证书文件的状态
+     */
+    private void check(Path dir, Set<Path> changed) {
+        Set<Path> files = filesOfDir.get(dir);
+        if (Objects.isNull(files)) {
+            return;
+        }
+        for (Path file : List.copyOf(files)) {
+            if (this.refresh(file)) {
+                changed.add(file);
+            }
+        }
+    }
+
+    /**
+     * 读取证书文件的状态，并按照 当前的软链接目标 重新计算依赖的目录
+     *
+     * @return 状态是否发生变化
+     */
+    private boolean refresh(Path file) {
+        FileState state = CertFileWatcher.stat(file);
+        Set<Path> dirs = CertFileWatcher.dependentDirs(file, state);
+        // 注册之前目录中可能已经创建了 子目录 或者 文件，注册之后重新读取，直到依赖的目录不再变化
+        Set<Path> registered = new HashSet<>();
+        while (registered.addAll(dirs)) {
+            dirs.forEach(this::register);
+            state = CertFileWatcher.stat(file);
+            dirs = CertFileWatcher.dependentDirs(file, state);
+        }
+
+        FileState pre = Objects.isNull(state) ? states.remove(file) : states.put(file, state);
+        Set<Path> preDirs = dirsOfFile.put(file, dirs);
+        if (Objects.nonNull(preDirs)) {
+            for (Path dir : preDirs) {
+                if (!dirs.contains(dir)) {
+                    this.release(dir, file);
+                }
+            }
+        }
+        for (Path dir : dirs) {
+            filesOfDir.computeIfAbsent(dir, key -> new HashSet<>())
+                    .add(file);
+        }
+        // 中间注册过，但最终没有被依赖的目录
+        for (Path dir : registered) {
+            if (!filesOfDir.containsKey(dir)) {
+                this.unregister(dir);
+            }
+        }
+        return Objects.nonNull(preDirs) && !Objects.equals(pre, state);
+    }
+
+    private void unwatch(Path file) {
+        states.remove(file);
+        Set<Path> dirs = dirsOfFile.remove(file);
+        if (Objects.nonNull(dirs)) {
+            dirs.forEach(dir -> this.release(dir, file));
+        }
+    }
+
+    /**
+     * 目录不再被任何证书文件依赖时，取消监听
+     */
+    private void release(Path dir, Path file) {
+        Set<Path> files = filesOfDir.get(dir);
+        if (Objects.isNull(files)) {
+            return;
+        }
+        files.remove(file);
+        if (files.isEmpty()) {
+            filesOfDir.remove(dir);
+            this.unregister(dir);
+        }
+    }
+
+    private void unregister(Path dir) {
+        polledDirs.remove(dir);
+        WatchKey key = keys.remove(dir);
+        if (Objects.nonNull(key)) {
+            key.cancel();
+        }
+    }
+
+    private void register(Path dir) {
+        if (keys.containsKey(dir) || polledDirs.contains(dir)) {
+            return;
+        }
+        if (Objects.isNull(watchService)) {
+            polledDirs.add(dir);
+            return;
+        }
+        try {
+            keys.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY));
+        } catch (IOException e) {
+            // 通常是超出了 inotify 的限制（fs.inotify.max_user_watches）
+            log.warn("证书文件监听器 {} 无法监听目录 {}，改为每 {} 秒轮询一次：{}", watcherName, dir,
+                    POLL_INTERVAL.toSeconds(), e.getMessage());
+            polledDirs.add(dir);
+        }
+    }
+
+    /**
+     * 关闭资源，停止监听
+     */
+    @Override
+    public void close() {
+        closed = Boolean.TRUE;
+        thread.interrupt();
+        if (Objects.nonNull(watchService)) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("关闭证书文件监听器 {} 异常：{}", watcherName, e.getMessage());
+            }
+        }
+    }
+
+    private static WatchService newWatchService() {
+        try {
+            return FileSystems.getDefault()
+                    .newWatchService();
+        } catch (IOException e) {
+            log.warn("无法创建文件监听服务，全部目录改为轮询：{}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 证书文件依赖的目录：文件所在的目录（不存在时为最近的已存在的上级目录）与 软链接目标所在的目录
+     */
+    private static Set<Path> dependentDirs(Path file, FileState state) {
+        Set<Path> dirs = new HashSet<>();
+        dirs.add(CertFileWatcher.existingAncestor(file.getParent()));
+        if (Objects.nonNull(state) && !Objects.equals(state.realPath(), file)) {
+            dirs.add(state.realPath().getParent());
+        }
+        return dirs;
+    }
+
+    /**
+     * 最近的已存在的目录
+     */
+    private static Path existingAncestor(Path dir) {
+        Path cur = dir;
+        while (Objects.nonNull(cur.getParent()) && !Files.isDirectory(cur)) {
+            cur = cur.getParent();
+        }
+        return cur;
+    }
+
+    /**
+     * 读取文件的状态，跟随软链接
+     *
+     * @return 文件的状态，文件不存在 或者 无法读取时为空
+     */
+    private static FileState stat(Path file) {
+        try {
+            Path realPath = file.toRealPath();
+            BasicFileAttributes attributes = Files.readAttributes(realPath, BasicFileAttributes.class);
+            return new FileState(realPath, attributes.fileKey(), attributes.lastModifiedTime().toMillis(),
+                    attributes.size());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 文件的状态
+     *
+     * @param realPath 跟随软链接后的真实路径
+     * @param fileKey  文件标识（inode），原子重命名替换文件时发生变化，不支持时为空
+     * @param modified 修改时间，单位：毫秒
+     * @param size     大小，单位：字节
+     */
+    private record FileState(Path realPath, Object fileKey, long modified, long size) {
+    }
+
+}
@@ -0,0 +1,204 @@
+package top.wuhunyu.alicdn.core;
+
+import lombok.extern.slf4j.Slf4j;
+import top.wuhunyu.alicdn.properties.AliCdnProperties;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static top.wuhunyu.alicdn.constants.CommonConstants.FINGERPRINT_FILE_NAME;
+import static top.wuhunyu.alicdn.constants.CommonConstants.UPLOADED_CERT_FILE_NAME;
+
+/**
+ * 证书指纹存储
+ * <p>
+ * 记录每个域名最近一次成功上传的证书指纹（公钥 + 私钥的 SHA-256），以及已经上传过的证书名称，
+ * 并持久化到 {@link AliCdnProperties#getStatePath()} 目录下，重启后依然有效
+ * <p>
+ * 证书指纹由 {@link PushJournal} 持久化，启动时回放日志得到；旧版本的指纹文件只在日志不存在时导入一次
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 10:12
+ **/
+
+@Slf4j
+public enum CertFingerprintStore {
+
+    INSTANCE;
+
+    /**
+     * 域名 -> 最近一次成功上传的证书指纹
+     */
+    private final Map<String, String> fingerprints;
+
+    /**
+     * 已经上传过的证书名称 -> 上传时间
+     */
+    private final Map<String, String> uploadedCerts;
+
+    private final Path storePath;
+
+    private final Path uploadedCertPath;
+
+    /**
+     * 状态文件是否已经读取
+     */
+    private volatile boolean loaded;
+
+    CertFingerprintStore() {
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        this.storePath = Paths.get(aliCdnProperties.getStatePath(), FINGERPRINT_FILE_NAME);
+        this.uploadedCertPath = Paths.get(aliCdnProperties.getStatePath(), UPLOADED_CERT_FILE_NAME);
+        this.fingerprints = new ConcurrentHashMap<>();
+        this.uploadedCerts = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 首次使用时读取状态文件
+     * <p>
+     * 不能在构造方法中读取，枚举实例初始化时静态的 log 还没有初始化；
+     * {@link PushJournal} 首次记录之前也会调用，保证旧版本的指纹文件先导入日志
+     */
+    void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            Map<String, String> seeds = new HashMap<>();
+            CertFingerprintStore.load(storePath, seeds);
+            fingerprints.putAll(PushJournal.INSTANCE.replay(seeds));
+            CertFingerprintStore.load(uploadedCertPath, uploadedCerts);
+            loaded = true;
+        }
+    }
+
+    /**
+     * 计算证书指纹
+     *
+     * @param pub 公钥内容 非空
+     * @param pri 私钥内容 非空
+     * @return 十六进制的 SHA-256 指纹
+     */
+    public static String fingerprint(final String pub, final String pri) {
+        Objects.requireNonNull(pub, "公钥内容不能为空");
+        Objects.requireNonNull(pri, "私钥内容不能为空");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(pub.getBytes(StandardCharsets.UTF_8));
+            // 分隔符，避免公私钥拼接产生歧义
+            digest.update((byte) 0);
+            digest.update(pri.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前环境不支持 SHA-256 摘要算法", e);
+        }
+    }
+
+    /**
+     * 证书是否与最近一次成功上传的证书一致
+     *
+     * @param domain      域名 非空
+     * @param fingerprint 当前证书指纹 非空
+     * @return true：一致；false：不一致或从未上传过
+     */
+    public boolean isUnchanged(final String domain, final String fingerprint) {
+        Objects.requireNonNull(domain, "域名不能为空");
+        Objects.requireNonNull(fingerprint, "证书指纹不能为空");
+        this.ensureLoaded();
+        return Objects.equals(fingerprints.get(domain), fingerprint);
+    }
+
+    /**
+     * 记录域名成功上传的证书指纹
+     * <p>
+     * 只修改内存中的指纹，由调用方通过 {@link PushJournal#outcome} 持久化
+     *
+     * @param domain      域名 非空
+     * @param fingerprint 证书指纹 非空
+     */
+    public void update(final String domain, final String fingerprint) {
+        Objects.requireNonNull(domain, "域名不能为空");
+        Objects.requireNonNull(fingerprint, "证书指纹不能为空");
+        this.ensureLoaded();
+        fingerprints.put(domain, fingerprint);
+    }
+
+    /**
+     * 证书是否已经上传过
+     *
+     * @param certName 证书名称 非空
+     * @return true：已经上传过；false：未上传过
+     */
+    public boolean isUploaded(final String certName) {
+        Objects.requireNonNull(certName, "证书名称不能为空");
+        this.ensureLoaded();
+        return uploadedCerts.containsKey(certName);
+    }
+
+    /**
+     * 记录已经上传过的证书名称，并持久化
+     *
+     * @param certName 证书名称 非空
+     */
+    public void markUploaded(final String certName) {
+        Objects.requireNonNull(certName, "证书名称不能为空");
+        this.ensureLoaded();
+        if (Objects.nonNull(uploadedCerts.putIfAbsent(certName, String.valueOf(System.currentTimeMillis())))) {
+            return;
+        }
+        CertFingerprintStore.save(uploadedCertPath, uploadedCerts, "certName=uploadTime");
+    }
+
+    private static void load(final Path storePath, final Map<String, String> target) {
+        if (!Files.isRegularFile(storePath)) {
+            log.info("状态文件 {} 不存在，将在首次上传成功后创建", storePath);
+            return;
+        }
+        Properties properties = new Properties();
+        try (BufferedReader reader = Files.newBufferedReader(storePath, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            log.warn("读取状态文件 {} 失败，将重新上传全部证书：", storePath, e);
+            return;
+        }
+        properties.forEach((key, value) -> target.put((String) key, (String) value));
+        log.info("读取状态文件 {} 成功，共 {} 条记录", storePath, target.size());
+    }
+
+    /**
+     * 先写临时文件，再原子替换，避免进程中断导致状态文件损坏
+     */
+    private static synchronized void save(final Path storePath, final Map<String, String> source,
+                                          final String comments) {
+        Properties properties = new Properties();
+        source.forEach(properties::setProperty);
+        Path tmpPath = storePath.resolveSibling(storePath.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(storePath.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(tmpPath, StandardCharsets.UTF_8)) {
+                properties.store(writer, comments);
+            }
+            Files.move(tmpPath, storePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("保存状态文件 {} 失败：", storePath, e);
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package top.wuhunyu.alicdn.core;
+
+import lombok.extern.slf4j.Slf4j;
+import top.wuhunyu.alicdn.model.CertMaterial;
+import top.wuhunyu.alicdn.properties.AliCdnProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static top.wuhunyu.alicdn.constants.CommonConstants.LEAN_CERT_CACHE_SIZE;
+
+/**
+ * 证书文件内容缓存
+ * <p>
+ * 以 路径 + 文件标识（inode）+ 文件大小 + 修改时间 判断文件是否发生变化，
+ * 未发生变化时直接返回缓存的内容，多个域名共用的证书文件每次变化只读取一次
+ * <p>
+ * 缓存数量有上限，超出时淘汰最久未使用的文件
+ * <p>
+ * 低内存模式下最多缓存 {@code LEAN_CERT_CACHE_SIZE} 个文件：多个域名共用的证书（例如泛域名证书）
+ * 仍然只读取一次，常驻内存不随域名数增长；每个域名各自一份证书时大多不会命中，
+ * 每次更新重新读取文件，以读取文件的开销换取常驻内存
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 15:36
+ **/
+
+@Slf4j
+public enum CertMaterialCache {
+
+    INSTANCE;
+
+    private static final String CERTIFICATE_BEGIN = "-----BEGIN CERTIFICATE-----";
+
+    private final Map<Path, Entry> cache;
+
+    CertMaterialCache() {
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        int capacity = aliCdnProperties.getLeanMode() ?
+                Math.min(aliCdnProperties.getCertCacheSize(), LEAN_CERT_CACHE_SIZE) :
+                aliCdnProperties.getCertCacheSize();
+        this.cache = new LinkedHashMap<>(16, 0.75F, Boolean.TRUE) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * 读取证书文件内容
+     * <p>
+     * 保证并发安全
+     *
+     * @param path 证书文件路径 非空
+     * @return 证书文件内容
+     * @throws IOException 读取文件失败
+     */
+    public CertMaterial get(final Path path) throws IOException {
+        Objects.requireNonNull(path, "证书文件路径不能为空");
+
+        Path key = path.toAbsolutePath()
+                .normalize();
+        FileIdentity identity = FileIdentity.of(key);
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        if (Objects.nonNull(entry) && Objects.equals(entry.identity(), identity)) {
+            return entry.material();
+        }
+
+        // 文件发生变化，重新读取
+        CertMaterial material = CertMaterialCache.read(key);
+        synchronized (cache) {
+            cache.put(key, new Entry(identity, material));
+        }
+        return material;
+    }
+
+    /**
+     * 移除缓存的证书文件
+     *
+     * @param path 证书文件路径 非空
+     */
+    public void invalidate(final Path path) {
+        Objects.requireNonNull(path, "证书文件路径不能为空");
+        synchronized (cache) {
+            cache.remove(path.toAbsolutePath()
+                    .normalize());
+        }
+    }
+
+    private static CertMaterial read(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        String pem = new String(bytes, StandardCharsets.UTF_8);
+        return CertMaterial.builder()
+                .path(path)
+                .pem(pem)
+                .certificate(CertMaterialCache.parseCertificate(path, bytes, pem))
+                .build();
+    }
+
+    private static X509Certificate parseCertificate(Path path, byte[] bytes, String pem) {
+        if (!pem.contains(CERTIFICATE_BEGIN)) {
+            return null;
+        }
+        try {
+            return (X509Certificate) CertificateFactory.getInstance("X.509")
+                    .generateCertificate(new ByteArrayInputStream(bytes));
+        } catch (CertificateException e) {
+            log.warn("解析证书 {} 失败：{}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 文件标识
+     *
+     * @param fileKey      文件标识，支持时为 inode
+     * @param size         文件大小
+     * @param lastModified 修改时间，单位：纳秒
+     */
+    private record FileIdentity(Object fileKey, long size, long lastModified) {
+
+        static FileIdentity of(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileIdentity(
+                    attributes.fileKey(),
+                    attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+        }
+
+    }
+
+    private record Entry(FileIdentity identity, CertMaterial material) {
+    }
+
+}
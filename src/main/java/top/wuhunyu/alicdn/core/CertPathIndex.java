@@ -0,0 +1,84 @@
+package top.wuhunyu.alicdn.core;
+
+import top.wuhunyu.alicdn.properties.AliCdnProperties;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 证书文件路径 -> 域名 索引
+ * <p>
+ * 根据 sslPath/domain/file 构建，文件监听器通过完整路径定位受影响的域名，
+ * 避免不同域名目录下同名证书文件互相干扰
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 11:05
+ **/
+
+public class CertPathIndex {
+
+    private final Map<Path, Set<String>> index;
+
+    private CertPathIndex(final Map<Path, Set<String>> index) {
+        this.index = index;
+    }
+
+    /**
+     * 根据配置构建索引
+     *
+     * @param aliCdnProperties 配置 非空
+     * @return 索引实例
+     */
+    public static CertPathIndex build(final AliCdnProperties aliCdnProperties) {
+        Objects.requireNonNull(aliCdnProperties, "配置不能为空");
+
+        List<String> domains = aliCdnProperties.getDomains();
+        List<String> pubes = aliCdnProperties.getPubes();
+        List<String> pries = aliCdnProperties.getPries();
+
+        Map<Path, Set<String>> index = new HashMap<>();
+        int n = domains.size();
+        for (int i = 0; i < n; i++) {
+            String domain = domains.get(i);
+            for (String fileName : List.of(pubes.get(i), pries.get(i))) {
+                Path path = CertPathIndex.normalize(Paths.get(aliCdnProperties.resolveCertPath(domain, fileName)));
+                index.computeIfAbsent(path, key -> new LinkedHashSet<>())
+                        .add(domain);
+            }
+        }
+        return new CertPathIndex(index);
+    }
+
+    /**
+     * 查找证书文件关联的域名
+     *
+     * @param path 证书文件路径 非空
+     * @return 关联的域名，不存在时返回空集合
+     */
+    public Set<String> lookup(final Path path) {
+        Objects.requireNonNull(path, "证书文件路径不能为空");
+        return Collections.unmodifiableSet(index.getOrDefault(CertPathIndex.normalize(path), Collections.emptySet()));
+    }
+
+    /**
+     * 全部证书文件路径
+     *
+     * @return 证书文件路径，已转换为绝对路径
+     */
+    public Set<Path> paths() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    private static Path normalize(final Path path) {
+        return path.toAbsolutePath()
+                .normalize();
+    }
+
+}
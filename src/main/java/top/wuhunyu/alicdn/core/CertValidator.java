@@ -0,0 +1,362 @@
+package top.wuhunyu.alicdn.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.naming.InvalidNameException;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 证书校验
+ * <p>
+ * 上传之前在本地校验公私钥，避免写了一半的文件、不匹配的私钥、顺序错误的证书链浪费一次接口请求：
+ * <p>
+ * 1. 公钥文件能够解析出至少一张证书，私钥文件能够解析出私钥（PKCS#8、PKCS#1、SEC1，不支持加密的私钥）
+ * <p>
+ * 2. 私钥与第一张证书匹配：RSA 比较模数，其他算法使用私钥签名、证书的公钥验签
+ * <p>
+ * 3. 证书链按 证书 -> 签发者 的顺序排列，每张证书都由下一张签发，且都在有效期内（有效期不参与隔离，每次都重新检查）
+ * <p>
+ * 4. 第一张证书的 SAN（没有 SAN 时为 CN）包含域名，支持泛域名
+ * <p>
+ * 校验失败的域名被隔离，证书指纹不变时不再校验与更新，文件再次修改后重新校验
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/19 00:10
+ **/
+
+@Slf4j
+public enum CertValidator {
+
+    INSTANCE;
+
+    private static final Pattern PEM = Pattern.compile(
+            "-----BEGIN ([A-Z0-9 ]+)-----([A-Za-z0-9+/=\\s]*?)-----END \\1-----");
+
+    private static final String PKCS8 = "PRIVATE KEY";
+
+    private static final String PKCS1 = "RSA PRIVATE KEY";
+
+    private static final String SEC1 = "EC PRIVATE KEY";
+
+    private static final int DNS_NAME = 2;
+
+    /**
+     * 域名 -> 最近一次校验的结果
+     */
+    private final Map<String, Verdict> verdicts;
+
+    CertValidator() {
+        this.verdicts = new ConcurrentHashMap<>();
+        Metrics.INSTANCE.gauge("alicdn_cert_quarantined", "证书校验失败被隔离的域名数",
+                () -> verdicts.values()
+                        .stream()
+                        .filter(verdict -> Objects.nonNull(verdict.error()))
+                        .count());
+    }
+
+    /**
+     * 校验域名的公私钥
+     * <p>
+     * 证书指纹与上一次校验时一致时直接使用上一次的结果，只重新检查有效期；保证并发安全
+     *
+     * @param domain      域名 非空
+     * @param fingerprint 证书指纹 非空
+     * @param pub         公钥 PEM 非空
+     * @param pri         私钥 PEM 非空
+     * @return 校验失败的原因，校验通过时为空
+     */
+    public String check(final String domain, final String fingerprint, final String pub, final String pri) {
+        Objects.requireNonNull(domain, "域名不能为空");
+        Objects.requireNonNull(fingerprint, "证书指纹不能为空");
+        Objects.requireNonNull(pub, "公钥不能为空");
+        Objects.requireNonNull(pri, "私钥不能为空");
+
+        long now = System.currentTimeMillis();
+        Verdict verdict = verdicts.get(domain);
+        if (Objects.isNull(verdict) || !Objects.equals(verdict.fingerprint(), fingerprint)) {
+            verdict = CertValidator.validate(domain, fingerprint, pub, pri);
+            verdicts.put(domain, verdict);
+            if (Objects.nonNull(verdict.error())) {
+                return "证书校验失败，文件修改之前不再更新：" + verdict.error();
+            }
+        }
+        if (Objects.nonNull(verdict.error())) {
+            return "证书已隔离：" + verdict.error();
+        }
+        if (now < verdict.notBefore()) {
+            return "证书尚未生效，生效时间：" + new Date(verdict.notBefore());
+        }
+        if (now > verdict.notAfter()) {
+            return "证书已过期，过期时间：" + new Date(verdict.notAfter());
+        }
+        return null;
+    }
+
+    /**
+     * 移除不再需要更新的域名的校验结果
+     *
+     * @param domains 仍然需要更新的域名 非空
+     */
+    public void retain(final Collection<String> domains) {
+        Objects.requireNonNull(domains, "域名不能为空");
+        verdicts.keySet().retainAll(domains);
+    }
+
+    private static Verdict validate(String domain, String fingerprint, String pub, String pri) {
+        try {
+            // 证书链
+            List<X509Certificate> chain = new ArrayList<>();
+            CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+            for (byte[] der : CertValidator.decode(pub, "CERTIFICATE")) {
+                chain.add((X509Certificate) certificateFactory.generateCertificate(new ByteArrayInputStream(der)));
+            }
+            if (chain.isEmpty()) {
+                return Verdict.invalid(fingerprint, "公钥文件中没有完整的证书");
+            }
+            X509Certificate leaf = chain.get(0);
+
+            // 证书链的顺序与有效期
+            long notBefore = Long.MIN_VALUE;
+            long notAfter = Long.MAX_VALUE;
+            for (int i = 0; i < chain.size(); i++) {
+                X509Certificate cur = chain.get(i);
+                notBefore = Math.max(notBefore, cur.getNotBefore().getTime());
+                notAfter = Math.min(notAfter, cur.getNotAfter().getTime());
+                if (i + 1 == chain.size()) {
+                    break;
+                }
+                X509Certificate issuer = chain.get(i + 1);
+                if (!Objects.equals(cur.getIssuerX500Principal(), issuer.getSubjectX500Principal())) {
+                    return Verdict.invalid(fingerprint, "证书链顺序错误，第 " + (i + 2) + " 张证书不是第 " + (i + 1) +
+                            " 张证书的签发者：" + cur.getIssuerX500Principal().getName());
+                }
+                try {
+                    cur.verify(issuer.getPublicKey());
+                } catch (GeneralSecurityException e) {
+                    return Verdict.invalid(fingerprint, "第 " + (i + 1) + " 张证书的签名校验失败：" + e.getMessage());
+                }
+            }
+
+            // 私钥
+            PrivateKey privateKey;
+            try {
+                privateKey = CertValidator.parsePrivateKey(pri, leaf.getPublicKey());
+            } catch (InvalidKeySpecException e) {
+                return Verdict.invalid(fingerprint, "私钥与证书不匹配，证书的算法为 " + leaf.getPublicKey().getAlgorithm());
+            }
+            if (!CertValidator.matches(privateKey, leaf.getPublicKey())) {
+                return Verdict.invalid(fingerprint, "私钥与证书不匹配");
+            }
+
+            // 证书包含的域名
+            List<String> names = CertValidator.dnsNames(leaf);
+            if (names.stream().noneMatch(name -> CertValidator.covers(name, domain))) {
+                return Verdict.invalid(fingerprint, "证书不包含域名 " + domain + "，证书包含的域名：" + names);
+            }
+            return new Verdict(fingerprint, null, notBefore, notAfter);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return Verdict.invalid(fingerprint, "解析公私钥失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 解析 PEM 中指定类型的全部内容
+     */
+    private static List<byte[]> decode(String pem, String type) {
+        List<byte[]> ans = new ArrayList<>();
+        Matcher matcher = PEM.matcher(pem);
+        while (matcher.find()) {
+            if (Objects.equals(matcher.group(1), type)) {
+                ans.add(Base64.getMimeDecoder().decode(matcher.group(2)));
+            }
+        }
+        return ans;
+    }
+
+    /**
+     * 解析私钥，PKCS#1 与 SEC1 格式使用证书公钥的算法标识转换为 PKCS#8
+     */
+    private static PrivateKey parsePrivateKey(String pem, PublicKey publicKey) throws GeneralSecurityException {
+        Matcher matcher = PEM.matcher(pem);
+        while (matcher.find()) {
+            String type = matcher.group(1);
+            if (!StringUtils.equalsAny(type, PKCS8, PKCS1, SEC1)) {
+                continue;
+            }
+            byte[] der = Base64.getMimeDecoder().decode(matcher.group(2));
+            if (!Objects.equals(type, PKCS8)) {
+                // PrivateKeyInfo ::= SEQUENCE { version INTEGER 0, algorithm AlgorithmIdentifier, privateKey OCTET STRING }
+                der = CertValidator.der(0x30, new byte[]{0x02, 0x01, 0x00},
+                        CertValidator.algorithmIdentifier(publicKey.getEncoded()),
+                        CertValidator.der(0x04, der));
+            }
+            return KeyFactory.getInstance(publicKey.getAlgorithm())
+                    .generatePrivate(new PKCS8EncodedKeySpec(der));
+        }
+        throw new IllegalArgumentException("私钥文件中没有未加密的私钥");
+    }
+
+    private static boolean matches(PrivateKey privateKey, PublicKey publicKey) throws GeneralSecurityException {
+        if (privateKey instanceof RSAKey rsaPrivate && publicKey instanceof RSAKey rsaPublic) {
+            return Objects.equals(rsaPrivate.getModulus(), rsaPublic.getModulus());
+        }
+        String algorithm = switch (publicKey.getAlgorithm()) {
+            case "EC" -> "SHA256withECDSA";
+            case "DSA" -> "SHA256withDSA";
+            default -> publicKey.getAlgorithm();
+        };
+        byte[] challenge = new byte[32];
+        new SecureRandom().nextBytes(challenge);
+        Signature signer = Signature.getInstance(algorithm);
+        signer.initSign(privateKey);
+        signer.update(challenge);
+        byte[] signature = signer.sign();
+        Signature verifier = Signature.getInstance(algorithm);
+        verifier.initVerify(publicKey);
+        verifier.update(challenge);
+        return verifier.verify(signature);
+    }
+
+    /**
+     * 证书包含的域名：SAN 中的 DNS 名称，没有时使用 CN
+     */
+    private static List<String> dnsNames(X509Certificate certificate) throws GeneralSecurityException {
+        List<String> names = new ArrayList<>();
+        Collection<List<?>> alternativeNames = certificate.getSubjectAlternativeNames();
+        if (Objects.nonNull(alternativeNames)) {
+            for (List<?> alternativeName : alternativeNames) {
+                if (Objects.equals(alternativeName.get(0), DNS_NAME)) {
+                    names.add(String.valueOf(alternativeName.get(1)));
+                }
+            }
+        }
+        if (!names.isEmpty()) {
+            return names;
+        }
+        try {
+            for (Rdn rdn : new LdapName(certificate.getSubjectX500Principal().getName()).getRdns()) {
+                if ("CN".equalsIgnoreCase(rdn.getType())) {
+                    names.add(String.valueOf(rdn.getValue()));
+                }
+            }
+        } catch (InvalidNameException e) {
+            log.debug("解析证书主题 {} 失败：{}", certificate.getSubjectX500Principal(), e.getMessage());
+        }
+        return names;
+    }
+
+    /**
+     * 证书中的域名是否包含 CDN 域名
+     * <p>
+     * 泛域名只匹配一级子域名；CDN 的泛域名（*.a.com 或 .a.com）只能由相同的泛域名证书覆盖
+     */
+    static boolean covers(String name, String domain) {
+        String pattern = name.toLowerCase(Locale.ROOT);
+        String host = domain.toLowerCase(Locale.ROOT);
+        if (host.startsWith(".")) {
+            host = "*" + host;
+        }
+        if (Objects.equals(pattern, host)) {
+            return true;
+        }
+        if (!pattern.startsWith("*.") || host.startsWith("*")) {
+            return false;
+        }
+        int dot = host.indexOf('.');
+        return dot > 0 && Objects.equals(host.substring(dot), pattern.substring(1));
+    }
+
+    /**
+     * 从 SubjectPublicKeyInfo ::= SEQUENCE { algorithm AlgorithmIdentifier, subjectPublicKey BIT STRING }
+     * 中取出 AlgorithmIdentifier
+     */
+    private static byte[] algorithmIdentifier(byte[] subjectPublicKeyInfo) {
+        int offset = CertValidator.headerLength(subjectPublicKeyInfo, 0);
+        int length = CertValidator.headerLength(subjectPublicKeyInfo, offset) +
+                CertValidator.contentLength(subjectPublicKeyInfo, offset);
+        byte[] ans = new byte[length];
+        System.arraycopy(subjectPublicKeyInfo, offset, ans, 0, length);
+        return ans;
+    }
+
+    private static int headerLength(byte[] der, int offset) {
+        int first = der[offset + 1] & 0xFF;
+        return first < 0x80 ? 2 : 2 + (first & 0x7F);
+    }
+
+    private static int contentLength(byte[] der, int offset) {
+        int first = der[offset + 1] & 0xFF;
+        if (first < 0x80) {
+            return first;
+        }
+        int length = 0;
+        for (int i = 0; i < (first & 0x7F); i++) {
+            length = (length << 8) | (der[offset + 2 + i] & 0xFF);
+        }
+        return length;
+    }
+
+    private static byte[] der(int tag, byte[]... contents) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (byte[] cur : contents) {
+            content.writeBytes(cur);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(tag);
+        int length = content.size();
+        if (length < 0x80) {
+            out.write(length);
+        } else {
+            int bytes = (Integer.SIZE - Integer.numberOfLeadingZeros(length) + 7) >>> 3;
+            out.write(0x80 | bytes);
+            for (int i = bytes - 1; i >= 0; i--) {
+                out.write(length >>> (i << 3));
+            }
+        }
+        out.writeBytes(content.toByteArray());
+        return out.toByteArray();
+    }
+
+    /**
+     * 一次校验的结果
+     *
+     * @param fingerprint 证书指纹
+     * @param error       校验失败的原因，校验通过时为空
+     * @param notBefore   证书链的生效时间，单位：毫秒
+     * @param notAfter    证书链的过期时间，单位：毫秒
+     */
+    private record Verdict(String fingerprint, String error, long notBefore, long notAfter) {
+
+        static Verdict invalid(String fingerprint, String error) {
+            return new Verdict(fingerprint, error, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+    }
+
+}
@@ -0,0 +1,188 @@
+package top.wuhunyu.alicdn.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 熔断器
+ * <p>
+ * 使用场景：
+ * <p>
+ * 服务端持续被限流或者异常时，停止发出请求，避免剩余的请求全部以失败告终并进一步加重服务端的负担
+ * <p>
+ * 连续 failureThreshold 个请求被限流或者服务端异常时打开，打开期间不发出请求；
+ * 在上一个计数的失败之前发出的请求（同一批并发的请求）失败时不再计数，并发数较大时一批请求同时被限流不会直接熔断；
+ * openTimeout 之后进入半开状态，只放行一个探测请求，探测成功时关闭，失败时重新打开
+ * <p>
+ * 使用示例
+ * <p>
+ * {@link CircuitBreaker#init} 之后 发出请求前调用 {@link CircuitBreaker#state}，请求完成时调用 {@link CircuitBreaker#onSample}
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 23:40
+ */
+
+@Slf4j
+public class CircuitBreaker {
+
+    private final String breakerName;
+
+    private final int failureThreshold;
+
+    private final long openTimeout;
+
+    private State state;
+
+    /**
+     * 连续被限流或者服务端异常的请求数
+     */
+    private int failures;
+
+    /**
+     * 上一个计数的失败的时间，单位：纳秒
+     */
+    private long lastFailure;
+
+    /**
+     * 打开的时间，单位：纳秒
+     */
+    private long openedAt;
+
+    private CircuitBreaker(final String breakerName, final Integer failureThreshold,
+                           final Long openTimeout, final TimeUnit unit) {
+        Objects.requireNonNull(breakerName, "熔断器名称不能为空");
+        Objects.requireNonNull(failureThreshold, "熔断的连续失败次数不能为空");
+        Objects.requireNonNull(openTimeout, "熔断时间不能为空");
+        Objects.requireNonNull(unit, "时间单位不能为空");
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("熔断的连续失败次数必须大于 0");
+        }
+        if (openTimeout < 0) {
+            throw new IllegalArgumentException("熔断时间不能小于 0");
+        }
+
+        this.breakerName = breakerName;
+        this.failureThreshold = failureThreshold;
+        this.openTimeout = unit.toNanos(openTimeout);
+        this.state = State.CLOSED;
+        this.lastFailure = System.nanoTime();
+    }
+
+    /**
+     * 初始化一个 熔断器
+     *
+     * @param breakerName      熔断器名称 非空
+     * @param failureThreshold 连续失败多少次后打开 非空
+     * @param openTimeout      打开多久后进入半开状态 非空
+     * @param unit             时间单位 非空
+     * @return 熔断器实例
+     */
+    public static CircuitBreaker init(final String breakerName, final Integer failureThreshold,
+                                      final Long openTimeout, final TimeUnit unit) {
+        return new CircuitBreaker(breakerName, failureThreshold, openTimeout, unit);
+    }
+
+    /**
+     * 当前的状态，打开超过 openTimeout 时进入半开状态
+     * <p>
+     * 保证并发安全
+     *
+     * @return 状态
+     */
+    public synchronized State state() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openTimeout) {
+            state = State.HALF_OPEN;
+            log.info("{} 熔断时间已过，放行一个探测请求", breakerName);
+        }
+        return state;
+    }
+
+    /**
+     * 距离进入半开状态的纳秒数
+     * <p>
+     * 保证并发安全
+     *
+     * @return 打开时为剩余的熔断时间，其他状态为 0
+     */
+    public synchronized long remainingOpenNanos() {
+        if (state != State.OPEN) {
+            return 0L;
+        }
+        return Math.max(0L, openTimeout - (System.nanoTime() - openedAt));
+    }
+
+    /**
+     * 记录一个请求的结果
+     * <p>
+     * 保证并发安全
+     *
+     * @param start      请求发出的时间，单位：纳秒
+     * @param overloaded 是否被限流 或者 服务端异常
+     */
+    public synchronized void onSample(final long start, final boolean overloaded) {
+        if (!overloaded) {
+            failures = 0;
+            if (state == State.HALF_OPEN) {
+                state = State.CLOSED;
+                log.info("{} 探测请求成功，熔断器关闭", breakerName);
+            }
+            return;
+        }
+        // 打开期间完成的请求是打开之前发出的，不再重复计数
+        if (state == State.OPEN) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (state == State.CLOSED && start - lastFailure < 0) {
+            return;
+        }
+        lastFailure = now;
+        if (state == State.HALF_OPEN) {
+            log.warn("{} 探测请求失败，重新熔断 {} 毫秒", breakerName, TimeUnit.NANOSECONDS.toMillis(openTimeout));
+        } else if (++failures >= failureThreshold) {
+            log.warn("{} 连续 {} 个请求被限流或服务端异常，熔断 {} 毫秒", breakerName,
+                    failures, TimeUnit.NANOSECONDS.toMillis(openTimeout));
+        } else {
+            return;
+        }
+        state = State.OPEN;
+        openedAt = now;
+        failures = 0;
+    }
+
+    /**
+     * 熔断器的状态
+     */
+    public enum State {
+
+        /**
+         * 关闭：正常放行
+         */
+        CLOSED,
+
+        /**
+         * 打开：不发出请求
+         */
+        OPEN,
+
+        /**
+         * 半开：只放行一个探测请求
+         */
+        HALF_OPEN
+
+    }
+
+    /**
+     * 熔断器打开期间，排队超时的请求失败时的异常
+     */
+    public static class OpenException extends IllegalStateException {
+
+        public OpenException(String message) {
+            super(message);
+        }
+
+    }
+
+}
@@ -1,15 +1,10 @@
 package top.wuhunyu.alicdn.core;
 
-import cn.hutool.core.thread.NamedThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.Closeable;
 import java.util.Objects;
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 防抖器
@@ -29,26 +24,17 @@ import java.util.concurrent.atomic.AtomicReference;
 @Slf4j
 public class Debounce implements Closeable {
 
-    private final ScheduledExecutorService scheduledExecutorService;
+    private static final String KEY = "debounce";
 
-    private final AtomicReference<Future<?>> task;
-
-    private final Long delay;
-
-    private final TimeUnit unit;
+    private final KeyedDebounce<String> keyedDebounce;
 
     private Debounce(final String debounceName, final Long delay, final TimeUnit unit) {
         Objects.requireNonNull(debounceName, "防抖器名称不能为空");
         Objects.requireNonNull(delay, "延迟时间不能为空");
         Objects.requireNonNull(unit, "延迟时间单位不能为空");
 
-        scheduledExecutorService = new ScheduledThreadPoolExecutor(
-                1,
-                new NamedThreadFactory(debounceName + "-", Boolean.TRUE));
-        task = new AtomicReference<>();
-
-        this.delay = delay;
-        this.unit = unit;
+        // 只有一个 key 的 按 key 防抖的防抖器，不再单独创建线程池
+        keyedDebounce = KeyedDebounce.init(debounceName, delay, unit);
     }
 
     /**
@@ -71,47 +57,19 @@ public class Debounce implements Closeable {
      * @param runnable 需要防抖的事件
      */
     public void debounce(final Runnable runnable) {
-        Objects.requireNonNull(delay, "延迟时间不能为空");
-        Objects.requireNonNull(unit, "延迟时间单位不能为空");
         Objects.requireNonNull(runnable, "防抖任务不能为空");
 
-        Runnable wrapRunnable = () -> {
-            try {
-                runnable.run();
-            } catch (Exception e) {
-                log.error("防抖操作异常: ", e);
-            }
-        };
-        Future<?> curTask = scheduledExecutorService.schedule(wrapRunnable, delay, unit);
-        Future<?> preTask = task.get();
-        if (task.compareAndSet(preTask, curTask)) {
-            this.tryCancel(preTask);
-        } else {
-            curTask.cancel(Boolean.TRUE);
-        }
-    }
-
-    /**
-     * 尝试取消任务
-     *
-     * @param task 任务，允许为空
-     */
-    private void tryCancel(Future<?> task) {
-        if (Objects.nonNull(task) && !task.isDone() && !task.isCancelled()) {
-            task.cancel(Boolean.TRUE);
-        }
+        keyedDebounce.debounce(KEY, runnable);
     }
 
     /**
-     * 关闭资源
+     * 关闭资源，尚未执行的任务不再执行
      */
     @Override
     public void close() {
         log.info("正在关闭防抖器");
-        this.tryCancel(task.get());
-        if (!scheduledExecutorService.isShutdown()) {
-            scheduledExecutorService.shutdown();
-        }
+        keyedDebounce.cancel(KEY);
+        keyedDebounce.close();
     }
 
 }
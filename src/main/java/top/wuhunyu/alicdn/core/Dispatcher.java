@@ -0,0 +1,414 @@
+package top.wuhunyu.alicdn.core;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * 调度器
+ * <p>
+ * 使用场景：
+ * <p>
+ * 限制异步请求的最大并发数以及每秒请求数，超出限制的请求排队等待，不阻塞提交线程
+ * <p>
+ * 并发数由 {@link AdaptiveLimiter} 根据请求的结果在 1 ~ maxInFlight 之间调整；
+ * 持续被限流或者服务端异常时由 {@link CircuitBreaker} 熔断：熔断期间请求继续排队，熔断时间过后放行一个探测请求，
+ * 探测成功后依次发出排队中的请求；在进入半开状态之前就会超过 queueTimeout 的请求立即失败
+ * <p>
+ * 令牌不足时延迟排空队列，默认由调度器自己的线程执行；指定 {@link HashedWheelTimer} 时由时间轮计时，
+ * 到期后交给 {@link HashedWheelTimer#sharedExecutor()} 的虚拟线程排空队列，多个调度器不再各占一个线程，也不占用时间轮线程
+ * <p>
+ * 使用示例
+ * <p>
+ * {@link Dispatcher#init} 之后 调用 {@link Dispatcher#submit} 提交异步请求
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 13:45
+ */
+
+@Slf4j
+public class Dispatcher implements Closeable {
+
+    private final String dispatcherName;
+
+    private final AdaptiveLimiter limiter;
+
+    private final CircuitBreaker breaker;
+
+    private final TokenBucket tokenBucket;
+
+    /**
+     * 熔断期间请求最多排队多久，单位：纳秒
+     */
+    private final long queueTimeout;
+
+    private final Queue<Task> pending;
+
+    private final AtomicInteger inFlight;
+
+    /**
+     * 排空队列的工作计数，保证同一时刻只有一个线程在排空队列
+     */
+    private final AtomicInteger wip;
+
+    /**
+     * 是否已经预约了一次延迟排空，避免令牌不足时重复预约
+     */
+    private final AtomicBoolean drainScheduled;
+
+    /**
+     * 自行创建的线程池，指定时间轮时为空
+     */
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    /**
+     * 调用方提供的时间轮，未指定时为空
+     */
+    private final HashedWheelTimer timer;
+
+    private volatile boolean closed;
+
+    private Dispatcher(final String dispatcherName, final AdaptiveLimiter limiter,
+                       final CircuitBreaker breaker, final Double qps,
+                       final Long queueTimeout, final TimeUnit unit, final HashedWheelTimer timer) {
+        Objects.requireNonNull(dispatcherName, "调度器名称不能为空");
+        Objects.requireNonNull(limiter, "并发限制不能为空");
+        Objects.requireNonNull(breaker, "熔断器不能为空");
+        Objects.requireNonNull(qps, "每秒请求数不能为空");
+        Objects.requireNonNull(queueTimeout, "熔断期间的排队时间不能为空");
+        Objects.requireNonNull(unit, "时间单位不能为空");
+        if (queueTimeout < 0) {
+            throw new IllegalArgumentException("熔断期间的排队时间不能小于 0");
+        }
+
+        this.dispatcherName = dispatcherName;
+        this.limiter = limiter;
+        this.breaker = breaker;
+        this.tokenBucket = TokenBucket.init(qps, Math.max(1, (int) Math.ceil(qps)));
+        this.queueTimeout = unit.toNanos(queueTimeout);
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.inFlight = new AtomicInteger();
+        this.wip = new AtomicInteger();
+        this.drainScheduled = new AtomicBoolean(Boolean.FALSE);
+        this.timer = timer;
+        this.scheduledExecutorService = Objects.nonNull(timer) ?
+                null :
+                new ScheduledThreadPoolExecutor(1, new NamedThreadFactory(dispatcherName + "-", Boolean.TRUE));
+    }
+
+    /**
+     * 初始化一个 并发数固定、不熔断的调度器
+     *
+     * @param dispatcherName 调度器名称 非空
+     * @param maxInFlight    最大并发数 非空
+     * @param qps            每秒请求数 非空
+     * @return 调度器实例
+     */
+    public static Dispatcher init(final String dispatcherName, final Integer maxInFlight, final Double qps) {
+        return new Dispatcher(dispatcherName,
+                AdaptiveLimiter.init(dispatcherName, maxInFlight, Boolean.FALSE),
+                CircuitBreaker.init(dispatcherName, Integer.MAX_VALUE, 0L, TimeUnit.MILLISECONDS),
+                qps,
+                0L,
+                TimeUnit.MILLISECONDS,
+                null);
+    }
+
+    /**
+     * 初始化一个 调度器
+     *
+     * @param dispatcherName 调度器名称 非空
+     * @param limiter        并发限制 非空
+     * @param breaker        熔断器 非空
+     * @param qps            每秒请求数 非空
+     * @param queueTimeout   熔断期间请求最多排队多久 非空，为 0 时熔断期间排队中的请求立即失败
+     * @param unit           时间单位 非空
+     * @return 调度器实例
+     */
+    public static Dispatcher init(final String dispatcherName, final AdaptiveLimiter limiter,
+                                  final CircuitBreaker breaker, final Double qps,
+                                  final Long queueTimeout, final TimeUnit unit) {
+        return new Dispatcher(dispatcherName, limiter, breaker, qps, queueTimeout, unit, null);
+    }
+
+    /**
+     * 初始化一个 延迟任务由时间轮计时的调度器
+     *
+     * @param dispatcherName 调度器名称 非空
+     * @param limiter        并发限制 非空
+     * @param breaker        熔断器 非空
+     * @param qps            每秒请求数 非空
+     * @param queueTimeout   熔断期间请求最多排队多久 非空，为 0 时熔断期间排队中的请求立即失败
+     * @param unit           时间单位 非空
+     * @param timer          延迟任务计时的时间轮 非空，由调用方负责关闭
+     * @return 调度器实例
+     */
+    public static Dispatcher init(final String dispatcherName, final AdaptiveLimiter limiter,
+                                  final CircuitBreaker breaker, final Double qps,
+                                  final Long queueTimeout, final TimeUnit unit, final HashedWheelTimer timer) {
+        Objects.requireNonNull(timer, "时间轮不能为空");
+        return new Dispatcher(dispatcherName, limiter, breaker, qps, queueTimeout, unit, timer);
+    }
+
+    /**
+     * 提交异步请求，全部结果都视为正常
+     * <p>
+     * 保证并发安全
+     *
+     * @param request 异步请求 非空
+     * @param <T>     响应类型
+     * @return 请求完成时完成的 future
+     */
+    public <T> CompletableFuture<T> submit(final Supplier<CompletableFuture<T>> request) {
+        return this.submit(request, (response, e) -> false);
+    }
+
+    /**
+     * 提交异步请求
+     * <p>
+     * 保证并发安全
+     *
+     * @param request    异步请求 非空
+     * @param overloaded 判断 响应 或 异常 是否表示被限流、服务端异常 非空，用于调整并发数与熔断
+     * @param <T>        响应类型
+     * @return 请求完成时完成的 future；熔断恢复之前就会超过排队时间时以 {@link CircuitBreaker.OpenException} 失败；
+     * 取消该 future 时，排队中的请求不再发出，正在执行的请求同时取消
+     */
+    public <T> CompletableFuture<T> submit(final Supplier<CompletableFuture<T>> request,
+                                           final BiPredicate<T, Throwable> overloaded) {
+        Objects.requireNonNull(request, "异步请求不能为空");
+        Objects.requireNonNull(overloaded, "限流判断条件不能为空");
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        final long deadline = System.nanoTime() + queueTimeout;
+        Task task = new Task() {
+            @Override
+            public void run() {
+                // 出队之后、发出之前被取消
+                if (result.isDone()) {
+                    inFlight.decrementAndGet();
+                    return;
+                }
+                long start = System.nanoTime();
+                CompletableFuture<T> future;
+                try {
+                    future = request.get();
+                } catch (Exception e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                final CompletableFuture<T> cur = future;
+                result.whenComplete((response, e) -> {
+                    if (result.isCancelled()) {
+                        cur.cancel(Boolean.TRUE);
+                    }
+                });
+                future.whenComplete((response, e) -> {
+                    Dispatcher.this.onSample(start, response, e, overloaded);
+                    inFlight.decrementAndGet();
+                    Dispatcher.this.drain();
+                    if (Objects.isNull(e)) {
+                        result.complete(response);
+                    } else {
+                        result.completeExceptionally(e);
+                    }
+                });
+            }
+
+            @Override
+            public long deadline() {
+                return deadline;
+            }
+
+            @Override
+            public void reject(RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        };
+        pending.offer(task);
+        // 取消的请求立即移出队列
+        result.whenComplete((response, e) -> {
+            if (result.isCancelled()) {
+                pending.remove(task);
+            }
+        });
+        this.drain();
+        return result;
+    }
+
+    /**
+     * 正在执行的请求数
+     *
+     * @return 正在执行的请求数
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 排队中的请求数
+     *
+     * @return 排队中的请求数
+     */
+    public int queued() {
+        return pending.size();
+    }
+
+    /**
+     * 当前允许的并发数
+     *
+     * @return 并发数
+     */
+    public int limit() {
+        return limiter.limit();
+    }
+
+    /**
+     * 熔断器当前的状态
+     *
+     * @return 熔断器的状态
+     */
+    public CircuitBreaker.State state() {
+        return breaker.state();
+    }
+
+    private <T> void onSample(long start, T response, Throwable e, BiPredicate<T, Throwable> overloaded) {
+        // 熔断器打开时被拒绝的请求不计入
+        if (RetryScheduler.unwrap(e) instanceof CircuitBreaker.OpenException) {
+            return;
+        }
+        boolean drop;
+        try {
+            drop = overloaded.test(response, RetryScheduler.unwrap(e));
+        } catch (Exception ex) {
+            log.warn("{} 判断请求是否被限流时异常：", dispatcherName, ex);
+            drop = false;
+        }
+        limiter.onSample(System.nanoTime() - start, drop);
+        breaker.onSample(start, drop);
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            try {
+                this.drainPending();
+            } catch (RuntimeException e) {
+                // 异常不能跳过 wip 的递减，否则之后的排空全部直接返回，调度器不再发出请求
+                log.warn("{} 排空队列时异常：", dispatcherName, e);
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+
+    private void drainPending() {
+        while (!pending.isEmpty()) {
+            CircuitBreaker.State state = breaker.state();
+            if (state == CircuitBreaker.State.OPEN) {
+                // 保留排队中的请求，熔断时间过后再排空队列，由半开状态放行探测请求
+                long remaining = breaker.remainingOpenNanos();
+                this.rejectExpired(System.nanoTime() + remaining);
+                if (!pending.isEmpty()) {
+                    this.scheduleDrain(Math.max(1L, remaining));
+                }
+                return;
+            }
+            // 半开状态只放行一个探测请求
+            int limit = state == CircuitBreaker.State.HALF_OPEN ? 1 : limiter.limit();
+            if (inFlight.get() >= limit) {
+                return;
+            }
+            long wait = tokenBucket.tryAcquire();
+            if (wait > 0) {
+                this.scheduleDrain(wait);
+                return;
+            }
+            // 判断队列非空之后，其他线程可能取消了最后一个请求并把它移出队列
+            Task task = pending.poll();
+            if (Objects.isNull(task)) {
+                return;
+            }
+            inFlight.incrementAndGet();
+            task.run();
+        }
+    }
+
+    /**
+     * 熔断恢复之前就会超过排队时间的请求立即失败
+     *
+     * @param reopenAt 进入半开状态的时间，单位：纳秒
+     */
+    private void rejectExpired(long reopenAt) {
+        CircuitBreaker.OpenException e = null;
+        for (Task task : pending) {
+            if (task.deadline() - reopenAt >= 0 || !pending.remove(task)) {
+                continue;
+            }
+            if (Objects.isNull(e)) {
+                e = new CircuitBreaker.OpenException(dispatcherName + " 已熔断");
+            }
+            task.reject(e);
+        }
+    }
+
+    private void scheduleDrain(long waitNanos) {
+        if (!drainScheduled.compareAndSet(Boolean.FALSE, Boolean.TRUE) || closed) {
+            return;
+        }
+        Runnable task = () -> {
+            drainScheduled.set(Boolean.FALSE);
+            this.drain();
+        };
+        if (Objects.nonNull(timer)) {
+            timer.newTimeout(task, waitNanos, TimeUnit.NANOSECONDS, HashedWheelTimer.sharedExecutor());
+        } else {
+            scheduledExecutorService.schedule(task, waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void close() {
+        log.info("正在关闭调度器");
+        closed = true;
+        if (Objects.nonNull(scheduledExecutorService) && !scheduledExecutorService.isShutdown()) {
+            scheduledExecutorService.shutdown();
+        }
+    }
+
+    /**
+     * 排队中的请求
+     */
+    private interface Task {
+
+        /**
+         * 发出请求
+         */
+        void run();
+
+        /**
+         * 熔断期间最多排队到什么时候，单位：纳秒
+         */
+        long deadline();
+
+        /**
+         * 不发出请求，直接失败
+         *
+         * @param e 失败的原因
+         */
+        void reject(RuntimeException e);
+
+    }
+
+}
@@ -0,0 +1,314 @@
+package top.wuhunyu.alicdn.core;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 哈希时间轮
+ * <p>
+ * 使用场景：
+ * <p>
+ * 大量延迟任务共用一个线程，每个延迟任务只是一个轻量的对象，不创建 {@link java.util.concurrent.ScheduledFuture}
+ * <p>
+ * 新任务先放入无锁队列，由时间轮线程在每个 tick 转移到对应的槽位；槽位只由时间轮线程访问，不加锁。
+ * 任务在时间轮线程中执行，耗时的任务需要自行异步执行，否则会推迟其他任务；
+ * 可以通过 {@link #newTimeout(Runnable, Long, TimeUnit, Executor)} 指定执行任务的线程池，时间轮线程只负责提交
+ * <p>
+ * 使用示例
+ * <p>
+ * {@link HashedWheelTimer#init} 之后 调用 {@link HashedWheelTimer#newTimeout} 提交延迟任务
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 17:20
+ */
+
+@Slf4j
+public class HashedWheelTimer implements Closeable {
+
+    /**
+     * 每个 tick 最多转移的新任务数，避免新任务过多时推迟到期任务的执行
+     */
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    private final long tickDuration;
+
+    private final int mask;
+
+    /**
+     * 槽位，只由时间轮线程访问
+     */
+    private final ArrayDeque<Timeout>[] wheel;
+
+    private final Queue<Timeout> incoming;
+
+    private final long startTime;
+
+    private final Thread worker;
+
+    private volatile boolean closed;
+
+    @SuppressWarnings("unchecked")
+    private HashedWheelTimer(final String timerName, final Long tickDuration, final TimeUnit unit,
+                             final Integer ticksPerWheel) {
+        Objects.requireNonNull(timerName, "时间轮名称不能为空");
+        Objects.requireNonNull(tickDuration, "tick 间隔不能为空");
+        Objects.requireNonNull(unit, "tick 间隔单位不能为空");
+        Objects.requireNonNull(ticksPerWheel, "时间轮槽位数不能为空");
+        if (tickDuration < 1) {
+            throw new IllegalArgumentException("tick 间隔必须大于 0");
+        }
+        if (ticksPerWheel < 1 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("时间轮槽位数必须在 1 到 2^30 之间");
+        }
+
+        this.tickDuration = Math.max(TimeUnit.MILLISECONDS.toNanos(1L), unit.toNanos(tickDuration));
+        // 槽位数向上取整为 2 的幂，用位运算代替取模
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.wheel = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.incoming = new ConcurrentLinkedQueue<>();
+        this.startTime = System.nanoTime();
+        this.worker = new NamedThreadFactory(timerName + "-", Boolean.TRUE)
+                .newThread(this::loop);
+        this.worker.start();
+    }
+
+    /**
+     * 初始化一个 哈希时间轮，同时启动时间轮线程
+     *
+     * @param timerName     时间轮名称 非空
+     * @param tickDuration  tick 间隔 非空，最小 1 毫秒
+     * @param unit          tick 间隔单位 非空
+     * @param ticksPerWheel 时间轮槽位数 非空，向上取整为 2 的幂
+     * @return 哈希时间轮实例
+     */
+    public static HashedWheelTimer init(final String timerName, final Long tickDuration, final TimeUnit unit,
+                                        final Integer ticksPerWheel) {
+        return new HashedWheelTimer(timerName, tickDuration, unit, ticksPerWheel);
+    }
+
+    /**
+     * 全局共用的时间轮，tick 间隔 10 毫秒，一圈约 5 秒
+     *
+     * @return 哈希时间轮实例
+     */
+    public static HashedWheelTimer shared() {
+        return Holder.SHARED;
+    }
+
+    /**
+     * 提交延迟任务
+     * <p>
+     * 保证并发安全
+     *
+     * @param task  延迟任务 非空
+     * @param delay 延迟时间 非空
+     * @param unit  延迟时间单位 非空
+     * @return 延迟任务的句柄，可以用于取消任务
+     */
+    public Timeout newTimeout(final Runnable task, final Long delay, final TimeUnit unit) {
+        Objects.requireNonNull(task, "延迟任务不能为空");
+        Objects.requireNonNull(delay, "延迟时间不能为空");
+        Objects.requireNonNull(unit, "延迟时间单位不能为空");
+        if (closed) {
+            throw new IllegalStateException("时间轮已关闭");
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(0L, delay)) - startTime;
+        Timeout timeout = new Timeout(task, deadline);
+        incoming.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * 提交延迟任务，到期时时间轮线程只把任务交给 executor，不在时间轮线程中执行
+     * <p>
+     * 保证并发安全
+     *
+     * @param task     延迟任务 非空
+     * @param delay    延迟时间 非空
+     * @param unit     延迟时间单位 非空
+     * @param executor 执行任务的线程池 非空，由调用方负责关闭
+     * @return 延迟任务的句柄，可以用于取消任务
+     */
+    public Timeout newTimeout(final Runnable task, final Long delay, final TimeUnit unit, final Executor executor) {
+        Objects.requireNonNull(task, "延迟任务不能为空");
+        Objects.requireNonNull(executor, "执行线程池不能为空");
+        return this.newTimeout(() -> {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                log.warn("延迟任务被线程池拒绝：{}", e.getMessage());
+            }
+        }, delay, unit);
+    }
+
+    /**
+     * 全局共用的、执行到期任务的线程池，每个任务一个虚拟线程，不增加平台线程
+     * <p>
+     * 线程池没有上限，同时执行的任务数由调用方限制：每个调度器最多预约一次排空队列，客户端缓存最多预约一次空闲检查，
+     * 重试任务不超过失败的在途请求数（每个调度器最多 maxInFlight 个）；任务只负责转交请求、排空队列，不应长时间阻塞，
+     * 新的调用方需要自行保证同样的约束
+     *
+     * @return 线程池实例
+     */
+    public static Executor sharedExecutor() {
+        return Holder.SHARED_EXECUTOR;
+    }
+
+    private void loop() {
+        long tick = 0L;
+        while (!closed) {
+            long deadline = tickDuration * (tick + 1);
+            // 休眠到下一个 tick
+            long sleep;
+            while ((sleep = deadline - (System.nanoTime() - startTime)) > 0) {
+                LockSupport.parkNanos(this, sleep);
+                if (closed) {
+                    return;
+                }
+            }
+            this.transfer(tick);
+            this.expire(wheel[(int) (tick & mask)], deadline);
+            tick++;
+        }
+    }
+
+    /**
+     * 将新任务转移到对应的槽位
+     */
+    private void transfer(long tick) {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            Timeout timeout = incoming.poll();
+            if (Objects.isNull(timeout)) {
+                return;
+            }
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickDuration;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // 已经过期的任务放入当前槽位，在本次 tick 执行
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].addLast(timeout);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> bucket, long deadline) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.isCancelled()) {
+                iterator.remove();
+            } else if (timeout.remainingRounds <= 0) {
+                iterator.remove();
+                if (timeout.deadline <= deadline) {
+                    timeout.expire();
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    /**
+     * 关闭时间轮，未执行的任务不再执行
+     */
+    @Override
+    public void close() {
+        log.info("正在关闭时间轮");
+        closed = true;
+        LockSupport.unpark(worker);
+    }
+
+    private static class Holder {
+
+        private static final HashedWheelTimer SHARED = HashedWheelTimer.init("shared-wheel",
+                10L, TimeUnit.MILLISECONDS, 512);
+
+        private static final ExecutorService SHARED_EXECUTOR = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                .name("shared-wheel-task-", 0)
+                .factory());
+
+    }
+
+    /**
+     * 延迟任务的句柄
+     */
+    public static class Timeout {
+
+        private static final int PENDING = 0;
+
+        private static final int CANCELLED = 1;
+
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+
+        /**
+         * 相对时间轮启动时间的到期时间，单位：纳秒
+         */
+        private final long deadline;
+
+        private final AtomicInteger state;
+
+        /**
+         * 剩余的轮数，只由时间轮线程访问
+         */
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+            this.state = new AtomicInteger(PENDING);
+        }
+
+        /**
+         * 取消任务
+         * <p>
+         * 保证并发安全
+         *
+         * @return true：取消成功；false：任务已执行或已取消
+         */
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("时间轮任务执行异常: ", e);
+            }
+        }
+
+    }
+
+}
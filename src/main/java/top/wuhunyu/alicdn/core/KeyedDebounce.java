@@ -0,0 +1,210 @@
+package top.wuhunyu.alicdn.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 key 防抖的防抖器
+ * <p>
+ * 使用场景：
+ * <p>
+ * 在连续的指定时间段内，每个 key 只执行最后一次提交的任务，不同 key 之间互不影响
+ * <p>
+ * 所有防抖器共用 {@link HashedWheelTimer#shared()}，key 再多也只有一个线程；
+ * 同一个 key 的新任务通过 {@link ConcurrentHashMap} 原子替换旧任务，不加锁，
+ * 到期的任务只有在仍是该 key 的最新任务时才执行
+ * <p>
+ * 使用示例
+ * <p>
+ * {@link KeyedDebounce#init} 之后 调用 {@link KeyedDebounce#debounce} 实现防抖
+ *
+ * @param <K> key 类型
+ * @author gongzhiqiang
+ * @date 2026/10/18 17:40
+ */
+
+@Slf4j
+public class KeyedDebounce<K> implements Closeable {
+
+    private final String debounceName;
+
+    private final Long delay;
+
+    private final TimeUnit unit;
+
+    /**
+     * 每个 key 等待执行的任务
+     */
+    private final Map<K, Pending> pending;
+
+    /**
+     * 被同一个 key 的新任务替换的任务数
+     */
+    private final LongAdder replaced;
+
+    private volatile boolean closed;
+
+    private KeyedDebounce(final String debounceName, final Long delay, final TimeUnit unit) {
+        Objects.requireNonNull(debounceName, "防抖器名称不能为空");
+        Objects.requireNonNull(delay, "延迟时间不能为空");
+        Objects.requireNonNull(unit, "延迟时间单位不能为空");
+
+        this.debounceName = debounceName;
+        this.delay = delay;
+        this.unit = unit;
+        this.pending = new ConcurrentHashMap<>();
+        this.replaced = new LongAdder();
+    }
+
+    /**
+     * 初始化一个 按 key 防抖的防抖器
+     *
+     * @param debounceName 防抖器名称 非空
+     * @param delay        延迟时间 非空
+     * @param unit         延迟时间单位 非空
+     * @param <K>          key 类型
+     * @return 防抖器实例
+     */
+    public static <K> KeyedDebounce<K> init(final String debounceName, final Long delay, final TimeUnit unit) {
+        return new KeyedDebounce<>(debounceName, delay, unit);
+    }
+
+    /**
+     * 提交需要防抖的任务，替换该 key 尚未执行的任务
+     * <p>
+     * 保证并发安全
+     *
+     * @param key      防抖的 key 非空
+     * @param runnable 需要防抖的事件 非空
+     */
+    public void debounce(final K key, final Runnable runnable) {
+        Objects.requireNonNull(key, "防抖 key 不能为空");
+        Objects.requireNonNull(runnable, "防抖任务不能为空");
+        if (closed) {
+            throw new IllegalStateException("防抖器 " + debounceName + " 已关闭");
+        }
+
+        Pending cur = new Pending(runnable);
+        Pending pre = pending.put(key, cur);
+        if (Objects.nonNull(pre)) {
+            // 旧任务即使没能取消，到期时也会因为不再是最新任务而跳过
+            pre.cancel();
+            replaced.increment();
+        }
+        cur.timeout = HashedWheelTimer.shared().newTimeout(() -> this.fire(key, cur), delay, unit);
+    }
+
+    /**
+     * 取消 key 尚未执行的任务
+     * <p>
+     * 保证并发安全
+     *
+     * @param key 防抖的 key 非空
+     * @return true：取消成功；false：没有尚未执行的任务
+     */
+    public boolean cancel(final K key) {
+        Objects.requireNonNull(key, "防抖 key 不能为空");
+
+        Pending pre = pending.remove(key);
+        if (Objects.isNull(pre)) {
+            return false;
+        }
+        pre.cancel();
+        return true;
+    }
+
+    /**
+     * 尚未执行的 key 数量
+     *
+     * @return 尚未执行的 key 数量
+     */
+    public int pending() {
+        return pending.size();
+    }
+
+    /**
+     * 被同一个 key 的新任务替换的任务数
+     *
+     * @return 被替换的任务数
+     */
+    public long replaced() {
+        return replaced.sum();
+    }
+
+    /**
+     * 在当前线程立即执行所有尚未执行的任务
+     * <p>
+     * 保证并发安全，每个任务最多执行一次
+     *
+     * @return 执行的任务数
+     */
+    public int flush() {
+        int count = 0;
+        for (Map.Entry<K, Pending> entry : pending.entrySet()) {
+            Pending cur = entry.getValue();
+            if (pending.remove(entry.getKey(), cur)) {
+                cur.cancel();
+                this.run(cur.runnable);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void fire(K key, Pending cur) {
+        // 已经被新任务替换 或者 已经被 flush 执行
+        if (pending.remove(key, cur)) {
+            this.run(cur.runnable);
+        }
+    }
+
+    private void run(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (Exception e) {
+            log.error("防抖操作异常: ", e);
+        }
+    }
+
+    /**
+     * 关闭防抖器，立即执行所有尚未执行的任务
+     */
+    @Override
+    public void close() {
+        log.info("正在关闭防抖器 {}", debounceName);
+        closed = true;
+        int count = this.flush();
+        if (count > 0) {
+            log.info("防抖器 {} 关闭前执行了 {} 个尚未执行的任务", debounceName, count);
+        }
+    }
+
+    private static class Pending {
+
+        private final Runnable runnable;
+
+        /**
+         * 提交到时间轮之后才赋值
+         */
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        private Pending(Runnable runnable) {
+            this.runnable = runnable;
+        }
+
+        private void cancel() {
+            HashedWheelTimer.Timeout cur = timeout;
+            if (Objects.nonNull(cur)) {
+                cur.cancel();
+            }
+        }
+
+    }
+
+}
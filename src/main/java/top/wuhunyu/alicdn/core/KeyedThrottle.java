@@ -0,0 +1,244 @@
+package top.wuhunyu.alicdn.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 key 节流的节流器
+ * <p>
+ * 使用场景：
+ * <p>
+ * 限制每个 key（例如 域名、API 操作）各自的执行频率，不同 key 之间互不影响
+ * <p>
+ * 每个 key 一个 {@link TokenBucket}，通过 CAS 获取令牌，不加锁；获取到令牌的任务交给调用方提供的线程池执行，
+ * 获取不到令牌的任务按照 {@link Policy} 丢弃 或者 延迟到有令牌时执行
+ * <p>
+ * 已经装满且没有等待令牌的任务的令牌桶，会由时间轮上的定期检查移除，key 不会无限增长
+ * <p>
+ * 使用示例
+ * <p>
+ * {@link KeyedThrottle#init} 之后 调用 {@link KeyedThrottle#throttle} 实现节流
+ *
+ * @param <K> key 类型
+ * @author gongzhiqiang
+ * @date 2026/10/18 18:10
+ */
+
+@Slf4j
+public class KeyedThrottle<K> {
+
+    private final String throttleName;
+
+    private final double permitsPerSecond;
+
+    private final int burst;
+
+    private final Executor executor;
+
+    private final Policy policy;
+
+    private final Map<K, TokenBucket> buckets;
+
+    /**
+     * 每个 key 等待令牌的任务，同一个 key 只保留最后一次提交的任务
+     */
+    private final Map<K, Runnable> deferred;
+
+    private final LongAdder admitted;
+
+    private final LongAdder dropped;
+
+    private final LongAdder deferredCount;
+
+    /**
+     * 检查空闲令牌桶的间隔，单位：纳秒，不短于令牌桶从空到满的时间
+     */
+    private final long sweepInterval;
+
+    /**
+     * 是否已经预约了空闲令牌桶的检查
+     */
+    private final AtomicBoolean sweepScheduled;
+
+    private KeyedThrottle(final String throttleName, final Double permitsPerSecond, final Integer burst,
+                          final Executor executor, final Policy policy) {
+        Objects.requireNonNull(throttleName, "节流器名称不能为空");
+        Objects.requireNonNull(permitsPerSecond, "每秒执行次数不能为空");
+        Objects.requireNonNull(burst, "突发执行次数不能为空");
+        Objects.requireNonNull(executor, "执行线程池不能为空");
+        Objects.requireNonNull(policy, "超出限制时的处理策略不能为空");
+        // 提前校验参数
+        TokenBucket.init(permitsPerSecond, burst);
+
+        this.throttleName = throttleName;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.executor = executor;
+        this.policy = policy;
+        this.buckets = new ConcurrentHashMap<>();
+        this.deferred = new ConcurrentHashMap<>();
+        this.admitted = new LongAdder();
+        this.dropped = new LongAdder();
+        this.deferredCount = new LongAdder();
+        this.sweepInterval = Math.max(TimeUnit.SECONDS.toNanos(1L),
+                (long) (TimeUnit.SECONDS.toNanos(burst) / permitsPerSecond));
+        this.sweepScheduled = new AtomicBoolean(Boolean.FALSE);
+    }
+
+    /**
+     * 初始化一个 按 key 节流的节流器
+     *
+     * @param throttleName     节流器名称 非空
+     * @param permitsPerSecond 每个 key 每秒执行次数 非空，大于 0
+     * @param burst            每个 key 允许突发执行的次数 非空，大于 0
+     * @param executor         执行任务的线程池 非空，由调用方负责关闭
+     * @param policy           超出限制时的处理策略 非空
+     * @param <K>              key 类型
+     * @return 节流器实例
+     */
+    public static <K> KeyedThrottle<K> init(final String throttleName, final Double permitsPerSecond,
+                                            final Integer burst, final Executor executor,
+                                            final Policy policy) {
+        return new KeyedThrottle<>(throttleName, permitsPerSecond, burst, executor, policy);
+    }
+
+    /**
+     * 提交需要节流的任务
+     * <p>
+     * 保证并发安全
+     *
+     * @param key      节流的 key 非空
+     * @param runnable 需要节流的事件 非空
+     * @return true：立即执行；false：已丢弃 或者 延迟执行
+     */
+    public boolean throttle(final K key, final Runnable runnable) {
+        Objects.requireNonNull(key, "节流 key 不能为空");
+        Objects.requireNonNull(runnable, "节流任务不能为空");
+
+        TokenBucket tokenBucket = buckets.computeIfAbsent(key, k -> TokenBucket.init(permitsPerSecond, burst));
+        this.scheduleSweep();
+        long wait = tokenBucket.tryAcquire();
+        if (wait <= 0) {
+            this.execute(runnable);
+            return true;
+        }
+        if (policy == Policy.DROP) {
+            dropped.increment();
+            log.debug("节流器 {} 丢弃了 {} 的任务", throttleName, key);
+            return false;
+        }
+        // 已经有等待令牌的任务时，只替换任务，不重复预约
+        Runnable pre = deferred.put(key, runnable);
+        if (Objects.nonNull(pre)) {
+            dropped.increment();
+            return false;
+        }
+        deferredCount.increment();
+        HashedWheelTimer.shared().newTimeout(() -> {
+            Runnable cur = deferred.remove(key);
+            if (Objects.nonNull(cur)) {
+                this.throttle(key, cur);
+            }
+        }, wait, TimeUnit.NANOSECONDS);
+        return false;
+    }
+
+    private void scheduleSweep() {
+        if (!sweepScheduled.compareAndSet(Boolean.FALSE, Boolean.TRUE)) {
+            return;
+        }
+        HashedWheelTimer.shared()
+                .newTimeout(this::sweep, sweepInterval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 移除已经装满且没有等待令牌的任务的令牌桶，还有令牌桶时继续预约下一次检查
+     */
+    private void sweep() {
+        for (K key : buckets.keySet()) {
+            buckets.computeIfPresent(key, (k, cur) -> cur.isFull() && !deferred.containsKey(k) ? null : cur);
+        }
+        sweepScheduled.set(Boolean.FALSE);
+        if (!buckets.isEmpty()) {
+            this.scheduleSweep();
+        }
+    }
+
+    /**
+     * 当前的 key 数量
+     *
+     * @return key 数量
+     */
+    public int keys() {
+        return buckets.size();
+    }
+
+    private void execute(Runnable runnable) {
+        try {
+            executor.execute(() -> {
+                try {
+                    runnable.run();
+                } catch (Exception e) {
+                    log.error("节流操作异常: ", e);
+                }
+            });
+            admitted.increment();
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+            log.warn("节流器 {} 的线程池拒绝了任务：{}", throttleName, e.getMessage());
+        }
+    }
+
+    /**
+     * 立即执行的任务数
+     *
+     * @return 立即执行的任务数
+     */
+    public long admitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * 丢弃的任务数，包括 被同一个 key 新任务替换的延迟任务 以及 线程池拒绝的任务
+     *
+     * @return 丢弃的任务数
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * 延迟执行的次数
+     *
+     * @return 延迟执行的次数
+     */
+    public long deferred() {
+        return deferredCount.sum();
+    }
+
+    /**
+     * 超出限制时的处理策略
+     */
+    public enum Policy {
+
+        /**
+         * 直接丢弃
+         */
+        DROP,
+
+        /**
+         * 延迟到有令牌时执行，同一个 key 只保留最后一次提交的任务
+         */
+        DEFER
+
+    }
+
+}
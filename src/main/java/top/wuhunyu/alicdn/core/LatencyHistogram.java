@@ -0,0 +1,93 @@
+package top.wuhunyu.alicdn.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图
+ * <p>
+ * 使用场景：
+ * <p>
+ * 高频记录耗时，记录时不加锁、不分配对象
+ * <p>
+ * 桶的上界按 2 的幂增长：1ms、2ms、4ms ... 2^19ms（约 8.7 分钟），超出的耗时记入最后一个桶；
+ * 桶的下标通过前导零的数量直接计算，不需要查找
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 19:25
+ */
+
+public class LatencyHistogram {
+
+    /**
+     * 有上界的桶的数量
+     */
+    static final int BOUNDED_BUCKETS = 20;
+
+    private final AtomicLongArray counts;
+
+    /**
+     * 耗时总和，单位：纳秒
+     */
+    private final LongAdder sum;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BOUNDED_BUCKETS + 1);
+        this.sum = new LongAdder();
+    }
+
+    /**
+     * 记录一次耗时
+     * <p>
+     * 保证并发安全
+     *
+     * @param nanos 耗时，单位：纳秒，小于 0 时按 0 记录
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        counts.incrementAndGet(LatencyHistogram.bucket(value));
+        sum.add(value);
+    }
+
+    /**
+     * 耗时所在的桶：耗时 <= 2^i 毫秒 的最小 i
+     */
+    static int bucket(long nanos) {
+        long millis = (nanos + TimeUnit.MILLISECONDS.toNanos(1L) - 1) / TimeUnit.MILLISECONDS.toNanos(1L);
+        if (millis <= 1L) {
+            return 0;
+        }
+        return Math.min(BOUNDED_BUCKETS, Long.SIZE - Long.numberOfLeadingZeros(millis - 1));
+    }
+
+    /**
+     * 桶的上界
+     *
+     * @param index 桶的下标，小于 {@link #BOUNDED_BUCKETS}
+     * @return 上界，单位：秒
+     */
+    static double upperBound(int index) {
+        return (1L << index) / 1000D;
+    }
+
+    /**
+     * 桶内的次数
+     *
+     * @param index 桶的下标，{@link #BOUNDED_BUCKETS} 为超出所有上界的桶
+     * @return 次数
+     */
+    long count(int index) {
+        return counts.get(index);
+    }
+
+    /**
+     * 耗时总和
+     *
+     * @return 耗时总和，单位：纳秒
+     */
+    long sum() {
+        return sum.sum();
+    }
+
+}
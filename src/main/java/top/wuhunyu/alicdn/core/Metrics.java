@@ -0,0 +1,251 @@
+package top.wuhunyu.alicdn.core;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 指标
+ * <p>
+ * 记录 计数器、仪表 与 延迟直方图，并输出为 Prometheus 文本格式
+ * <p>
+ * 标签以 key、value 交替的方式传入，例如：{@code counter("alicdn_push_total", "...", "trigger", "cron")}
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 19:35
+ **/
+
+public enum Metrics {
+
+    INSTANCE;
+
+    private static final String COUNTER = "counter";
+
+    private static final String GAUGE = "gauge";
+
+    private static final String HISTOGRAM = "histogram";
+
+    /**
+     * 指标名称 -> 指标族，按名称排序输出
+     */
+    private final Map<String, Family> families;
+
+    Metrics() {
+        this.families = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * 获取计数器，不存在时创建
+     * <p>
+     * 保证并发安全
+     *
+     * @param name   指标名称 非空
+     * @param help   指标说明 非空
+     * @param labels 标签，key、value 交替
+     * @return 计数器
+     */
+    public LongAdder counter(final String name, final String help, final String... labels) {
+        return (LongAdder) this.family(name, help, COUNTER)
+                .series
+                .computeIfAbsent(Metrics.labels(labels), key -> new LongAdder());
+    }
+
+    /**
+     * 注册由其他组件累计的计数器，输出时读取最新的值
+     *
+     * @param name   指标名称 非空
+     * @param help   指标说明 非空
+     * @param value  计数器的值 非空
+     * @param labels 标签，key、value 交替
+     */
+    public void counter(final String name, final String help, final LongSupplier value, final String... labels) {
+        Objects.requireNonNull(value, "计数器的值不能为空");
+        this.family(name, help, COUNTER)
+                .series
+                .put(Metrics.labels(labels), value);
+    }
+
+    /**
+     * 注册仪表，输出时读取最新的值
+     *
+     * @param name   指标名称 非空
+     * @param help   指标说明 非空
+     * @param value  仪表的值 非空
+     * @param labels 标签，key、value 交替
+     */
+    public void gauge(final String name, final String help, final LongSupplier value, final String... labels) {
+        Objects.requireNonNull(value, "仪表的值不能为空");
+        this.family(name, help, GAUGE)
+                .series
+                .put(Metrics.labels(labels), value);
+    }
+
+    /**
+     * 获取延迟直方图，不存在时创建
+     * <p>
+     * 保证并发安全
+     *
+     * @param name   指标名称 非空，单位为秒
+     * @param help   指标说明 非空
+     * @param labels 标签，key、value 交替
+     * @return 延迟直方图
+     */
+    public LatencyHistogram histogram(final String name, final String help, final String... labels) {
+        return (LatencyHistogram) this.family(name, help, HISTOGRAM)
+                .series
+                .computeIfAbsent(Metrics.labels(labels), key -> new LatencyHistogram());
+    }
+
+    /**
+     * 注册 按 key 防抖的防抖器 的指标
+     *
+     * @param name          防抖器名称 非空
+     * @param keyedDebounce 防抖器 非空
+     */
+    public void register(final String name, final KeyedDebounce<?> keyedDebounce) {
+        Objects.requireNonNull(keyedDebounce, "防抖器不能为空");
+        this.counter("alicdn_debounce_dropped_total", "被同一个 key 的新任务替换的防抖任务数",
+                keyedDebounce::replaced, "name", name);
+        this.gauge("alicdn_debounce_pending", "尚未执行的防抖任务数",
+                keyedDebounce::pending, "name", name);
+    }
+
+    /**
+     * 注册 按 key 节流的节流器 的指标
+     *
+     * @param name          节流器名称 非空
+     * @param keyedThrottle 节流器 非空
+     */
+    public void register(final String name, final KeyedThrottle<?> keyedThrottle) {
+        Objects.requireNonNull(keyedThrottle, "节流器不能为空");
+        this.counter("alicdn_throttle_admitted_total", "节流器立即执行的任务数",
+                keyedThrottle::admitted, "name", name);
+        this.counter("alicdn_throttle_dropped_total", "节流器丢弃的任务数",
+                keyedThrottle::dropped, "name", name);
+        this.counter("alicdn_throttle_deferred_total", "节流器延迟执行的次数",
+                keyedThrottle::deferred, "name", name);
+        this.gauge("alicdn_throttle_keys", "节流器当前的 key 数量",
+                keyedThrottle::keys, "name", name);
+    }
+
+    /**
+     * 输出为 Prometheus 文本格式
+     *
+     * @return Prometheus 文本格式的指标
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        families.forEach((name, family) -> {
+            sb.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            family.series.forEach((labels, value) -> {
+                if (value instanceof LatencyHistogram histogram) {
+                    Metrics.appendHistogram(sb, name, labels, histogram);
+                } else {
+                    long cur = value instanceof LongAdder adder ?
+                            adder.sum() :
+                            ((LongSupplier) value).getAsLong();
+                    Metrics.appendSample(sb, name, labels, null, Long.toString(cur));
+                }
+            });
+        });
+        return sb.toString();
+    }
+
+    private Family family(String name, String help, String type) {
+        Objects.requireNonNull(name, "指标名称不能为空");
+        Objects.requireNonNull(help, "指标说明不能为空");
+        Family family = families.computeIfAbsent(name, key -> new Family(type, help));
+        if (!Objects.equals(family.type, type)) {
+            throw new IllegalArgumentException("指标 " + name + " 已注册为 " + family.type);
+        }
+        return family;
+    }
+
+    private static void appendHistogram(StringBuilder sb, String name, String labels, LatencyHistogram histogram) {
+        long cumulative = 0L;
+        for (int i = 0; i < LatencyHistogram.BOUNDED_BUCKETS; i++) {
+            cumulative += histogram.count(i);
+            Metrics.appendSample(sb, name + "_bucket", labels,
+                    "le=\"" + LatencyHistogram.upperBound(i) + "\"", Long.toString(cumulative));
+        }
+        cumulative += histogram.count(LatencyHistogram.BOUNDED_BUCKETS);
+        Metrics.appendSample(sb, name + "_bucket", labels, "le=\"+Inf\"", Long.toString(cumulative));
+        Metrics.appendSample(sb, name + "_sum", labels, null,
+                Double.toString((double) histogram.sum() / TimeUnit.SECONDS.toNanos(1L)));
+        Metrics.appendSample(sb, name + "_count", labels, null, Long.toString(cumulative));
+    }
+
+    private static void appendSample(StringBuilder sb, String name, String labels, String extra, String value) {
+        sb.append(name);
+        if (!labels.isEmpty() || Objects.nonNull(extra)) {
+            sb.append('{').append(labels);
+            if (Objects.nonNull(extra)) {
+                if (!labels.isEmpty()) {
+                    sb.append(',');
+                }
+                sb.append(extra);
+            }
+            sb.append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * 将标签拼接为 key1="value1",key2="value2"
+     */
+    private static String labels(String... labels) {
+        if (Objects.isNull(labels) || labels.length == 0) {
+            return "";
+        }
+        if ((labels.length & 1) != 0) {
+            throw new IllegalArgumentException("标签必须是 key、value 交替的");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"");
+            String value = Objects.toString(labels[i + 1], "");
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> sb.append("\\\\");
+                    case '"' -> sb.append("\\\"");
+                    case '\n' -> sb.append("\\n");
+                    default -> sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 同名的指标
+     */
+    private static class Family {
+
+        private final String type;
+
+        private final String help;
+
+        /**
+         * 标签 -> 计数器 / 仪表 / 延迟直方图
+         */
+        private final SortedMap<String, Object> series;
+
+        private Family(String type, String help) {
+            this.type = type;
+            this.help = help;
+            this.series = new ConcurrentSkipListMap<>();
+        }
+
+    }
+
+}
@@ -3,44 +3,321 @@ package top.wuhunyu.alicdn.core;
 import com.aliyun.auth.credentials.Credential;
 import com.aliyun.auth.credentials.provider.ICredentialProvider;
 import com.aliyun.auth.credentials.provider.StaticCredentialProvider;
+import com.aliyun.core.http.HttpClient;
+import com.aliyun.httpcomponent.httpclient.ApacheAsyncHttpClientBuilder;
 import com.aliyun.sdk.service.cdn20180510.AsyncClient;
 import com.aliyun.sdk.service.cdn20180510.DefaultAsyncClientBuilder;
+import darabonba.core.client.ClientOverrideConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import top.wuhunyu.alicdn.model.AliAccount;
 import top.wuhunyu.alicdn.properties.AliCdnProperties;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
 /**
  * 自定义阿里云客户端
+ * <p>
+ * 按 阿里云账号 + 地域 懒加载客户端，一个进程可以同时管理多个账号的域名；
+ * 每个客户端有独立的连接池、超时时间与调度器（自适应并发数、每秒请求数、熔断器），一个账号被限流或熔断不影响其他账号
+ * <p>
+ * 空闲超过 clientIdleTimeout 的客户端会被关闭，下次使用时重新创建；
+ * 配置了 endpoint 时，全部客户端都访问该地址，用于对接本地的模拟服务
  *
  * @author gongzhiqiang
  * @date 2024/06/23 13:29
  **/
 
+@Slf4j
 public enum MyAliClient {
 
     INSTANCE;
 
-    private final AsyncClient aliClient;
+    private static final String HTTP_SCHEME = "http://";
+
+    private static final String HTTPS_SCHEME = "https://";
+
+    /**
+     * 阿里云账号 + 地域 -> 客户端
+     */
+    private final Map<AliAccount, PooledClient> clients;
+
+    /**
+     * 是否已经预约了空闲客户端的检查
+     */
+    private final AtomicBoolean sweepScheduled;
 
     MyAliClient() {
-        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
-        // 阿里云访问key
-        String accessKeyId = aliCdnProperties.getAccessKeyId();
-        // 阿里云访问密钥
-        String accessKeySecret = aliCdnProperties.getAccessKeySecret();
+        this.clients = new ConcurrentHashMap<>();
+        this.sweepScheduled = new AtomicBoolean(Boolean.FALSE);
+        Metrics.INSTANCE.gauge("alicdn_clients", "已创建的阿里云客户端数", clients::size);
+        Metrics.INSTANCE.gauge("alicdn_client_concurrency_limit", "全部阿里云客户端当前允许的并发数之和",
+                () -> clients.values()
+                        .stream()
+                        .map(PooledClient::dispatcher)
+                        .filter(Objects::nonNull)
+                        .mapToInt(Dispatcher::limit)
+                        .sum());
+        Metrics.INSTANCE.gauge("alicdn_client_circuit_open", "熔断中的阿里云客户端数",
+                () -> clients.values()
+                        .stream()
+                        .map(PooledClient::dispatcher)
+                        .filter(Objects::nonNull)
+                        .filter(dispatcher -> dispatcher.state() != CircuitBreaker.State.CLOSED)
+                        .count());
+    }
+
+    /**
+     * 使用账号对应的客户端提交异步请求，由该客户端的调度器控制并发数、每秒请求数与熔断
+     * <p>
+     * 保证并发安全
+     *
+     * @param account    阿里云账号与地域 非空
+     * @param request    异步请求 非空
+     * @param overloaded 判断 响应 或 异常 是否表示被限流、服务端异常 非空
+     * @param <T>        响应类型
+     * @return 请求完成时完成的 future；熔断恢复之前就会超过排队时间时以 {@link CircuitBreaker.OpenException} 失败
+     */
+    public <T> CompletableFuture<T> submit(final AliAccount account,
+                                           final Function<AsyncClient, CompletableFuture<T>> request,
+                                           final BiPredicate<T, Throwable> overloaded) {
+        Objects.requireNonNull(account, "阿里云账号不能为空");
+        Objects.requireNonNull(request, "异步请求不能为空");
+        Objects.requireNonNull(overloaded, "限流判断条件不能为空");
+
+        // 在 compute 中占用客户端，保证不会与空闲检查同时发生；compute 中只创建空的占位，
+        // 连接池与客户端在锁外创建，不阻塞同一个桶中其他账号的请求
+        PooledClient pooled = clients.compute(account, (key, cur) -> {
+            if (Objects.isNull(cur)) {
+                cur = new PooledClient(key);
+            }
+            cur.inUse.incrementAndGet();
+            return cur;
+        });
+        this.scheduleSweep();
+        Resources resources;
+        try {
+            resources = pooled.resources();
+        } catch (RuntimeException e) {
+            pooled.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        return resources.dispatcher()
+                .submit(() -> request.apply(resources.client()), overloaded)
+                .whenComplete((response, e) -> pooled.release());
+    }
+
+    /**
+     * 全部客户端正在执行的请求数
+     *
+     * @return 正在执行的请求数
+     */
+    public int inFlight() {
+        return clients.values()
+                .stream()
+                .map(PooledClient::dispatcher)
+                .filter(Objects::nonNull)
+                .mapToInt(Dispatcher::inFlight)
+                .sum();
+    }
+
+    /**
+     * 全部客户端排队中的请求数
+     *
+     * @return 排队中的请求数
+     */
+    public int queued() {
+        return clients.values()
+                .stream()
+                .map(PooledClient::dispatcher)
+                .filter(Objects::nonNull)
+                .mapToInt(Dispatcher::queued)
+                .sum();
+    }
+
+    private void scheduleSweep() {
+        if (!sweepScheduled.compareAndSet(Boolean.FALSE, Boolean.TRUE)) {
+            return;
+        }
+        long idleTimeout = AliCdnProperties.getInstance()
+                .getClientIdleTimeout();
+        // 关闭客户端可能阻塞，不在时间轮线程中执行
+        HashedWheelTimer.shared()
+                .newTimeout(this::sweep, Math.max(1L, idleTimeout >> 1), TimeUnit.MILLISECONDS,
+                        HashedWheelTimer.sharedExecutor());
+    }
 
-        // 创建一个阿里云客户端
-        Credential credential = Credential.builder()
-                .accessKeyId(accessKeyId)
-                .accessKeySecret(accessKeySecret)
-                .build();
-        try (ICredentialProvider credentialProvider = StaticCredentialProvider.create(credential)) {
-            DefaultAsyncClientBuilder defaultAsyncClientBuilder = new DefaultAsyncClientBuilder();
-            defaultAsyncClientBuilder.credentialsProvider(credentialProvider);
-            aliClient = defaultAsyncClientBuilder.build();
+    /**
+     * 关闭空闲的客户端，还有客户端时继续预约下一次检查
+     */
+    private void sweep() {
+        long idleTimeout = TimeUnit.MILLISECONDS.toNanos(AliCdnProperties.getInstance()
+                .getClientIdleTimeout());
+        long now = System.nanoTime();
+        List<PooledClient> evicted = new ArrayList<>();
+        for (AliAccount account : clients.keySet()) {
+            clients.computeIfPresent(account, (key, cur) -> {
+                if (cur.inUse.get() > 0 || now - cur.lastUsed < idleTimeout) {
+                    return cur;
+                }
+                evicted.add(cur);
+                return null;
+            });
+        }
+        evicted.forEach(PooledClient::close);
+        sweepScheduled.set(Boolean.FALSE);
+        if (!clients.isEmpty()) {
+            this.scheduleSweep();
         }
     }
 
+    /**
+     * 一个账号与地域的客户端
+     * <p>
+     * 创建时只是占位，第一次使用时在 {@link ConcurrentHashMap#compute} 之外创建连接池、客户端与调度器
+     */
+    private static final class PooledClient {
+
+        private final AliAccount account;
+
+        /**
+         * 正在使用该客户端的请求数，大于 0 时不会被关闭
+         */
+        private final AtomicInteger inUse;
+
+        private volatile long lastUsed;
+
+        /**
+         * 第一次使用时创建，持有 this 锁时赋值
+         */
+        private volatile Resources resources;
+
+        private PooledClient(AliAccount account) {
+            this.account = account;
+            this.inUse = new AtomicInteger();
+            this.lastUsed = System.nanoTime();
+        }
+
+        Resources resources() {
+            Resources cur = resources;
+            if (Objects.nonNull(cur)) {
+                return cur;
+            }
+            synchronized (this) {
+                if (Objects.isNull(resources)) {
+                    resources = PooledClient.create(account);
+                }
+                return resources;
+            }
+        }
+
+        /**
+         * 尚未创建时为空
+         */
+        Dispatcher dispatcher() {
+            Resources cur = resources;
+            return Objects.isNull(cur) ? null : cur.dispatcher();
+        }
+
+        static Resources create(AliAccount account) {
+            AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+            // 每个客户端独立的连接池
+            HttpClient httpClient = new ApacheAsyncHttpClientBuilder()
+                    .connectionTimeout(Duration.ofMillis(aliCdnProperties.getClientConnectTimeout()))
+                    .responseTimeout(Duration.ofMillis(aliCdnProperties.getClientResponseTimeout()))
+                    .maxConnections(aliCdnProperties.getClientMaxConnections())
+                    .build();
+
+            // 创建一个阿里云客户端
+            Credential credential = Credential.builder()
+                    .accessKeyId(account.getAccessKeyId())
+                    .accessKeySecret(account.getAccessKeySecret())
+                    .build();
+            AsyncClient client;
+            try (ICredentialProvider credentialProvider = StaticCredentialProvider.create(credential)) {
+                DefaultAsyncClientBuilder defaultAsyncClientBuilder = new DefaultAsyncClientBuilder();
+                defaultAsyncClientBuilder.credentialsProvider(credentialProvider);
+                defaultAsyncClientBuilder.httpClient(httpClient);
+                if (StringUtils.isNotBlank(account.getRegion())) {
+                    defaultAsyncClientBuilder.region(account.getRegion());
+                }
+                if (StringUtils.isNotBlank(aliCdnProperties.getEndpoint())) {
+                    defaultAsyncClientBuilder.overrideConfiguration(
+                            PooledClient.endpointOverride(aliCdnProperties.getEndpoint()));
+                }
+                client = defaultAsyncClientBuilder.build();
+            }
+
+            String name = "ali-client-" + account.label();
+            AdaptiveLimiter limiter = AdaptiveLimiter.init(name, aliCdnProperties.getMaxInFlight(),
+                    aliCdnProperties.getAdaptiveConcurrency());
+            CircuitBreaker breaker = CircuitBreaker.init(name, aliCdnProperties.getCircuitFailureThreshold(),
+                    aliCdnProperties.getCircuitOpenTimeout(), TimeUnit.MILLISECONDS);
+            // 低内存模式下全部账号的调度器共用一个时间轮线程
+            Dispatcher dispatcher = aliCdnProperties.getLeanMode() ?
+                    Dispatcher.init(name, limiter, breaker, aliCdnProperties.getQps(),
+                            aliCdnProperties.getCircuitQueueTimeout(), TimeUnit.MILLISECONDS, HashedWheelTimer.shared()) :
+                    Dispatcher.init(name, limiter, breaker, aliCdnProperties.getQps(),
+                            aliCdnProperties.getCircuitQueueTimeout(), TimeUnit.MILLISECONDS);
+            log.info("创建阿里云客户端：{}", account.label());
+            return new Resources(httpClient, client, dispatcher);
+        }
+
+        /**
+         * 覆盖 SDK 默认的地址，地址不带协议时使用 https
+         */
+        static ClientOverrideConfiguration endpointOverride(String endpoint) {
+            ClientOverrideConfiguration configuration = ClientOverrideConfiguration.create();
+            if (endpoint.startsWith(HTTP_SCHEME)) {
+                return configuration.setProtocol("HTTP")
+                        .setEndpointOverride(endpoint.substring(HTTP_SCHEME.length()));
+            }
+            return configuration.setProtocol("HTTPS")
+                    .setEndpointOverride(StringUtils.removeStart(endpoint, HTTPS_SCHEME));
+        }
+
+        void release() {
+            lastUsed = System.nanoTime();
+            inUse.decrementAndGet();
+        }
+
+        void close() {
+            // 被移除之前没有请求使用过，或者创建失败
+            Resources cur = resources;
+            if (Objects.isNull(cur)) {
+                return;
+            }
+            log.info("阿里云客户端 {} 空闲，正在关闭", account.label());
+            cur.dispatcher().close();
+            try {
+                cur.client().close();
+                cur.httpClient().close();
+            } catch (Exception e) {
+                log.warn("关闭阿里云客户端 {} 失败：", account.label(), e);
+            }
+        }
 
-    public AsyncClient getAliClient() {
-        return aliClient;
     }
+
+    /**
+     * 一个账号与地域的连接池、客户端与调度器
+     *
+     * @param httpClient 连接池
+     * @param client     阿里云客户端
+     * @param dispatcher 调度器
+     */
+    private record Resources(HttpClient httpClient, AsyncClient client, Dispatcher dispatcher) {
+    }
+
 }
@@ -0,0 +1,385 @@
+package top.wuhunyu.alicdn.core;
+
+import lombok.extern.slf4j.Slf4j;
+import top.wuhunyu.alicdn.model.PushResult;
+import top.wuhunyu.alicdn.properties.AliCdnProperties;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static top.wuhunyu.alicdn.constants.CommonConstants.JOURNAL_FILE_NAME;
+
+/**
+ * 证书更新日志
+ * <p>
+ * 使用场景：
+ * <p>
+ * 只追加的日志文件，记录每个域名每次更新的 尝试 与 结果（状态、请求id、证书指纹）；
+ * 重启时回放日志，得到每个域名 CDN 上已经生效的证书指纹，只更新证书发生变化的域名
+ * <p>
+ * 实现：
+ * <p>
+ * 1. 调用方只把记录放入队列，由单独的线程批量写入，每批只 fsync 一次；进程异常退出时最多丢失最后一批记录，
+ * 对应的域名在重启后会重新更新；正常退出时通知写入线程写完已经取出的记录后再退出
+ * <p>
+ * 2. 记录数超过 当前域名数的 {@link #COMPACT_RATIO} 倍 时压缩日志：每个域名只保留 已生效的记录 与 最近一次的记录，
+ * 已经不在配置中的域名不再保留，先写临时文件，再原子替换
+ * <p>
+ * 记录格式为一行：时间戳 类型 域名 证书指纹 请求id，以制表符分隔，类型为 ATTEMPT 或者 {@link PushResult.PushStatus}
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 21:50
+ **/
+
+@Slf4j
+public enum PushJournal {
+
+    INSTANCE;
+
+    private static final String ATTEMPT = "ATTEMPT";
+
+    private static final String SEPARATOR = "\t";
+
+    private static final String EMPTY = "-";
+
+    /**
+     * 压缩后的记录数不超过该值时不压缩
+     */
+    private static final int COMPACT_MIN_RECORDS = 4096;
+
+    private static final int COMPACT_RATIO = 4;
+
+    /**
+     * 程序退出时等待写入线程的最长时间，单位：毫秒
+     */
+    private static final long FLUSH_TIMEOUT_MILLIS = 5000L;
+
+    /**
+     * 通知写入线程写完当前批次后退出
+     */
+    private static final Entry STOP = new Entry(0L, "STOP", EMPTY, EMPTY, null);
+
+    private final Path journalPath;
+
+    private final BlockingQueue<Entry> queue;
+
+    /**
+     * 域名 -> CDN 上已经生效的记录，持有锁时修改
+     */
+    private final Map<String, Entry> synced;
+
+    /**
+     * 域名 -> 最近一次的记录，持有锁时修改
+     */
+    private final Map<String, Entry> latest;
+
+    /**
+     * 日志文件中的记录数
+     */
+    private long records;
+
+    private FileChannel channel;
+
+    /**
+     * 写入线程，打开日志之后赋值
+     */
+    private volatile Thread writer;
+
+    /**
+     * 日志文件是否已经回放
+     */
+    private volatile boolean opened;
+
+    PushJournal() {
+        this.journalPath = Paths.get(AliCdnProperties.getInstance().getStatePath(), JOURNAL_FILE_NAME);
+        this.queue = new LinkedBlockingQueue<>();
+        this.synced = new HashMap<>();
+        this.latest = new HashMap<>();
+    }
+
+    /**
+     * 回放日志，返回每个域名 CDN 上已经生效的证书指纹，并启动写入线程
+     * <p>
+     * 只有第一次调用会读取日志文件
+     *
+     * @param seeds 日志文件不存在时使用的初始指纹（旧版本的状态文件），可以为空
+     * @return 域名 -> 已经生效的证书指纹
+     */
+    public synchronized Map<String, String> replay(final Map<String, String> seeds) {
+        if (!opened) {
+            this.open(seeds);
+        }
+        Map<String, String> ans = new HashMap<>();
+        synced.forEach((domain, entry) -> ans.put(domain, entry.fingerprint()));
+        return ans;
+    }
+
+    /**
+     * 记录一次更新的尝试，请求发出前调用
+     *
+     * @param domain      域名 非空
+     * @param fingerprint 证书指纹 非空
+     */
+    public void attempt(final String domain, final String fingerprint) {
+        Objects.requireNonNull(domain, "域名不能为空");
+        Objects.requireNonNull(fingerprint, "证书指纹不能为空");
+        this.append(new Entry(System.currentTimeMillis(), ATTEMPT, domain, fingerprint, null));
+    }
+
+    /**
+     * 记录一次更新的结果
+     *
+     * @param domain      域名 非空
+     * @param fingerprint 证书指纹 非空
+     * @param result      更新结果 非空
+     */
+    public void outcome(final String domain, final String fingerprint, final PushResult result) {
+        Objects.requireNonNull(domain, "域名不能为空");
+        Objects.requireNonNull(fingerprint, "证书指纹不能为空");
+        Objects.requireNonNull(result, "更新结果不能为空");
+        this.append(new Entry(System.currentTimeMillis(), result.getStatus().name(), domain, fingerprint,
+                result.getRequestId()));
+    }
+
+    private void append(Entry entry) {
+        if (!opened) {
+            // 由指纹存储打开日志，日志不存在时先导入旧版本的指纹文件
+            CertFingerprintStore.INSTANCE.ensureLoaded();
+        }
+        queue.offer(entry);
+    }
+
+    private void open(Map<String, String> seeds) {
+        boolean rewrite = false;
+        if (Files.isRegularFile(journalPath)) {
+            // 存在不完整的记录时重写日志文件，避免之后的记录追加到不完整的行上
+            rewrite = this.load() > 0;
+        } else if (Objects.nonNull(seeds) && !seeds.isEmpty()) {
+            long now = System.currentTimeMillis();
+            seeds.forEach((domain, fingerprint) -> {
+                Entry entry = new Entry(now, PushResult.PushStatus.SUCCESS.name(), domain, fingerprint, null);
+                synced.put(domain, entry);
+                latest.put(domain, entry);
+            });
+            log.info("日志文件 {} 不存在，从旧的状态文件导入 {} 条记录", journalPath, seeds.size());
+            rewrite = true;
+        }
+        try {
+            Files.createDirectories(journalPath.getParent());
+            if (rewrite || this.shouldCompact()) {
+                this.compact();
+            } else {
+                channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            log.warn("打开日志文件 {} 失败，本次运行的更新记录不会持久化：", journalPath, e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "push-journal-shutdown"));
+        // 低内存模式下使用虚拟线程，等待记录期间不占用平台线程
+        Thread.Builder builder = AliCdnProperties.getInstance().getLeanMode() ?
+                Thread.ofVirtual() :
+                Thread.ofPlatform().daemon(Boolean.TRUE);
+        writer = builder.name("push-journal")
+                .start(this::loop);
+        opened = true;
+    }
+
+    /**
+     * 回放日志文件
+     *
+     * @return 不完整的记录数
+     */
+    private int load() {
+        int broken = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while (Objects.nonNull(line = reader.readLine())) {
+                Entry entry = Entry.parse(line);
+                // 进程异常退出时，最后一行可能不完整
+                if (Objects.isNull(entry)) {
+                    broken++;
+                    continue;
+                }
+                this.apply(entry);
+            }
+        } catch (IOException e) {
+            log.warn("读取日志文件 {} 失败，将重新更新全部证书：", journalPath, e);
+            synced.clear();
+            latest.clear();
+            records = 0L;
+            return 0;
+        }
+        log.info("回放日志文件 {} 完成，共 {} 条记录，{} 个域名，忽略 {} 条不完整的记录",
+                journalPath, records, latest.size(), broken);
+        return broken;
+    }
+
+    private void apply(Entry entry) {
+        records++;
+        latest.put(entry.domain(), entry);
+        if (entry.isSynced()) {
+            synced.put(entry.domain(), entry);
+        }
+    }
+
+    private void loop() {
+        List<Entry> batch = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // 写入期间到达的记录在下一批写入，请求越多，每批越大
+            queue.drainTo(batch);
+            boolean stop = batch.removeIf(entry -> entry == STOP);
+            this.write(batch);
+            batch.clear();
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 程序退出时调用：等待写入线程写完已经取出的记录，再写入队列中剩余的记录
+     */
+    private void flush() {
+        Thread cur = writer;
+        if (Objects.nonNull(cur)) {
+            queue.offer(STOP);
+            try {
+                cur.join(FLUSH_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Entry> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        batch.removeIf(entry -> entry == STOP);
+        this.write(batch);
+    }
+
+    private synchronized void write(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        batch.forEach(this::apply);
+        if (Objects.isNull(channel)) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(batch.size() << 7);
+        batch.forEach(entry -> sb.append(entry.format()).append('\n'));
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            if (this.shouldCompact()) {
+                this.compact();
+            }
+        } catch (IOException e) {
+            log.warn("写入日志文件 {} 失败：", journalPath, e);
+        }
+    }
+
+    private boolean shouldCompact() {
+        return records > Math.max(COMPACT_MIN_RECORDS, (long) latest.size() * COMPACT_RATIO);
+    }
+
+    /**
+     * 每个域名只保留 已生效的记录 与 最近一次的记录，移除已经不在配置中的域名
+     */
+    private void compact() throws IOException {
+        Set<String> configured = new HashSet<>(AliCdnProperties.getInstance().getDomains());
+        latest.keySet().retainAll(configured);
+        synced.keySet().retainAll(configured);
+        Path tmpPath = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        long count = 0L;
+        try (FileChannel tmp = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, Entry> cur : latest.entrySet()) {
+                Entry syncedEntry = synced.get(cur.getKey());
+                if (Objects.nonNull(syncedEntry) && syncedEntry != cur.getValue()) {
+                    sb.append(syncedEntry.format()).append('\n');
+                    count++;
+                }
+                sb.append(cur.getValue().format()).append('\n');
+                count++;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                tmp.write(buffer);
+            }
+            tmp.force(false);
+        }
+        if (Objects.nonNull(channel)) {
+            channel.close();
+        }
+        Files.move(tmpPath, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        log.info("压缩日志文件 {} 完成，{} 条记录压缩为 {} 条", journalPath, records, count);
+        records = count;
+    }
+
+    /**
+     * 一条记录
+     *
+     * @param time        时间戳，单位：毫秒
+     * @param type        类型：ATTEMPT 或者 更新状态
+     * @param domain      域名
+     * @param fingerprint 证书指纹
+     * @param requestId   请求id，没有时为空
+     */
+    private record Entry(long time, String type, String domain, String fingerprint, String requestId) {
+
+        /**
+         * CDN 上的证书与指纹一致：更新成功，或者预检查时发现 CDN 已经在使用该证书
+         */
+        boolean isSynced() {
+            return Objects.equals(type, PushResult.PushStatus.SUCCESS.name()) ||
+                    Objects.equals(type, PushResult.PushStatus.SKIPPED.name());
+        }
+
+        String format() {
+            return time + SEPARATOR + type + SEPARATOR + domain + SEPARATOR + fingerprint + SEPARATOR +
+                    Objects.toString(requestId, EMPTY);
+        }
+
+        static Entry parse(String line) {
+            String[] split = line.split(SEPARATOR, -1);
+            if (split.length != 5) {
+                return null;
+            }
+            try {
+                return new Entry(Long.parseLong(split[0]), split[1], split[2], split[3],
+                        Objects.equals(split[4], EMPTY) ? null : split[4]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,248 @@
+package top.wuhunyu.alicdn.core;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * 重试调度器
+ * <p>
+ * 使用场景：
+ * <p>
+ * 异步请求失败后，按照指数退避 + 随机抖动的延迟重新发起请求，等待期间不占用线程
+ * <p>
+ * 默认由重试调度器自己的线程重新发起请求；指定 {@link HashedWheelTimer} 时由时间轮计时，
+ * 到期后交给 {@link HashedWheelTimer#sharedExecutor()} 的虚拟线程发起，不占用时间轮线程
+ * <p>
+ * 取消返回的 future 时，同时取消正在执行的请求，等待中的重试不再发起
+ * <p>
+ * 使用示例
+ * <p>
+ * {@link RetryScheduler#init} 之后 调用 {@link RetryScheduler#execute} 执行可重试的异步请求
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 14:40
+ */
+
+@Slf4j
+public class RetryScheduler implements Closeable {
+
+    private final int maxRetries;
+
+    private final long baseDelay;
+
+    private final long maxDelay;
+
+    /**
+     * 累计的重试次数
+     */
+    private final AtomicLong retries;
+
+    /**
+     * 自行创建的线程池，指定时间轮时为空
+     */
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    /**
+     * 调用方提供的时间轮，未指定时为空
+     */
+    private final HashedWheelTimer timer;
+
+    private volatile boolean closed;
+
+    private RetryScheduler(final String retryName, final Integer maxRetries,
+                           final Long baseDelay, final Long maxDelay, final TimeUnit unit,
+                           final HashedWheelTimer timer) {
+        Objects.requireNonNull(retryName, "重试调度器名称不能为空");
+        Objects.requireNonNull(maxRetries, "最大重试次数不能为空");
+        Objects.requireNonNull(baseDelay, "重试基础延迟时间不能为空");
+        Objects.requireNonNull(maxDelay, "重试最大延迟时间不能为空");
+        Objects.requireNonNull(unit, "延迟时间单位不能为空");
+
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseDelay = Math.max(1L, unit.toMillis(baseDelay));
+        this.maxDelay = Math.max(this.baseDelay, unit.toMillis(maxDelay));
+        this.retries = new AtomicLong();
+        this.timer = timer;
+        this.scheduledExecutorService = Objects.nonNull(timer) ?
+                null :
+                new ScheduledThreadPoolExecutor(1, new NamedThreadFactory(retryName + "-", Boolean.TRUE));
+    }
+
+    /**
+     * 初始化一个 重试调度器
+     *
+     * @param retryName  重试调度器名称 非空
+     * @param maxRetries 最大重试次数 非空，小于等于 0 时不重试
+     * @param baseDelay  重试基础延迟时间 非空
+     * @param maxDelay   重试最大延迟时间 非空
+     * @param unit       延迟时间单位 非空
+     * @return 重试调度器实例
+     */
+    public static RetryScheduler init(final String retryName, final Integer maxRetries,
+                                      final Long baseDelay, final Long maxDelay, final TimeUnit unit) {
+        return new RetryScheduler(retryName, maxRetries, baseDelay, maxDelay, unit, null);
+    }
+
+    /**
+     * 初始化一个 由时间轮计时的重试调度器
+     *
+     * @param retryName  重试调度器名称 非空
+     * @param maxRetries 最大重试次数 非空，小于等于 0 时不重试
+     * @param baseDelay  重试基础延迟时间 非空
+     * @param maxDelay   重试最大延迟时间 非空
+     * @param unit       延迟时间单位 非空
+     * @param timer      延迟任务计时的时间轮 非空，由调用方负责关闭
+     * @return 重试调度器实例
+     */
+    public static RetryScheduler init(final String retryName, final Integer maxRetries,
+                                      final Long baseDelay, final Long maxDelay, final TimeUnit unit,
+                                      final HashedWheelTimer timer) {
+        Objects.requireNonNull(timer, "时间轮不能为空");
+        return new RetryScheduler(retryName, maxRetries, baseDelay, maxDelay, unit, timer);
+    }
+
+    /**
+     * 执行可重试的异步请求
+     * <p>
+     * 保证并发安全
+     *
+     * @param key       请求标识，用于日志输出 非空
+     * @param request   异步请求 非空
+     * @param retryable 判断 响应 或 异常 是否可以重试 非空，异常已解除 {@link CompletionException} 包装
+     * @param <T>       响应类型
+     * @return 最后一次请求完成时完成的 future；取消该 future 时不再重试
+     */
+    public <T> CompletableFuture<T> execute(final String key,
+                                            final Supplier<CompletableFuture<T>> request,
+                                            final BiPredicate<T, Throwable> retryable) {
+        Objects.requireNonNull(key, "请求标识不能为空");
+        Objects.requireNonNull(request, "异步请求不能为空");
+        Objects.requireNonNull(retryable, "重试判断条件不能为空");
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        this.attempt(key, request, retryable, result, 0);
+        return result;
+    }
+
+    /**
+     * 累计的重试次数
+     *
+     * @return 累计的重试次数
+     */
+    public long retries() {
+        return retries.get();
+    }
+
+    /**
+     * 解除异步异常的包装
+     *
+     * @param e 异常，允许为空
+     * @return 原始异常
+     */
+    public static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && Objects.nonNull(e.getCause())) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    private <T> void attempt(final String key,
+                             final Supplier<CompletableFuture<T>> request,
+                             final BiPredicate<T, Throwable> retryable,
+                             final CompletableFuture<T> result,
+                             final int attempt) {
+        // 等待重试期间已经取消
+        if (result.isDone()) {
+            return;
+        }
+        CompletableFuture<T> future;
+        try {
+            future = request.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        final CompletableFuture<T> cur = future;
+        result.whenComplete((response, e) -> {
+            if (result.isCancelled()) {
+                cur.cancel(Boolean.TRUE);
+            }
+        });
+        future.whenComplete((response, e) -> {
+            Throwable cause = RetryScheduler.unwrap(e);
+            boolean canRetry;
+            try {
+                canRetry = attempt < maxRetries &&
+                        !closed &&
+                        !result.isDone() &&
+                        retryable.test(response, cause);
+            } catch (Exception ex) {
+                log.warn("判断 {} 是否可以重试时异常：", key, ex);
+                canRetry = false;
+            }
+            if (!canRetry) {
+                if (Objects.isNull(e)) {
+                    result.complete(response);
+                } else {
+                    result.completeExceptionally(cause);
+                }
+                return;
+            }
+            long delay = this.backoff(attempt);
+            retries.incrementAndGet();
+            log.warn("{} 请求失败，{} 毫秒后进行第 {} 次重试，原因：{}", key, delay, attempt + 1,
+                    Objects.isNull(cause) ? "可重试的响应" : cause.toString());
+            try {
+                Runnable retry = () -> this.attempt(key, request, retryable, result, attempt + 1);
+                if (Objects.nonNull(timer)) {
+                    timer.newTimeout(retry, delay, TimeUnit.MILLISECONDS, HashedWheelTimer.sharedExecutor());
+                } else {
+                    scheduledExecutorService.schedule(retry, delay, TimeUnit.MILLISECONDS);
+                }
+            } catch (Exception ex) {
+                // 调度器 或 时间轮已关闭，返回最后一次请求的结果
+                if (Objects.isNull(e)) {
+                    result.complete(response);
+                } else {
+                    result.completeExceptionally(cause);
+                }
+            }
+        });
+    }
+
+    /**
+     * 指数退避 + 随机抖动
+     * <p>
+     * 延迟时间在 [d / 2, d] 之间随机，其中 d = min(maxDelay, baseDelay * 2 ^ attempt)
+     */
+    private long backoff(int attempt) {
+        long delay = baseDelay << Math.min(attempt, 30);
+        if (delay <= 0 || delay > maxDelay) {
+            delay = maxDelay;
+        }
+        long half = delay >>> 1;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    @Override
+    public void close() {
+        log.info("正在关闭重试调度器");
+        closed = true;
+        if (Objects.nonNull(scheduledExecutorService) && !scheduledExecutorService.isShutdown()) {
+            scheduledExecutorService.shutdown();
+        }
+    }
+
+}
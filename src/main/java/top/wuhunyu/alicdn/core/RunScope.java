@@ -0,0 +1,175 @@
+package top.wuhunyu.alicdn.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 结构化的执行范围
+ * <p>
+ * 使用场景：
+ * <p>
+ * 一次执行拆分为多个异步的子任务，所有子任务共用一个截止时间，
+ * 超时、主动取消 或者 程序关闭时，取消全部未完成的子任务；关闭范围时保证不会遗留子任务
+ * <p>
+ * 子任务本身就是异步的（调度器、重试调度器返回的 future），不再为每个子任务占用一个线程等待结果；
+ * 取消子任务的 future 时，调度器中排队的请求不再发出，重试调度器不再重试
+ * <p>
+ * 使用示例
+ * <p>
+ * try-with-resources 中 {@link RunScope#open} 之后 调用 {@link RunScope#track} 登记子任务，
+ * 再调用 {@link RunScope#join} 等待结果
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 20:15
+ */
+
+@Slf4j
+public class RunScope implements AutoCloseable {
+
+    /**
+     * 未关闭的执行范围，程序关闭时全部取消
+     */
+    private static final Set<RunScope> OPEN_SCOPES = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(
+                () -> OPEN_SCOPES.forEach(scope -> scope.cancel("程序关闭")),
+                "run-scope-shutdown"));
+    }
+
+    private final String scopeName;
+
+    /**
+     * 截止时间，单位：纳秒
+     */
+    private final long deadline;
+
+    /**
+     * 未完成的子任务，完成后移除
+     */
+    private final Set<CompletableFuture<?>> tracked;
+
+    private volatile String cancelReason;
+
+    private RunScope(final String scopeName, final Duration timeout) {
+        Objects.requireNonNull(scopeName, "执行范围名称不能为空");
+        Objects.requireNonNull(timeout, "超时时间不能为空");
+
+        this.scopeName = scopeName;
+        this.deadline = System.nanoTime() + timeout.toNanos();
+        this.tracked = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * 打开一个 执行范围
+     *
+     * @param scopeName 执行范围名称 非空
+     * @param timeout   超时时间 非空
+     * @return 执行范围实例
+     */
+    public static RunScope open(final String scopeName, final Duration timeout) {
+        RunScope scope = new RunScope(scopeName, timeout);
+        OPEN_SCOPES.add(scope);
+        return scope;
+    }
+
+    /**
+     * 登记子任务，执行范围取消时取消该 future
+     * <p>
+     * 保证并发安全；执行范围已取消时立即取消
+     *
+     * @param future 子任务的 future 非空
+     * @param <T>    子任务的结果类型
+     * @return future 本身
+     */
+    public <T> CompletableFuture<T> track(final CompletableFuture<T> future) {
+        Objects.requireNonNull(future, "子任务不能为空");
+
+        tracked.add(future);
+        future.whenComplete((result, e) -> tracked.remove(future));
+        // 与 cancel 并发时，cancel 可能没有看到刚登记的子任务
+        if (this.isCancelled()) {
+            future.cancel(Boolean.TRUE);
+        }
+        return future;
+    }
+
+    /**
+     * 等待 future 完成，超过截止时间时取消全部未完成的子任务
+     *
+     * @param future 需要等待的 future 非空，通常是全部结果的 {@link CompletableFuture#allOf}
+     * @throws InterruptedException 等待时被中断
+     */
+    public void join(final CompletableFuture<?> future) throws InterruptedException {
+        Objects.requireNonNull(future, "等待的 future 不能为空");
+        try {
+            future.get(Math.max(0L, this.remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            this.cancel("超过截止时间");
+        } catch (ExecutionException | CancellationException e) {
+            // 子任务的异常由调用方通过 future 获取
+        }
+    }
+
+    /**
+     * 距离截止时间的纳秒数
+     *
+     * @return 距离截止时间的纳秒数，已超时时小于等于 0
+     */
+    public long remainingNanos() {
+        return deadline - System.nanoTime();
+    }
+
+    /**
+     * 取消全部未完成的子任务，之后登记的子任务会被立即取消
+     * <p>
+     * 保证并发安全，只有第一次取消生效
+     *
+     * @param reason 取消原因 非空
+     */
+    public void cancel(final String reason) {
+        Objects.requireNonNull(reason, "取消原因不能为空");
+        synchronized (this) {
+            if (Objects.nonNull(cancelReason)) {
+                return;
+            }
+            cancelReason = reason;
+        }
+        log.warn("执行范围 {} 已取消：{}", scopeName, reason);
+        tracked.forEach(future -> future.cancel(Boolean.TRUE));
+    }
+
+    public boolean isCancelled() {
+        return Objects.nonNull(cancelReason);
+    }
+
+    /**
+     * 取消原因
+     *
+     * @return 取消原因，未取消时为空
+     */
+    public String cancelReason() {
+        return cancelReason;
+    }
+
+    /**
+     * 关闭执行范围，取消未完成的子任务
+     */
+    @Override
+    public void close() {
+        OPEN_SCOPES.remove(this);
+        if (!tracked.isEmpty()) {
+            this.cancel("执行范围已关闭");
+        }
+    }
+
+}
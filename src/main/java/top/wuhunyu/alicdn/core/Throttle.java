@@ -5,18 +5,17 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.Closeable;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 节流器
  * <p>
  * 使用场景：
  * <p>
- * 在连续的指定时间段内，只执行最后一次提交的任务
+ * 在连续的指定时间段内，只执行第一次提交的任务，其余任务直接丢弃
  * <p>
  * 使用示例
  * <p>
@@ -29,35 +28,34 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Slf4j
 public class Throttle implements Closeable {
 
-    /**
-     * 是否正在运行
-     * <p>
-     * true：正在运行中；false：未运行
-     */
-    private final AtomicBoolean isRunning;
+    private static final String KEY = "throttle";
 
-    private final long delay;
+    private final KeyedThrottle<String> keyedThrottle;
 
+    /**
+     * 自行创建的线程池，调用方提供线程池时为空
+     */
     private final ExecutorService executorService;
 
-    private volatile long lastTime;
-
-    private Throttle(final String throttleName, final Long delay, final TimeUnit unit) {
+    private Throttle(final String throttleName, final Long delay, final TimeUnit unit,
+                     final Executor executor) {
         Objects.requireNonNull(throttleName, "节流器名称不能为空");
         Objects.requireNonNull(delay, "延迟时间不能为空");
         Objects.requireNonNull(unit, "延迟时间单位不能为空");
+        if (delay < 1) {
+            throw new IllegalArgumentException("延迟时间必须大于 0");
+        }
 
-        this.lastTime = -1L;
-        this.isRunning = new AtomicBoolean(Boolean.FALSE);
-        this.delay = unit.toMillis(delay);
-        this.executorService = new ThreadPoolExecutor(
-                1,
-                1,
-                120,
-                TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(200),
-                new NamedThreadFactory(throttleName + "-", Boolean.TRUE),
-                new ThreadPoolExecutor.AbortPolicy());
+        if (Objects.isNull(executor)) {
+            this.executorService = Executors.newSingleThreadExecutor(
+                    new NamedThreadFactory(throttleName + "-", Boolean.TRUE));
+        } else {
+            this.executorService = null;
+        }
+        // 每个延迟时间内只允许执行一次，超出的任务直接丢弃
+        double permitsPerSecond = (double) TimeUnit.SECONDS.toNanos(1L) / unit.toNanos(delay);
+        this.keyedThrottle = KeyedThrottle.init(throttleName, permitsPerSecond, 1,
+                Objects.isNull(executor) ? executorService : executor, KeyedThrottle.Policy.DROP);
     }
 
     /**
@@ -69,7 +67,22 @@ public class Throttle implements Closeable {
      * @return 节流器实例
      */
     public static Throttle init(final String throttleName, final Long delay, final TimeUnit unit) {
-        return new Throttle(throttleName, delay, unit);
+        return new Throttle(throttleName, delay, unit, null);
+    }
+
+    /**
+     * 初始化一个 节流器
+     *
+     * @param throttleName 节流器名称 非空
+     * @param delay        延迟时间 非空
+     * @param unit         延迟时间单位 非空
+     * @param executor     执行任务的线程池 非空，由调用方负责关闭
+     * @return 节流器实例
+     */
+    public static Throttle init(final String throttleName, final Long delay, final TimeUnit unit,
+                                final Executor executor) {
+        Objects.requireNonNull(executor, "执行线程池不能为空");
+        return new Throttle(throttleName, delay, unit, executor);
     }
 
     /**
@@ -82,26 +95,13 @@ public class Throttle implements Closeable {
     public void throttle(final Runnable runnable) {
         Objects.requireNonNull(runnable, "节流任务不能为空");
 
-        Runnable wrapRunnable = () -> {
-            try {
-                runnable.run();
-            } catch (Exception e) {
-                log.error("节流操作异常: ", e);
-            }
-            isRunning.set(Boolean.FALSE);
-        };
-
-        long now = System.currentTimeMillis();
-        if (lastTime < now && isRunning.compareAndSet(Boolean.FALSE, Boolean.TRUE)) {
-            lastTime = now + delay;
-            executorService.submit(wrapRunnable);
-        }
+        keyedThrottle.throttle(KEY, runnable);
     }
 
     @Override
     public void close() {
         log.info("正在关闭节流器");
-        if (!executorService.isShutdown()) {
+        if (Objects.nonNull(executorService) && !executorService.isShutdown()) {
             executorService.shutdown();
         }
     }
@@ -0,0 +1,90 @@
+package top.wuhunyu.alicdn.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌桶
+ * <p>
+ * 使用场景：
+ * <p>
+ * 限制单位时间内的请求数量，允许一定的突发流量
+ * <p>
+ * 只使用一个 {@link AtomicLong} 记录下一个令牌的理论发放时间，通过 CAS 获取令牌，不加锁
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 13:20
+ */
+
+public class TokenBucket {
+
+    /**
+     * 每个令牌的发放间隔，单位：纳秒
+     */
+    private final long interval;
+
+    /**
+     * 允许突发的时间窗口，单位：纳秒
+     */
+    private final long burstWindow;
+
+    /**
+     * 下一个令牌的理论发放时间，单位：纳秒
+     */
+    private final AtomicLong nextTime;
+
+    private TokenBucket(final double permitsPerSecond, final int burst) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("每秒发放的令牌数必须大于 0");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("令牌桶容量必须大于 0");
+        }
+        this.interval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1L) / permitsPerSecond));
+        this.burstWindow = interval * (burst - 1);
+        this.nextTime = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 初始化一个 令牌桶
+     *
+     * @param permitsPerSecond 每秒发放的令牌数 大于 0
+     * @param burst            令牌桶容量 大于 0
+     * @return 令牌桶实例
+     */
+    public static TokenBucket init(final double permitsPerSecond, final int burst) {
+        return new TokenBucket(permitsPerSecond, burst);
+    }
+
+    /**
+     * 尝试获取一个令牌
+     * <p>
+     * 保证并发安全
+     *
+     * @return 0：获取成功；大于 0：获取失败，需要等待的纳秒数
+     */
+    public long tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long cur = nextTime.get();
+            long wait = cur - burstWindow - now;
+            if (wait > 0) {
+                return wait;
+            }
+            long next = Math.max(cur, now) + interval;
+            if (nextTime.compareAndSet(cur, next)) {
+                return 0L;
+            }
+        }
+    }
+
+    /**
+     * 令牌桶是否已经装满，装满的令牌桶与新建的令牌桶没有区别
+     *
+     * @return true：已装满
+     */
+    public boolean isFull() {
+        return System.nanoTime() - nextTime.get() >= 0;
+    }
+
+}
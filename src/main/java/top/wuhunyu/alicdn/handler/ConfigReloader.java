@@ -0,0 +1,271 @@
+package top.wuhunyu.alicdn.handler;
+
+import cn.hutool.core.io.watch.SimpleWatcher;
+import cn.hutool.core.io.watch.WatchMonitor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import top.wuhunyu.alicdn.core.Debounce;
+import top.wuhunyu.alicdn.model.ConfigDiff;
+import top.wuhunyu.alicdn.model.TriggerSource;
+import top.wuhunyu.alicdn.properties.AliCdnProperties;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static top.wuhunyu.alicdn.constants.CommonConstants.*;
+
+/**
+ * 配置热加载
+ * <p>
+ * 监听外部配置文件 与 清单文件，修改后重新读取并校验配置，校验通过后替换当前配置；
+ * 只更新 新增 或者 证书路径变化的域名，进行中的证书更新继续使用旧配置完成；
+ * 需要重启才能生效的配置项在新配置中沿用旧值，重启之前的行为与告警一致
+ * <p>
+ * 阿里云客户端的连接超时、响应超时与最大连接数只在创建客户端时读取，对重新加载之后新创建的客户端生效，
+ * 已有的客户端空闲关闭之后重新创建时生效；空闲时间在下一次空闲检查时生效
+ * <p>
+ * 清单文件的路径修改后立即生效：域名按新的清单文件重新计算，并开始监听新的清单文件
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 20:55
+ **/
+
+@Slf4j
+public class ConfigReloader {
+
+    /**
+     * 只在启动时读取一次的配置项，变化后需要重启才能生效；重新加载时沿用旧值，与正在运行的组件保持一致
+     */
+    private static final Map<String, Setting<?>> RESTART_REQUIRED;
+
+    static {
+        Map<String, Setting<?>> restartRequired = new LinkedHashMap<>();
+        restartRequired.put(SCHEDULED_CRON,
+                new Setting<>(AliCdnProperties::getScheduledCron, AliCdnProperties::setScheduledCron));
+        restartRequired.put(SCHEDULE_MODE,
+                new Setting<>(AliCdnProperties::getScheduleMode, AliCdnProperties::setScheduleMode));
+        restartRequired.put(RUN_MODE,
+                new Setting<>(AliCdnProperties::getRunMode, AliCdnProperties::setRunMode));
+        restartRequired.put(LEAN_MODE,
+                new Setting<>(AliCdnProperties::getLeanMode, AliCdnProperties::setLeanMode));
+        restartRequired.put(RETRY_TIME_WHEN_EXCEPTION,
+                new Setting<>(AliCdnProperties::getRetryTimeWhenException, AliCdnProperties::setRetryTimeWhenException));
+        restartRequired.put(FILE_MODIFY_LISTEN_DELAY,
+                new Setting<>(AliCdnProperties::getFileModifyListenDelay, AliCdnProperties::setFileModifyListenDelay));
+        restartRequired.put(STATE_PATH,
+                new Setting<>(AliCdnProperties::getStatePath, AliCdnProperties::setStatePath));
+        restartRequired.put(MAX_IN_FLIGHT,
+                new Setting<>(AliCdnProperties::getMaxInFlight, AliCdnProperties::setMaxInFlight));
+        restartRequired.put(QPS,
+                new Setting<>(AliCdnProperties::getQps, AliCdnProperties::setQps));
+        restartRequired.put(ADAPTIVE_CONCURRENCY,
+                new Setting<>(AliCdnProperties::getAdaptiveConcurrency, AliCdnProperties::setAdaptiveConcurrency));
+        restartRequired.put(CIRCUIT_FAILURE_THRESHOLD,
+                new Setting<>(AliCdnProperties::getCircuitFailureThreshold, AliCdnProperties::setCircuitFailureThreshold));
+        restartRequired.put(CIRCUIT_OPEN_TIMEOUT,
+                new Setting<>(AliCdnProperties::getCircuitOpenTimeout, AliCdnProperties::setCircuitOpenTimeout));
+        restartRequired.put(CIRCUIT_QUEUE_TIMEOUT,
+                new Setting<>(AliCdnProperties::getCircuitQueueTimeout, AliCdnProperties::setCircuitQueueTimeout));
+        restartRequired.put(RETRY_BASE_DELAY,
+                new Setting<>(AliCdnProperties::getRetryBaseDelay, AliCdnProperties::setRetryBaseDelay));
+        restartRequired.put(RETRY_MAX_DELAY,
+                new Setting<>(AliCdnProperties::getRetryMaxDelay, AliCdnProperties::setRetryMaxDelay));
+        restartRequired.put(CERT_CACHE_SIZE,
+                new Setting<>(AliCdnProperties::getCertCacheSize, AliCdnProperties::setCertCacheSize));
+        restartRequired.put(METRICS_PORT,
+                new Setting<>(AliCdnProperties::getMetricsPort, AliCdnProperties::setMetricsPort));
+        restartRequired.put(ENDPOINT,
+                new Setting<>(AliCdnProperties::getEndpoint, AliCdnProperties::setEndpoint));
+        RESTART_REQUIRED = restartRequired;
+    }
+
+    /**
+     * 读取与校验配置的线程，多次重新加载按顺序执行
+     */
+    private static final ExecutorService RELOAD_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "config-reload");
+        thread.setDaemon(Boolean.TRUE);
+        return thread;
+    });
+
+    /**
+     * 已经监听的文件，同一个文件只监听一次
+     */
+    private static final Set<Path> WATCHED = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 编辑器保存文件时可能产生多次事件，防抖后只重新加载一次；全部文件共用
+     */
+    private static volatile Debounce debounce;
+
+    private ConfigReloader() {
+    }
+
+    /**
+     * 监听外部配置文件 与 清单文件，两者都未配置时不监听
+     */
+    public static void start() {
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        List<Path> files = new ArrayList<>(2);
+        String configFile = System.getenv(CONFIG_FILE);
+        if (StringUtils.isNotBlank(configFile)) {
+            files.add(Paths.get(configFile));
+        }
+        if (StringUtils.isNotBlank(aliCdnProperties.getManifest())) {
+            files.add(Paths.get(aliCdnProperties.getManifest()));
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+        debounce = Debounce.init("config-reload", aliCdnProperties.getFileModifyListenDelay(),
+                TimeUnit.MILLISECONDS);
+        files.forEach(ConfigReloader::watch);
+    }
+
+    /**
+     * 监听文件的修改，已经监听的文件不重复监听
+     */
+    private static void watch(Path file) {
+        Path path = file.toAbsolutePath()
+                .normalize();
+        if (!WATCHED.add(path)) {
+            return;
+        }
+        WatchMonitor.createAll(path, new SimpleWatcher() {
+            @Override
+            public void onCreate(WatchEvent<?> event, Path currentPath) {
+                this.onModify(event, currentPath);
+            }
+
+            @Override
+            public void onModify(WatchEvent<?> event, Path currentPath) {
+                log.info("监听到 {} 被修改，准备重新加载配置", path);
+                debounce.debounce(() -> RELOAD_EXECUTOR.execute(ConfigReloader::reload));
+            }
+        }).start();
+        log.info("配置热加载已启动，监听的文件：{}", path);
+    }
+
+    private static void reload() {
+        AliCdnProperties previous = AliCdnProperties.getInstance();
+        List<String> restartRequired = new ArrayList<>();
+        AliCdnProperties current;
+        try {
+            current = AliCdnProperties.reload(next -> RESTART_REQUIRED.forEach((key, setting) -> {
+                if (setting.keep(previous, next)) {
+                    restartRequired.add(key);
+                }
+            }));
+        } catch (RuntimeException e) {
+            log.error("重新加载配置失败，继续使用当前配置：{}", e.getMessage());
+            return;
+        }
+        // 清单文件的路径变化时监听新的清单文件，旧的清单文件修改时重新加载的结果不变
+        if (StringUtils.isNotBlank(current.getManifest())) {
+            ConfigReloader.watch(Paths.get(current.getManifest()));
+        }
+        ConfigDiff diff = ConfigReloader.diff(previous, current, restartRequired);
+        if (diff.isEmpty()) {
+            log.info("配置未发生变化");
+            return;
+        }
+        log.info("配置已重新加载，新增域名：{}，移除域名：{}，证书路径变化的域名：{}",
+                diff.getAdded(), diff.getRemoved(), diff.getChanged());
+        if (!diff.getRestartRequired().isEmpty()) {
+            log.warn("以下配置需要重启后生效，重启之前沿用当前值：{}", diff.getRestartRequired());
+        }
+
+        // 重建证书文件索引，安排新增域名的过期检查
+        ListenFileModify.reindex(current);
+        ExpiryScheduler.reindex(diff.getAdded());
+
+        // 只更新 新增 或者 证书路径变化的域名
+        Set<String> domains = new LinkedHashSet<>(diff.getAdded());
+        domains.addAll(diff.getChanged());
+        if (!domains.isEmpty()) {
+            SetCdnDomainSSLCertificate.runAsync(domains, Boolean.FALSE, TriggerSource.RELOAD);
+        }
+    }
+
+    private static ConfigDiff diff(AliCdnProperties previous, AliCdnProperties current,
+                                   List<String> restartRequired) {
+        Map<String, List<Object>> previousPaths = ConfigReloader.certPaths(previous);
+        Map<String, List<Object>> currentPaths = ConfigReloader.certPaths(current);
+
+        Set<String> added = new LinkedHashSet<>();
+        Set<String> changed = new LinkedHashSet<>();
+        currentPaths.forEach((domain, paths) -> {
+            List<Object> pre = previousPaths.get(domain);
+            if (Objects.isNull(pre)) {
+                added.add(domain);
+            } else if (!Objects.equals(pre, paths)) {
+                changed.add(domain);
+            }
+        });
+        Set<String> removed = new LinkedHashSet<>(previousPaths.keySet());
+        removed.removeAll(currentPaths.keySet());
+
+        return ConfigDiff.builder()
+                .added(added)
+                .removed(removed)
+                .changed(changed)
+                .restartRequired(restartRequired)
+                .build();
+    }
+
+    /**
+     * 域名 -> [公钥路径, 私钥路径, 阿里云账号]，账号变化的域名需要更新到新账号下
+     */
+    private static Map<String, List<Object>> certPaths(AliCdnProperties aliCdnProperties) {
+        List<String> domains = aliCdnProperties.getDomains();
+        Map<String, List<Object>> ans = new HashMap<>();
+        for (int i = 0; i < domains.size(); i++) {
+            String domain = domains.get(i);
+            ans.put(domain, List.of(aliCdnProperties.resolveCertPath(domain, aliCdnProperties.getPubes().get(i)),
+                    aliCdnProperties.resolveCertPath(domain, aliCdnProperties.getPries().get(i)),
+                    aliCdnProperties.accountOf(domain)));
+        }
+        return ans;
+    }
+
+    /**
+     * 需要重启才能生效的配置项
+     *
+     * @param getter 读取配置项
+     * @param setter 写入配置项
+     * @param <T>    配置项的类型
+     */
+    private record Setting<T>(Function<AliCdnProperties, T> getter, BiConsumer<AliCdnProperties, T> setter) {
+
+        /**
+         * 配置项发生变化时，新配置沿用旧值
+         *
+         * @return true：配置项发生了变化
+         */
+        boolean keep(AliCdnProperties previous, AliCdnProperties current) {
+            T pre = getter.apply(previous);
+            if (Objects.equals(pre, getter.apply(current))) {
+                return false;
+            }
+            setter.accept(current, pre);
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,380 @@
+package top.wuhunyu.alicdn.handler;
+
+import com.aliyun.apache.hc.core5.http.HttpStatus;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeCdnHttpsDomainListRequest;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeCdnHttpsDomainListResponse;
+import com.aliyun.sdk.service.cdn20180510.models.DescribeCdnHttpsDomainListResponseBody;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import top.wuhunyu.alicdn.core.HashedWheelTimer;
+import top.wuhunyu.alicdn.core.MyAliClient;
+import top.wuhunyu.alicdn.core.RetryScheduler;
+import top.wuhunyu.alicdn.model.AliAccount;
+import top.wuhunyu.alicdn.model.CdnCertInfo;
+import top.wuhunyu.alicdn.properties.AliCdnProperties;
+
+import javax.naming.InvalidNameException;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询阿里云 CDN 域名当前使用的 https 证书
+ * <p>
+ * 查询结果缓存一段时间，文件监听与定时任务共用同一份查询结果；
+ * 按域名所属的阿里云账号分别查询，每个账号需要查询的域名较少时，按域名逐个查询，否则分页查询该账号的全部域名
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 16:12
+ **/
+
+@Slf4j
+public class DescribeCdnHttpsDomainList {
+
+    /**
+     * 分页查询时每页的数量
+     */
+    private static final int PAGE_SIZE = 500;
+
+    /**
+     * 需要查询的域名数量不超过该值时，按域名逐个查询
+     */
+    private static final int KEYWORD_QUERY_THRESHOLD = 10;
+
+    /**
+     * 证书时间的格式，例如：2018-06-03 22:03:39 +0000 UTC
+     */
+    private static final DateTimeFormatter OFFSET_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss xx");
+
+    /**
+     * 证书时间的格式，例如：2018-06-03 22:03:39，按 UTC 时间处理
+     */
+    private static final DateTimeFormatter LOCAL_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 查询请求的重试调度器
+     */
+    private static final RetryScheduler RETRY_SCHEDULER;
+
+    /**
+     * 域名 -> 证书信息缓存，域名未开启 https 时证书信息为空
+     */
+    private static final Map<String, Cached> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 阿里云账号 -> 正在进行中的全量查询，多个调用方共用
+     */
+    private static final Map<AliAccount, CompletableFuture<Void>> FULL_QUERIES = new ConcurrentHashMap<>();
+
+    static {
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        RETRY_SCHEDULER = aliCdnProperties.getLeanMode() ?
+                RetryScheduler.init("describe-cdn-https-domain-list-retry",
+                        aliCdnProperties.getRetryTimeWhenException(),
+                        aliCdnProperties.getRetryBaseDelay(),
+                        aliCdnProperties.getRetryMaxDelay(),
+                        TimeUnit.MILLISECONDS,
+                        HashedWheelTimer.shared()) :
+                RetryScheduler.init("describe-cdn-https-domain-list-retry",
+                        aliCdnProperties.getRetryTimeWhenException(),
+                        aliCdnProperties.getRetryBaseDelay(),
+                        aliCdnProperties.getRetryMaxDelay(),
+                        TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 查询域名当前使用的 https 证书
+     *
+     * @param domains 域名 非空
+     * @return 域名 -> 证书信息，未开启 https 或查询失败的域名不在结果中
+     */
+    public static CompletableFuture<Map<String, CdnCertInfo>> query(Collection<String> domains) {
+        Objects.requireNonNull(domains, "域名不能为空");
+
+        long now = System.nanoTime();
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        long ttl = TimeUnit.MILLISECONDS.toNanos(aliCdnProperties.getLiveCertCacheTtl());
+        List<String> missing = domains.stream()
+                .filter(domain -> {
+                    Cached cached = CACHE.get(domain);
+                    return Objects.isNull(cached) || now - cached.fetchedAt() > ttl;
+                })
+                .toList();
+
+        // 按阿里云账号分组查询
+        Map<AliAccount, List<String>> groups = new LinkedHashMap<>();
+        for (String domain : missing) {
+            groups.computeIfAbsent(aliCdnProperties.accountOf(domain), key -> new ArrayList<>())
+                    .add(domain);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(groups.size());
+        groups.forEach((account, accountDomains) -> {
+            if (accountDomains.size() <= KEYWORD_QUERY_THRESHOLD) {
+                accountDomains.forEach(domain ->
+                        futures.add(DescribeCdnHttpsDomainList.queryByKeyword(account, domain)));
+            } else {
+                futures.add(DescribeCdnHttpsDomainList.queryAll(account));
+            }
+        });
+        CompletableFuture<Void> future = CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+
+        return future.handle((v, e) -> {
+            if (Objects.nonNull(e)) {
+                log.warn("<= 查询阿里云 CDN https 证书失败，将直接更新证书：{}", e.toString());
+            } else {
+                // 查询成功但不在结果中的域名，说明未开启 https
+                long fetchedAt = System.nanoTime();
+                for (String domain : missing) {
+                    CACHE.compute(domain, (key, cached) ->
+                            Objects.isNull(cached) || fetchedAt - cached.fetchedAt() > ttl ?
+                                    new Cached(fetchedAt, null) :
+                                    cached);
+                }
+            }
+            Map<String, CdnCertInfo> ans = new HashMap<>();
+            for (String domain : domains) {
+                Cached cached = CACHE.get(domain);
+                if (Objects.nonNull(cached) && Objects.nonNull(cached.certInfo())) {
+                    ans.put(domain, cached.certInfo());
+                }
+            }
+            return ans;
+        });
+    }
+
+    /**
+     * 获取缓存的证书信息，不发起查询
+     *
+     * @param domain 域名 非空
+     * @return 证书信息，未缓存或未开启 https 时为空
+     */
+    public static CdnCertInfo cached(String domain) {
+        Objects.requireNonNull(domain, "域名不能为空");
+        Cached cached = CACHE.get(domain);
+        return Objects.isNull(cached) ? null : cached.certInfo();
+    }
+
+    /**
+     * 移除缓存的证书信息，域名的证书更新成功后调用
+     *
+     * @param domain 域名 非空
+     */
+    public static void invalidate(String domain) {
+        Objects.requireNonNull(domain, "域名不能为空");
+        CACHE.remove(domain);
+    }
+
+    /**
+     * CDN 当前使用的证书是否与本地证书一致
+     * <p>
+     * 复用证书上传的证书名称由证书指纹生成，名称一致时证书与私钥都一致，名称不一致时不一致；
+     * 其余证书的接口不返回序列号与指纹，通过 通用名称 + 生效时间 + 过期时间（精确到秒）判断，
+     * 相同有效期、相同通用名称的重新签发的证书会被误判为一致
+     *
+     * @param certInfo      CDN 当前使用的证书信息，允许为空
+     * @param certificate   本地证书，允许为空
+     * @param reuseCertName 本地证书在复用证书模式下的证书名称，允许为空
+     * @return true：一致；false：不一致或无法判断
+     */
+    public static boolean matches(CdnCertInfo certInfo, X509Certificate certificate, String reuseCertName) {
+        if (Objects.isNull(certInfo) || Objects.isNull(certificate)) {
+            return false;
+        }
+        if (StringUtils.startsWith(certInfo.getCertName(), SetCdnDomainSSLCertificate.CERT_NAME_PREFIX)) {
+            return Objects.equals(certInfo.getCertName(), reuseCertName);
+        }
+        if (Objects.isNull(certInfo.getStartTime()) || Objects.isNull(certInfo.getExpireTime()) ||
+                !StringUtils.equalsIgnoreCase(certInfo.getCommonName(),
+                        DescribeCdnHttpsDomainList.commonName(certificate))) {
+            return false;
+        }
+        return Objects.equals(certInfo.getStartTime().truncatedTo(ChronoUnit.SECONDS),
+                certificate.getNotBefore().toInstant().truncatedTo(ChronoUnit.SECONDS)) &&
+                Objects.equals(certInfo.getExpireTime().truncatedTo(ChronoUnit.SECONDS),
+                        certificate.getNotAfter().toInstant().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    /**
+     * 证书主题中的通用名称，没有或解析失败时为空
+     */
+    private static String commonName(X509Certificate certificate) {
+        try {
+            for (Rdn rdn : new LdapName(certificate.getSubjectX500Principal().getName()).getRdns()) {
+                if ("CN".equalsIgnoreCase(rdn.getType())) {
+                    return String.valueOf(rdn.getValue());
+                }
+            }
+        } catch (InvalidNameException e) {
+            log.debug("解析证书主题 {} 失败：{}", certificate.getSubjectX500Principal(), e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 按域名查询，关键字为模糊匹配，只保留完全一致的域名
+     */
+    private static CompletableFuture<Void> queryByKeyword(AliAccount account, String domain) {
+        DescribeCdnHttpsDomainListRequest request = DescribeCdnHttpsDomainListRequest.builder()
+                .keyword(domain)
+                .pageNumber(1)
+                .pageSize(PAGE_SIZE)
+                .build();
+        return DescribeCdnHttpsDomainList.queryPage(account, domain, request)
+                .thenAccept(body -> {
+                    long fetchedAt = System.nanoTime();
+                    CdnCertInfo certInfo = DescribeCdnHttpsDomainList.certInfos(body)
+                            .stream()
+                            .map(DescribeCdnHttpsDomainList::toCertInfo)
+                            .filter(info -> Objects.equals(info.getDomain(), domain))
+                            .findFirst()
+                            .orElse(null);
+                    CACHE.put(domain, new Cached(fetchedAt, certInfo));
+                });
+    }
+
+    /**
+     * 分页查询账号下的全部域名，第一页返回总数后，其余页并行查询
+     */
+    private static synchronized CompletableFuture<Void> queryAll(AliAccount account) {
+        CompletableFuture<Void> cur = FULL_QUERIES.get(account);
+        if (Objects.nonNull(cur) && !cur.isDone()) {
+            return cur;
+        }
+        long fetchedAt = System.nanoTime();
+        Map<String, CdnCertInfo> fetched = new ConcurrentHashMap<>();
+        cur = DescribeCdnHttpsDomainList.queryPage(account, "第 1 页", DescribeCdnHttpsDomainList.pageRequest(1))
+                .thenCompose(first -> {
+                    DescribeCdnHttpsDomainList.collect(first, fetched);
+                    int total = Optional.ofNullable(first.getTotalCount())
+                            .orElse(0);
+                    int pages = (total + PAGE_SIZE - 1) / PAGE_SIZE;
+                    List<CompletableFuture<Void>> futures = new ArrayList<>();
+                    for (int page = 2; page <= pages; page++) {
+                        futures.add(DescribeCdnHttpsDomainList.queryPage(account, "第 " + page + " 页",
+                                        DescribeCdnHttpsDomainList.pageRequest(page))
+                                .thenAccept(body -> DescribeCdnHttpsDomainList.collect(body, fetched)));
+                    }
+                    return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+                })
+                .thenRun(() -> {
+                    fetched.forEach((domain, certInfo) -> CACHE.put(domain, new Cached(fetchedAt, certInfo)));
+                    log.info("<= 查询阿里云 {} CDN https 证书成功，共 {} 个域名", account.label(), fetched.size());
+                });
+        FULL_QUERIES.put(account, cur);
+        // 查询完成后移除，避免保留已经不再使用的账号
+        final CompletableFuture<Void> query = cur;
+        query.whenComplete((v, e) -> FULL_QUERIES.remove(account, query));
+        return query;
+    }
+
+    private static DescribeCdnHttpsDomainListRequest pageRequest(int pageNumber) {
+        return DescribeCdnHttpsDomainListRequest.builder()
+                .pageNumber(pageNumber)
+                .pageSize(PAGE_SIZE)
+                .build();
+    }
+
+    private static CompletableFuture<DescribeCdnHttpsDomainListResponseBody> queryPage(
+            AliAccount account, String key, DescribeCdnHttpsDomainListRequest request) {
+        return RETRY_SCHEDULER.execute("查询阿里云 CDN https 证书 " + key,
+                        () -> MyAliClient.INSTANCE.submit(account, client -> client.describeCdnHttpsDomainList(request),
+                                (response, e) -> SetCdnDomainSSLCertificate.isRetryable(
+                                        Objects.isNull(response) ? null : response.getStatusCode(), e)),
+                        (response, e) -> SetCdnDomainSSLCertificate.isRetryable(
+                                Objects.isNull(response) ? null : response.getStatusCode(), e))
+                .thenApply(response -> {
+                    if (!Objects.equals(response.getStatusCode(), HttpStatus.SC_OK)) {
+                        throw new IllegalStateException("查询阿里云 CDN https 证书 " + key +
+                                " 失败，状态码：" + response.getStatusCode());
+                    }
+                    return response.getBody();
+                });
+    }
+
+    private static void collect(DescribeCdnHttpsDomainListResponseBody body, Map<String, CdnCertInfo> fetched) {
+        for (DescribeCdnHttpsDomainListResponseBody.CertInfo certInfo : DescribeCdnHttpsDomainList.certInfos(body)) {
+            CdnCertInfo info = DescribeCdnHttpsDomainList.toCertInfo(certInfo);
+            if (StringUtils.isNotBlank(info.getDomain())) {
+                fetched.put(info.getDomain(), info);
+            }
+        }
+    }
+
+    private static List<DescribeCdnHttpsDomainListResponseBody.CertInfo> certInfos(
+            DescribeCdnHttpsDomainListResponseBody body) {
+        return Optional.ofNullable(body)
+                .map(DescribeCdnHttpsDomainListResponseBody::getCertInfos)
+                .map(DescribeCdnHttpsDomainListResponseBody.CertInfos::getCertInfo)
+                .orElse(List.of());
+    }
+
+    private static CdnCertInfo toCertInfo(DescribeCdnHttpsDomainListResponseBody.CertInfo certInfo) {
+        return CdnCertInfo.builder()
+                .domain(certInfo.getDomainName())
+                .certName(certInfo.getCertName())
+                .commonName(certInfo.getCertCommonName())
+                .startTime(DescribeCdnHttpsDomainList.parseTime(certInfo.getCertStartTime()))
+                .expireTime(DescribeCdnHttpsDomainList.parseTime(certInfo.getCertExpireTime()))
+                .build();
+    }
+
+    /**
+     * 解析证书时间，兼容 ISO-8601、带时区偏移、不带时区（按 UTC 处理）以及毫秒时间戳
+     *
+     * @param time 证书时间，允许为空
+     * @return 解析失败时返回空
+     */
+    static Instant parseTime(String time) {
+        if (StringUtils.isBlank(time)) {
+            return null;
+        }
+        String value = StringUtils.removeEnd(time.trim(), " UTC");
+        if (StringUtils.isNumeric(value)) {
+            return Instant.ofEpochMilli(Long.parseLong(value));
+        }
+        try {
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException ignored) {
+            // 尝试下一种格式
+        }
+        try {
+            return OffsetDateTime.parse(value, OFFSET_TIME_FORMATTER).toInstant();
+        } catch (DateTimeParseException ignored) {
+            // 尝试下一种格式
+        }
+        try {
+            return LocalDateTime.parse(value, LOCAL_TIME_FORMATTER).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            log.warn("无法解析证书时间：{}", time);
+            return null;
+        }
+    }
+
+    /**
+     * 缓存的证书信息
+     *
+     * @param fetchedAt 查询时间，单位：纳秒
+     * @param certInfo  证书信息，域名未开启 https 时为空
+     */
+    private record Cached(long fetchedAt, CdnCertInfo certInfo) {
+    }
+
+}
@@ -0,0 +1,262 @@
+package top.wuhunyu.alicdn.handler;
+
+import lombok.extern.slf4j.Slf4j;
+import top.wuhunyu.alicdn.core.CertMaterialCache;
+import top.wuhunyu.alicdn.model.CdnCertInfo;
+import top.wuhunyu.alicdn.model.TriggerSource;
+import top.wuhunyu.alicdn.properties.AliCdnProperties;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 根据证书过期时间调度证书检查
+ * <p>
+ * 每个域名维护下一次检查的时间，调度线程休眠到最早的检查时间；
+ * 证书越接近过期，检查越频繁，证书健康时很少检查
+ * <p>
+ * 每个域名同一时刻只有一个有效的检查时间：每次安排检查时递增域名的代数，到期时丢弃代数不是最新的检查时间
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 16:55
+ **/
+
+@Slf4j
+public class ExpiryScheduler {
+
+    /**
+     * 证书即将过期（或已过期）时的检查间隔
+     */
+    private static final Duration URGENT_INTERVAL = Duration.ofMinutes(10);
+
+    /**
+     * 证书剩余有效期小于该值时，按 {@link #URGENT_INTERVAL} 检查
+     */
+    private static final Duration URGENT_THRESHOLD = Duration.ofDays(3);
+
+    /**
+     * 证书剩余有效期小于 {@link #WARNING_THRESHOLD} 时的检查间隔
+     */
+    private static final Duration WARNING_INTERVAL = Duration.ofHours(1);
+
+    private static final Duration WARNING_THRESHOLD = Duration.ofDays(7);
+
+    /**
+     * 证书剩余有效期小于 {@link #RENEW_THRESHOLD} 时的检查间隔，acme.sh 默认提前 30 天续期
+     */
+    private static final Duration RENEW_INTERVAL = Duration.ofHours(6);
+
+    private static final Duration RENEW_THRESHOLD = Duration.ofDays(30);
+
+    /**
+     * 证书健康时的检查间隔
+     */
+    private static final Duration HEALTHY_INTERVAL = Duration.ofHours(24);
+
+    private static final DelayQueue<Deadline> QUEUE = new DelayQueue<>();
+
+    /**
+     * 域名 -> 最近一次安排的检查的代数
+     */
+    private static final Map<String, Long> GENERATIONS = new ConcurrentHashMap<>();
+
+    private static volatile boolean started;
+
+    private ExpiryScheduler() {
+    }
+
+    /**
+     * 启动调度线程，为全部域名安排第一次检查
+     */
+    public static void start() {
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        for (String domain : aliCdnProperties.getDomains()) {
+            ExpiryScheduler.reschedule(domain);
+        }
+        // 低内存模式下使用虚拟线程，休眠到下一次检查期间不占用平台线程
+        Thread.Builder builder = aliCdnProperties.getLeanMode() ?
+                Thread.ofVirtual() :
+                Thread.ofPlatform().daemon(Boolean.TRUE);
+        builder.name("expiry-scheduler")
+                .start(ExpiryScheduler::loop);
+        started = Boolean.TRUE;
+    }
+
+    /**
+     * 重新加载配置后，为新增的域名安排第一次检查；移除的域名在到期时丢弃
+     *
+     * @param added 新增的域名 非空
+     */
+    public static void reindex(Collection<String> added) {
+        Objects.requireNonNull(added, "新增的域名不能为空");
+        if (!started) {
+            return;
+        }
+        added.forEach(ExpiryScheduler::reschedule);
+    }
+
+    private static void loop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            // 休眠到最早的检查时间，同时到期的域名一起检查
+            List<Deadline> due = new ArrayList<>();
+            try {
+                due.add(QUEUE.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            QUEUE.drainTo(due);
+            AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+            boolean forceWhenScheduled = aliCdnProperties.getForceWhenScheduled();
+            // 已经重新安排过的检查时间 与 重新加载配置后已经移除的域名
+            Set<String> configured = new HashSet<>(aliCdnProperties.getDomains());
+            due.removeIf(deadline -> {
+                if (!Objects.equals(GENERATIONS.get(deadline.domain()), deadline.generation())) {
+                    return true;
+                }
+                if (!configured.contains(deadline.domain())) {
+                    GENERATIONS.remove(deadline.domain(), deadline.generation());
+                    return true;
+                }
+                return false;
+            });
+            Set<String> domains = new LinkedHashSet<>();
+            // CDN 当前使用的证书比本地证书更早过期，说明 CDN 上的证书是旧的，强制更新
+            Set<String> staleDomains = new LinkedHashSet<>();
+            for (Deadline deadline : due) {
+                if (forceWhenScheduled || ExpiryScheduler.isRemoteStale(deadline.domain())) {
+                    staleDomains.add(deadline.domain());
+                } else {
+                    domains.add(deadline.domain());
+                }
+            }
+            log.info("触发证书过期检查，执行阿里云 CDN 证书更新任务：{}，强制更新：{}", domains, staleDomains);
+            ExpiryScheduler.check(domains, Boolean.FALSE);
+            ExpiryScheduler.check(staleDomains, Boolean.TRUE);
+        }
+    }
+
+    private static void check(Set<String> domains, boolean force) {
+        if (domains.isEmpty()) {
+            return;
+        }
+        try {
+            SetCdnDomainSSLCertificate.runAsync(domains, force, TriggerSource.EXPIRY)
+                    .whenComplete((result, e) -> domains.forEach(ExpiryScheduler::reschedule));
+        } catch (Exception e) {
+            log.error("证书过期检查异常：", e);
+            domains.forEach(ExpiryScheduler::reschedule);
+        }
+    }
+
+    /**
+     * 根据 本地证书 与 CDN 当前使用的证书 中较早的过期时间，安排域名的下一次检查
+     */
+    private static void reschedule(String domain) {
+        Instant notAfter = ExpiryScheduler.earliest(ExpiryScheduler.localExpireTime(domain),
+                ExpiryScheduler.remoteExpireTime(domain));
+        Duration interval = ExpiryScheduler.interval(notAfter);
+        long generation = GENERATIONS.merge(domain, 1L, Long::sum);
+        QUEUE.put(new Deadline(domain, generation, System.nanoTime() + interval.toNanos()));
+        log.debug("域名 {} 的证书过期时间：{}，下一次检查在 {} 后", domain, notAfter, interval);
+    }
+
+    private static Duration interval(Instant notAfter) {
+        if (Objects.isNull(notAfter)) {
+            return URGENT_INTERVAL;
+        }
+        Duration remaining = Duration.between(Instant.now(), notAfter);
+        if (remaining.compareTo(URGENT_THRESHOLD) < 0) {
+            return URGENT_INTERVAL;
+        }
+        if (remaining.compareTo(WARNING_THRESHOLD) < 0) {
+            return WARNING_INTERVAL;
+        }
+        if (remaining.compareTo(RENEW_THRESHOLD) < 0) {
+            return RENEW_INTERVAL;
+        }
+        // 健康的证书，最晚在进入续期窗口时检查
+        Duration untilRenew = remaining.minus(RENEW_THRESHOLD);
+        return untilRenew.compareTo(HEALTHY_INTERVAL) < 0 ? untilRenew.plus(URGENT_INTERVAL) : HEALTHY_INTERVAL;
+    }
+
+    private static boolean isRemoteStale(String domain) {
+        Instant local = ExpiryScheduler.localExpireTime(domain);
+        Instant remote = ExpiryScheduler.remoteExpireTime(domain);
+        return Objects.nonNull(local) && Objects.nonNull(remote) && remote.isBefore(local);
+    }
+
+    private static Instant earliest(Instant a, Instant b) {
+        if (Objects.isNull(a)) {
+            return b;
+        }
+        return Objects.isNull(b) || a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * 本地证书的过期时间，读取失败时为空
+     */
+    private static Instant localExpireTime(String domain) {
+        Instant ans = null;
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        int index = aliCdnProperties.getDomains().indexOf(domain);
+        if (index >= 0) {
+            String pubPath = aliCdnProperties.resolveCertPath(domain, aliCdnProperties.getPubes().get(index));
+            try {
+                X509Certificate certificate = CertMaterialCache.INSTANCE.get(Paths.get(pubPath))
+                        .getCertificate();
+                if (Objects.nonNull(certificate)) {
+                    ans = certificate.getNotAfter().toInstant();
+                }
+            } catch (IOException e) {
+                log.warn("读取公钥 {} 异常：{}", pubPath, e.getMessage());
+            }
+        }
+        return ans;
+    }
+
+    /**
+     * CDN 当前使用的证书的过期时间，未查询过时为空
+     */
+    private static Instant remoteExpireTime(String domain) {
+        CdnCertInfo certInfo = DescribeCdnHttpsDomainList.cached(domain);
+        return Objects.isNull(certInfo) ? null : certInfo.getExpireTime();
+    }
+
+    /**
+     * 域名下一次检查的时间
+     *
+     * @param domain     域名
+     * @param generation 安排检查时域名的代数
+     * @param time       检查时间，单位：纳秒
+     */
+    private record Deadline(String domain, long generation, long time) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(time, ((Deadline) o).time);
+        }
+
+    }
+
+}
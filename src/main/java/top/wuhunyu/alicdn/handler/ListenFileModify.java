@@ -1,17 +1,27 @@
 package top.wuhunyu.alicdn.handler;
 
-import cn.hutool.core.io.watch.SimpleWatcher;
-import cn.hutool.core.io.watch.WatchMonitor;
-import cn.hutool.core.io.watch.watchers.DelayWatcher;
 import lombok.extern.slf4j.Slf4j;
+import top.wuhunyu.alicdn.core.CertFileWatcher;
+import top.wuhunyu.alicdn.core.CertPathIndex;
+import top.wuhunyu.alicdn.core.KeyedDebounce;
+import top.wuhunyu.alicdn.core.KeyedThrottle;
+import top.wuhunyu.alicdn.core.Metrics;
 import top.wuhunyu.alicdn.properties.AliCdnProperties;
 
 import java.nio.file.Path;
-import java.nio.file.WatchEvent;
-import java.util.function.Consumer;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * 监听文件修改事件
+ * <p>
+ * 同一个域名的修改先防抖，再按域名节流：证书文件被反复改写时，每个域名每分钟最多更新 {@link #PUSH_BURST} 次，
+ * 超出的更新延迟到有令牌时执行，并且只保留最后一次
  *
  * @author gongzhiqiang
  * @date 2024/06/23 16:07
@@ -20,24 +30,93 @@ import java.util.function.Consumer;
 @Slf4j
 public class ListenFileModify {
 
-    public static void listen(final Consumer<String> work) {
+    /**
+     * 每个域名每分钟允许由文件修改触发的更新次数
+     */
+    private static final int PUSH_BURST = 2;
+
+    /**
+     * 证书文件路径 -> 域名 索引，重新加载配置后替换
+     */
+    private static volatile CertPathIndex certPathIndex;
+
+    private static KeyedDebounce<String> debounce;
+
+    private static KeyedThrottle<String> throttle;
+
+    private static Function<String, CompletableFuture<?>> work;
+
+    private static CertFileWatcher certFileWatcher;
+
+    /**
+     * 域名在防抖窗口内第一次监听到修改的时间
+     */
+    private static final Map<String, Long> FIRST_EVENT_TIMES = new ConcurrentHashMap<>();
+
+    /**
+     * 监听证书文件的修改，按域名防抖后执行更新任务
+     *
+     * @param work 更新单个域名的任务 非空，返回任务完成时完成的 future
+     */
+    public static synchronized void listen(final Function<String, CompletableFuture<?>> work) {
+        Objects.requireNonNull(work, "更新任务不能为空");
         AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
-        WatchMonitor.createAll(aliCdnProperties.getSslPath(), new DelayWatcher(new SimpleWatcher() {
-            @Override
-            public void onModify(WatchEvent<?> event, Path currentPath) {
-                Path filePath = (Path) event.context();
-                String fileName = filePath.toFile()
-                        .getName();
-                // 但公钥或者私钥发生变化时
-                if (aliCdnProperties.getPubes().contains(fileName) ||
-                        aliCdnProperties.getPries().contains(fileName)) {
-                    log.info("监听到 {} 被修改，尝试执行更新任务", fileName);
-                    // 主动更新一次
-                    // 此处可优化成只更新变动的域名
-                    work.accept(null);
-                }
-            }
-        }, aliCdnProperties.getFileModifyListenDelay())).start();
+        // 按域名防抖，同一个域名在延迟时间内的多次修改只会触发一次更新
+        debounce = KeyedDebounce.init("listen-file-modify",
+                aliCdnProperties.getFileModifyListenDelay(), TimeUnit.MILLISECONDS);
+        Metrics.INSTANCE.register("listen-file-modify", debounce);
+        // 更新任务本身是异步的，直接在当前线程提交
+        throttle = KeyedThrottle.init("listen-file-modify", PUSH_BURST / 60D, PUSH_BURST,
+                Runnable::run, KeyedThrottle.Policy.DEFER);
+        Metrics.INSTANCE.register("listen-file-modify", throttle);
+        ListenFileModify.work = work;
+        ListenFileModify.reindex(aliCdnProperties);
+    }
+
+    /**
+     * 根据新的配置重建证书文件索引，并更新需要监听的证书文件
+     * <p>
+     * 已经进入防抖的域名不受影响
+     *
+     * @param aliCdnProperties 配置 非空
+     */
+    public static synchronized void reindex(final AliCdnProperties aliCdnProperties) {
+        Objects.requireNonNull(aliCdnProperties, "配置不能为空");
+        certPathIndex = CertPathIndex.build(aliCdnProperties);
+        // 尚未开始监听
+        if (Objects.isNull(work)) {
+            return;
+        }
+        if (Objects.isNull(certFileWatcher)) {
+            certFileWatcher = CertFileWatcher.start("listen-file-modify", certPathIndex.paths(),
+                    ListenFileModify::onModify);
+            return;
+        }
+        certFileWatcher.reindex(certPathIndex.paths());
+    }
+
+    private static void onModify(Path filePath) {
+        // 公钥或者私钥发生变化时，只更新关联的域名
+        Set<String> domains = certPathIndex.lookup(filePath);
+        if (domains.isEmpty()) {
+            return;
+        }
+        log.info("监听到 {} 发生变化，尝试执行 {} 的更新任务", filePath, domains);
+        long now = System.nanoTime();
+        for (String domain : domains) {
+            FIRST_EVENT_TIMES.putIfAbsent(domain, now);
+            debounce.debounce(domain, () -> throttle.throttle(domain, () -> {
+                Long eventTime = FIRST_EVENT_TIMES.remove(domain);
+                work.apply(domain)
+                        .whenComplete((result, e) -> {
+                            if (Objects.nonNull(eventTime)) {
+                                Metrics.INSTANCE.histogram("alicdn_watch_to_push_latency_seconds",
+                                                "监听到证书文件修改到证书更新完成的耗时")
+                                        .record(System.nanoTime() - eventTime);
+                            }
+                        });
+            }));
+        }
     }
 
 }
@@ -0,0 +1,70 @@
+package top.wuhunyu.alicdn.handler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import top.wuhunyu.alicdn.core.Metrics;
+import top.wuhunyu.alicdn.properties.AliCdnProperties;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 指标服务
+ * <p>
+ * 使用 jdk 自带的 {@link HttpServer}，在 /metrics 输出 Prometheus 文本格式的指标
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 19:50
+ **/
+
+@Slf4j
+public class MetricsServer {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private MetricsServer() {
+    }
+
+    /**
+     * 启动指标服务，端口为 0 时不启动
+     */
+    public static void start() {
+        int port = AliCdnProperties.getInstance()
+                .getMetricsPort();
+        if (port == 0) {
+            return;
+        }
+        HttpServer server;
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            log.error("指标服务启动失败，端口：{}，异常信息：", port, e);
+            return;
+        }
+        server.createContext("/metrics", MetricsServer::handle);
+        // 使用 HttpServer 自带的调度线程处理请求
+        server.setExecutor(null);
+        server.start();
+        log.info("指标服务已启动，地址：http://0.0.0.0:{}/metrics", port);
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = Metrics.INSTANCE.scrape()
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+}
@@ -1,23 +1,61 @@
 package top.wuhunyu.alicdn.handler;
 
-import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.io.IORuntimeException;
+import cn.hutool.core.collection.ListUtil;
 import com.aliyun.apache.hc.core5.http.HttpStatus;
+import com.aliyun.sdk.service.cdn20180510.models.BatchSetCdnDomainServerCertificateRequest;
+import com.aliyun.sdk.service.cdn20180510.models.BatchSetCdnDomainServerCertificateResponse;
+import com.aliyun.sdk.service.cdn20180510.models.BatchSetCdnDomainServerCertificateResponseBody;
 import com.aliyun.sdk.service.cdn20180510.models.SetCdnDomainSSLCertificateRequest;
 import com.aliyun.sdk.service.cdn20180510.models.SetCdnDomainSSLCertificateResponse;
 import com.aliyun.sdk.service.cdn20180510.models.SetCdnDomainSSLCertificateResponseBody;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
+import top.wuhunyu.alicdn.core.CertFingerprintStore;
+import top.wuhunyu.alicdn.core.CertMaterialCache;
+import top.wuhunyu.alicdn.core.CertValidator;
+import top.wuhunyu.alicdn.core.CircuitBreaker;
+import top.wuhunyu.alicdn.core.HashedWheelTimer;
+import top.wuhunyu.alicdn.core.Metrics;
 import top.wuhunyu.alicdn.core.MyAliClient;
+import top.wuhunyu.alicdn.core.PushJournal;
+import top.wuhunyu.alicdn.core.RetryScheduler;
+import top.wuhunyu.alicdn.core.RunScope;
+import top.wuhunyu.alicdn.model.AliAccount;
+import top.wuhunyu.alicdn.model.CdnCertInfo;
+import top.wuhunyu.alicdn.model.CertMaterial;
+import top.wuhunyu.alicdn.model.PushResult;
+import top.wuhunyu.alicdn.model.RunResult;
+import top.wuhunyu.alicdn.model.TriggerSource;
 import top.wuhunyu.alicdn.properties.AliCdnProperties;
 
-import java.io.File;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 /**
  * 修改阿里云 CDN https 证书
@@ -29,98 +67,990 @@ import java.util.Optional;
 @Slf4j
 public class SetCdnDomainSSLCertificate {
 
-    private static List<SetCdnDomainSSLCertificateRequest> buildSetCdnDomainSSLCertificateRequests(String domain) {
+    /**
+     * 证书修改请求的重试调度器
+     */
+    private static final RetryScheduler RETRY_SCHEDULER;
+
+    /**
+     * 可重试的阿里云错误码关键字
+     */
+    private static final List<String> RETRYABLE_ERROR_CODES = List.of(
+            "Throttling", "ServiceUnavailable", "InternalError", "Timeout");
+
+    /**
+     * 异步执行 {@link #run} 的虚拟线程
+     */
+    private static final ExecutorService RUN_EXECUTOR = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+            .name("push-run-", 0)
+            .factory());
+
+    /**
+     * 低内存模式下同时读取 与 校验证书文件的域名数
+     * <p>
+     * 虚拟线程读取文件时占用载体线程，ForkJoinPool 会临时创建新的载体线程补偿，
+     * 上千个域名同时读取时载体线程数远超 CPU 核数；限制之后读取文件补偿的载体线程不超过 CPU 核数
+     */
+    private static final Semaphore LEAN_READ_PERMITS = new Semaphore(Runtime.getRuntime()
+            .availableProcessors());
+
+    /**
+     * 复用证书模式下，证书名称的前缀
+     */
+    static final String CERT_NAME_PREFIX = "alicdn-";
+
+    /**
+     * 域名 -> 进行中的证书更新
+     * <p>
+     * 启动、定时任务、文件监听可能同时触发同一个域名，同一时刻每个域名只有一次更新，其余触发共享它的结果
+     */
+    private static final Map<String, Flight> FLIGHTS = new ConcurrentHashMap<>();
+
+    static {
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        RETRY_SCHEDULER = aliCdnProperties.getLeanMode() ?
+                RetryScheduler.init("set-cdn-domain-ssl-certificate-retry",
+                        aliCdnProperties.getRetryTimeWhenException(),
+                        aliCdnProperties.getRetryBaseDelay(),
+                        aliCdnProperties.getRetryMaxDelay(),
+                        TimeUnit.MILLISECONDS,
+                        HashedWheelTimer.shared()) :
+                RetryScheduler.init("set-cdn-domain-ssl-certificate-retry",
+                        aliCdnProperties.getRetryTimeWhenException(),
+                        aliCdnProperties.getRetryBaseDelay(),
+                        aliCdnProperties.getRetryMaxDelay(),
+                        TimeUnit.MILLISECONDS);
+        Metrics.INSTANCE.gauge("alicdn_push_in_flight", "全部阿里云客户端正在执行的请求数",
+                MyAliClient.INSTANCE::inFlight);
+        Metrics.INSTANCE.gauge("alicdn_push_queued", "全部阿里云客户端排队中的请求数",
+                MyAliClient.INSTANCE::queued);
+        Metrics.INSTANCE.counter("alicdn_push_retries_total", "证书修改请求的累计重试次数", RETRY_SCHEDULER::retries);
+    }
+
+    /**
+     * 构建证书修改请求，校验失败的域名只打印日志
+     * <p>
+     * 包内可见：同包的 BuildRequestsBenchmark 需要单独测量构建请求的开销，不经过调度器与网络请求
+     *
+     * @param domains 域名，为空时构建全部域名的请求
+     * @return 请求对象，证书指纹 与 解析后的证书
+     */
+    static List<ImmutableTriple<SetCdnDomainSSLCertificateRequest, String, X509Certificate>>
+    buildSetCdnDomainSSLCertificateRequests(Collection<String> domains) {
+        return SetCdnDomainSSLCertificate.buildSetCdnDomainSSLCertificateRequests(domains, new LinkedHashMap<>());
+    }
+
+    /**
+     * 构建证书修改请求
+     * <p>
+     * 每个域名在 {@link #RUN_EXECUTOR} 的一个虚拟线程中读取并校验公私钥，全部完成后才返回，校验失败的域名不会发出任何请求
+     *
+     * @param domains  域名，为空时构建全部域名的请求
+     * @param rejected 读取 或者 校验失败的 域名 -> 原因 非空
+     * @return 请求对象，证书指纹 与 解析后的证书
+     */
+    static List<ImmutableTriple<SetCdnDomainSSLCertificateRequest, String, X509Certificate>>
+    buildSetCdnDomainSSLCertificateRequests(Collection<String> domains, Map<String, String> rejected) {
         // 获取 cdn 配置属性
         AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
 
         // 是否存在于需要更新的域名列表
-        List<String> domains = aliCdnProperties.getDomains();
+        Set<String> targets = Objects.isNull(domains) ? Set.of() : new HashSet<>(domains);
+        List<String> allDomains = aliCdnProperties.getDomains();
         List<String> pubes = aliCdnProperties.getPubes();
         List<String> pries = aliCdnProperties.getPries();
+        if (Objects.isNull(domains)) {
+            CertValidator.INSTANCE.retain(allDomains);
+        }
+        boolean lean = aliCdnProperties.getLeanMode();
 
-        // 需要更新的 域名，公钥，私钥
-        List<ImmutableTriple<String, String, String>> triples = new ArrayList<>();
-        int n = domains.size();
+        // 需要更新的 域名 -> 读取与校验的结果，读取与校验互不依赖，并行执行
+        Map<String, Future<ImmutableTriple<SetCdnDomainSSLCertificateRequest, String, X509Certificate>>> futures =
+                new LinkedHashMap<>();
+        int n = allDomains.size();
         for (int i = 0; i < n; i++) {
-            String curDomain = domains.get(i);
+            String curDomain = allDomains.get(i);
             String curPub = pubes.get(i);
             String curPri = pries.get(i);
-            if (StringUtils.isBlank(domain) || Objects.equals(domain, curDomain)) {
-                triples.add(ImmutableTriple.of(curDomain, curPub, curPri));
+            if (Objects.isNull(domains) || targets.contains(curDomain)) {
+                futures.put(curDomain, RUN_EXECUTOR.submit(() -> lean ?
+                        SetCdnDomainSSLCertificate.buildRequestLean(aliCdnProperties, curDomain, curPub, curPri) :
+                        SetCdnDomainSSLCertificate.buildRequest(aliCdnProperties, curDomain, curPub, curPri)));
             }
         }
 
         // 请求对象容器
-        List<SetCdnDomainSSLCertificateRequest> ans = new ArrayList<>(triples.size());
+        List<ImmutableTriple<SetCdnDomainSSLCertificateRequest, String, X509Certificate>> ans =
+                new ArrayList<>(futures.size());
+        futures.forEach((curDomain, future) -> {
+            try {
+                ans.add(future.get());
+            } catch (ExecutionException e) {
+                rejected.put(curDomain, Objects.toString(e.getCause().getMessage(), e.getCause().toString()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(Boolean.TRUE);
+                rejected.put(curDomain, "读取证书时被中断");
+            }
+        });
+        return ans;
+    }
+
+    /**
+     * 低内存模式下，限制同时读取证书文件的域名数之后 构建一个域名的证书修改请求
+     *
+     * @throws InterruptedException 等待时被中断
+     */
+    private static ImmutableTriple<SetCdnDomainSSLCertificateRequest, String, X509Certificate> buildRequestLean(
+            AliCdnProperties aliCdnProperties, String curDomain, String curPub, String curPri)
+            throws InterruptedException {
+        LEAN_READ_PERMITS.acquire();
+        try {
+            return SetCdnDomainSSLCertificate.buildRequest(aliCdnProperties, curDomain, curPub, curPri);
+        } finally {
+            LEAN_READ_PERMITS.release();
+        }
+    }
+
+    /**
+     * 读取公私钥，校验通过后构建一个域名的证书修改请求
+     *
+     * @throws IllegalStateException 读取 或者 校验失败
+     */
+    private static ImmutableTriple<SetCdnDomainSSLCertificateRequest, String, X509Certificate> buildRequest(
+            AliCdnProperties aliCdnProperties, String curDomain, String curPub, String curPri) {
+        // 读取公私钥，文件未发生变化时直接使用缓存的内容
+        String pubPath = aliCdnProperties.resolveCertPath(curDomain, curPub);
+        CertMaterial pubMaterial;
+        try {
+            pubMaterial = CertMaterialCache.INSTANCE.get(Paths.get(pubPath));
+        } catch (IOException e) {
+            throw new IllegalStateException("读取公钥 " + pubPath + " 异常");
+        }
+
+        String priPath = aliCdnProperties.resolveCertPath(curDomain, curPri);
+        String priStr;
+        try {
+            priStr = CertMaterialCache.INSTANCE.get(Paths.get(priPath))
+                    .getPem();
+        } catch (IOException e) {
+            throw new IllegalStateException("读取私钥 " + priPath + " 异常");
+        }
+        String pubStr = pubMaterial.getPem();
+        String fingerprint = CertFingerprintStore.fingerprint(pubStr, priStr);
+
+        // 上传之前校验公私钥，校验失败的域名在文件修改之前不再更新
+        if (aliCdnProperties.getCertValidation()) {
+            String error = CertValidator.INSTANCE.check(curDomain, fingerprint, pubStr, priStr);
+            if (Objects.nonNull(error)) {
+                throw new IllegalStateException(error);
+            }
+        }
 
-        for (ImmutableTriple<String, String, String> triple : triples) {
-            String curDomain = triple.getLeft();
-            String curPub = triple.getMiddle();
-            String curPri = triple.getRight();
+        // 构建 cdn 证书修改请求对象
+        SetCdnDomainSSLCertificateRequest request = SetCdnDomainSSLCertificate.buildUploadRequest(curDomain,
+                SetCdnDomainSSLCertificate.generateCertName(curDomain, Boolean.FALSE), pubStr, priStr);
+        return ImmutableTriple.of(request, fingerprint, pubMaterial.getCertificate());
+    }
+
+    private static SetCdnDomainSSLCertificateRequest buildUploadRequest(String domain, String certName,
+                                                                        String pub, String pri) {
+        return SetCdnDomainSSLCertificateRequest.builder()
+                .domainName(domain)
+                .certName(certName)
+                .certType("upload")
+                .SSLProtocol("on")
+                .SSLPub(pub)
+                .SSLPri(pri)
+                .build();
+    }
+
+    /**
+     * 生成证书名称
+     *
+     * @param source      域名 或 证书指纹
+     * @param fingerprint true：source 为证书指纹，同一个证书总是生成相同的名称；false：source 为域名
+     * @return 证书名称
+     */
+    private static String generateCertName(String source, boolean fingerprint) {
+        if (fingerprint) {
+            return CERT_NAME_PREFIX + source.substring(0, Math.min(source.length(), 32));
+        }
+        return source + "-" + System.currentTimeMillis();
+    }
+
+    /**
+     * 修改阿里云 CDN https 证书，证书未发生变化的域名将被跳过
+     *
+     * @param domain 域名，为空时更新全部域名
+     * @return 全部域名更新完成时完成的 future，包含每个域名的更新结果
+     */
+    public static CompletableFuture<List<PushResult>> invoke(String domain) {
+        return SetCdnDomainSSLCertificate.invoke(domain, Boolean.FALSE);
+    }
 
-            // 读取公私钥
-            String pubPath = aliCdnProperties.getSslPath() + File.separator + curDomain + File.separator + curPub;
-            String pubStr = "";
+    /**
+     * 修改阿里云 CDN https 证书
+     *
+     * @param domain 域名，为空时更新全部域名
+     * @param force  是否强制更新，true：忽略证书指纹，总是更新
+     * @return 全部域名更新完成时完成的 future，包含每个域名的更新结果
+     */
+    public static CompletableFuture<List<PushResult>> invoke(String domain, boolean force) {
+        return SetCdnDomainSSLCertificate.invoke(domain, force, TriggerSource.MANUAL);
+    }
+
+    /**
+     * 修改阿里云 CDN https 证书
+     *
+     * @param domain  域名，为空时更新全部域名
+     * @param force   是否强制更新，true：忽略证书指纹，总是更新
+     * @param trigger 触发来源 非空，用于指标统计
+     * @return 全部域名更新完成时完成的 future，包含每个域名的更新结果
+     */
+    public static CompletableFuture<List<PushResult>> invoke(String domain, boolean force, TriggerSource trigger) {
+        return SetCdnDomainSSLCertificate.invoke(StringUtils.isBlank(domain) ? null : List.of(domain), force, trigger);
+    }
+
+    /**
+     * 修改阿里云 CDN https 证书
+     *
+     * @param domains 域名，为空时更新全部域名
+     * @param force   是否强制更新，true：忽略证书指纹，总是更新
+     * @return 全部域名更新完成时完成的 future，包含每个域名的更新结果
+     */
+    public static CompletableFuture<List<PushResult>> invoke(Collection<String> domains, boolean force) {
+        return SetCdnDomainSSLCertificate.invoke(domains, force, TriggerSource.MANUAL);
+    }
+
+    /**
+     * 修改阿里云 CDN https 证书
+     *
+     * @param domains 域名，为空时更新全部域名
+     * @param force   是否强制更新，true：忽略证书指纹，总是更新
+     * @param trigger 触发来源 非空，用于指标统计
+     * @return 全部域名更新完成时完成的 future，包含每个域名的更新结果
+     */
+    public static CompletableFuture<List<PushResult>> invoke(Collection<String> domains, boolean force,
+                                                             TriggerSource trigger) {
+        Objects.requireNonNull(trigger, "触发来源不能为空");
+        List<CompletableFuture<PushResult>> futures = List.copyOf(SetCdnDomainSSLCertificate.dispatch(domains, force,
+                new PushContext(trigger, null)).values());
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(v -> {
+                    List<PushResult> results = futures.stream()
+                            .map(CompletableFuture::join)
+                            .toList();
+                    SetCdnDomainSSLCertificate.summary(results, trigger);
+                    return results;
+                });
+    }
+
+    /**
+     * 在结构化的执行范围内修改阿里云 CDN https 证书，阻塞到全部域名完成 或者 超时
+     * <p>
+     * 等待全部域名的结果；超时 或者 程序关闭时，取消排队中的请求与等待中的重试，对应的域名结果为已取消
+     *
+     * @param domains 域名，为空时更新全部域名
+     * @param force   是否强制更新，true：忽略证书指纹，总是更新
+     * @param trigger 触发来源 非空，用于指标统计
+     * @return 汇总结果
+     */
+    public static RunResult run(Collection<String> domains, boolean force, TriggerSource trigger) {
+        Objects.requireNonNull(trigger, "触发来源不能为空");
+        long start = System.nanoTime();
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        List<PushResult> results = new ArrayList<>();
+        String cancelReason;
+        try (RunScope scope = RunScope.open("push-run-" + trigger.label(),
+                Duration.ofMillis(aliCdnProperties.getRunTimeout()))) {
+            Map<String, CompletableFuture<PushResult>> futures = SetCdnDomainSSLCertificate.dispatch(domains,
+                    force, new PushContext(trigger, scope));
             try {
-                pubStr = FileUtil.readString(pubPath, StandardCharsets.UTF_8);
-            } catch (IORuntimeException e) {
-                throw new RuntimeException("读取公钥 " + pubPath + " 异常");
+                scope.join(CompletableFuture.allOf(futures.values()
+                        .toArray(CompletableFuture[]::new)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                scope.cancel("等待时被中断");
+            }
+            cancelReason = scope.cancelReason();
+            futures.forEach((domain, future) -> results.add(future.state() == Future.State.SUCCESS ?
+                    future.resultNow() :
+                    SetCdnDomainSSLCertificate.cancelledResult(domain, Objects.toString(scope.cancelReason(),
+                            String.valueOf(future.state())))));
+        }
+        SetCdnDomainSSLCertificate.summary(results, trigger);
+        return RunResult.builder()
+                .trigger(trigger)
+                .results(results)
+                .elapsed(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .cancelReason(cancelReason)
+                .build();
+    }
+
+    /**
+     * 在新的虚拟线程中执行 {@link #run}，不阻塞调用方
+     *
+     * @param domains 域名，为空时更新全部域名
+     * @param force   是否强制更新，true：忽略证书指纹，总是更新
+     * @param trigger 触发来源 非空，用于指标统计
+     * @return 汇总结果的 future
+     */
+    public static CompletableFuture<RunResult> runAsync(Collection<String> domains, boolean force,
+                                                        TriggerSource trigger) {
+        return CompletableFuture.supplyAsync(() -> SetCdnDomainSSLCertificate.run(domains, force, trigger),
+                RUN_EXECUTOR);
+    }
+
+    /**
+     * 构建请求并发起证书修改，不等待结果
+     * <p>
+     * 低内存模式下同样每次运行创建 pending、changed、按账号分组的 groups，以及每个域名的请求三元组，
+     * 单个域名的更新还会创建 {@code List.of(domain)}；它们只在本次运行中被引用，运行结束后即可回收，
+     * 不计入常驻内存（见 FootprintTest），因此没有为低内存模式单独复用
+     *
+     * @return 域名 -> 该域名的更新结果
+     */
+    private static Map<String, CompletableFuture<PushResult>> dispatch(Collection<String> domains, boolean force,
+                                                                       PushContext context) {
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        CertFingerprintStore fingerprintStore = CertFingerprintStore.INSTANCE;
+        Map<String, CompletableFuture<PushResult>> ans = new LinkedHashMap<>();
+        // 需要更新的 域名 -> 由更新流程完成的 future
+        Map<String, CompletableFuture<PushResult>> pending = new HashMap<>();
+        // 证书发生变化的请求
+        List<ImmutableTriple<SetCdnDomainSSLCertificateRequest, String, X509Certificate>> changed = new ArrayList<>();
+        // 构建请求对象，读取 或者 校验失败的域名不发出请求
+        Map<String, String> rejected = new LinkedHashMap<>();
+        for (ImmutableTriple<SetCdnDomainSSLCertificateRequest, String, X509Certificate> triple :
+                SetCdnDomainSSLCertificate.buildSetCdnDomainSSLCertificateRequests(domains, rejected)) {
+            final String curDomain = triple.getLeft().getDomainName();
+            // 证书未发生变化时跳过
+            if (!force && fingerprintStore.isUnchanged(curDomain, triple.getMiddle())) {
+                log.info("=> 阿里云 {} CDN https 证书未发生变化，跳过更新", curDomain);
+                ans.put(curDomain, CompletableFuture.completedFuture(SetCdnDomainSSLCertificate.skippedResult(curDomain)));
+                continue;
+            }
+            // 记录本次尝试与结果，重启后只更新 CDN 上的证书与本地证书不一致的域名；
+            // 结果记录之后调用方才能拿到结果，单次运行模式下退出时不会丢失
+            CompletableFuture<PushResult> future = new CompletableFuture<>();
+            CompletableFuture<PushResult> recorded = future.thenApply(result -> {
+                PushJournal.INSTANCE.outcome(curDomain, triple.getMiddle(), result);
+                return result;
+            });
+            // 已有进行中的更新时，共享它 或者 它之后的一次更新的结果
+            CompletableFuture<PushResult> shared = SetCdnDomainSSLCertificate.attach(curDomain, triple.getMiddle(),
+                    force, context, recorded);
+            ans.put(curDomain, shared);
+            if (shared != recorded) {
+                continue;
+            }
+            changed.add(triple);
+            pending.put(curDomain, future);
+            PushJournal.INSTANCE.attempt(curDomain, triple.getMiddle());
+        }
+
+        rejected.forEach((curDomain, reason) -> {
+            log.warn("=> 阿里云 {} CDN https 证书未更新：{}", curDomain, reason);
+            ans.put(curDomain, CompletableFuture.completedFuture(PushResult.builder()
+                    .domain(curDomain)
+                    .status(PushResult.PushStatus.FAILED)
+                    .message(reason)
+                    .build()));
+        });
+
+        // 查询 CDN 当前使用的证书，与本地证书一致的域名无需更新
+        CompletableFuture<Map<String, CdnCertInfo>> liveFuture = force ||
+                !aliCdnProperties.getPreflight() ||
+                changed.isEmpty() ?
+                CompletableFuture.completedFuture(Map.of()) :
+                DescribeCdnHttpsDomainList.query(changed.stream()
+                        .map(triple -> triple.getLeft().getDomainName())
+                        .toList());
+
+        // 任何一步异常都不能让 pending 中的 future 悬而未决，否则单次运行等到超时，进行中的更新永远不会结束
+        liveFuture.exceptionally(e -> Map.of()).whenComplete((liveCerts, e) -> {
+            try {
+                SetCdnDomainSSLCertificate.pushChanged(changed, Objects.requireNonNullElse(liveCerts, Map.of()),
+                        pending, context);
+            } catch (RuntimeException ex) {
+                log.warn("<= 修改阿里云 CDN https 证书异常，未完成的域名按失败处理：", ex);
+                String message = Objects.toString(ex.getMessage(), ex.toString());
+                pending.forEach((curDomain, future) -> future.complete(PushResult.builder()
+                        .domain(curDomain)
+                        .status(PushResult.PushStatus.FAILED)
+                        .message(message)
+                        .build()));
+            }
+        });
+        return ans;
+    }
+
+    /**
+     * 跳过 CDN 当前使用的证书与本地证书一致的域名，其余域名按 阿里云账号 + 证书指纹 分组发起证书修改
+     *
+     * @param changed   证书发生变化的请求 非空
+     * @param liveCerts CDN 当前使用的证书 非空
+     * @param pending   域名 -> 由更新流程完成的 future 非空
+     * @param context   本次更新的上下文 非空
+     */
+    private static void pushChanged(
+            List<ImmutableTriple<SetCdnDomainSSLCertificateRequest, String, X509Certificate>> changed,
+            Map<String, CdnCertInfo> liveCerts, Map<String, CompletableFuture<PushResult>> pending,
+            PushContext context) {
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        CertFingerprintStore fingerprintStore = CertFingerprintStore.INSTANCE;
+        // 需要更新的请求，按 阿里云账号 + 证书指纹 分组，批量请求与复用证书都不能跨账号
+        Map<ImmutablePair<AliAccount, String>, List<SetCdnDomainSSLCertificateRequest>> groups =
+                new LinkedHashMap<>();
+        for (ImmutableTriple<SetCdnDomainSSLCertificateRequest, String, X509Certificate> triple : changed) {
+            final String curDomain = triple.getLeft().getDomainName();
+            if (DescribeCdnHttpsDomainList.matches(liveCerts.get(curDomain), triple.getRight(),
+                    SetCdnDomainSSLCertificate.generateCertName(triple.getMiddle(), Boolean.TRUE))) {
+                log.info("=> 阿里云 {} CDN 正在使用的 https 证书与本地证书一致，跳过更新", curDomain);
+                fingerprintStore.update(curDomain, triple.getMiddle());
+                pending.get(curDomain).complete(SetCdnDomainSSLCertificate.skippedResult(curDomain));
+                continue;
+            }
+            groups.computeIfAbsent(ImmutablePair.of(Objects.requireNonNull(aliCdnProperties.accountOf(curDomain),
+                                    "域名 " + curDomain + " 没有对应的阿里云账号"), triple.getMiddle()),
+                            key -> new ArrayList<>())
+                    .add(triple.getLeft());
+        }
+
+        groups.forEach((key, requests) -> (aliCdnProperties.getCertReuse() ?
+                SetCdnDomainSSLCertificate.pushReuse(requests, key.getLeft(), key.getRight(), context) :
+                SetCdnDomainSSLCertificate.pushGroup(requests, key.getLeft(), key.getRight(), context))
+                .whenComplete((results, e) -> {
+                    if (Objects.nonNull(results)) {
+                        for (PushResult result : results) {
+                            CompletableFuture<PushResult> future = pending.get(result.getDomain());
+                            if (Objects.isNull(future)) {
+                                log.warn("<= 阿里云 CDN 返回了未请求的域名 {} 的更新结果，忽略", result.getDomain());
+                                continue;
+                            }
+                            future.complete(result);
+                        }
+                    }
+                    // 没有结果的域名按失败处理
+                    for (SetCdnDomainSSLCertificateRequest request : requests) {
+                        pending.get(request.getDomainName()).complete(PushResult.builder()
+                                .domain(request.getDomainName())
+                                .status(PushResult.PushStatus.FAILED)
+                                .message(Objects.isNull(e) ? "没有更新结果" : e.getMessage())
+                                .build());
+                    }
+                }));
+    }
+
+    /**
+     * 登记域名的更新
+     * <p>
+     * 没有进行中的更新时，登记为进行中的更新；进行中的更新证书指纹一致时，共享它的结果；
+     * 证书发生变化时，在它完成后再更新一次，期间的全部变化合并为这一次，使用届时最新的证书
+     *
+     * @return 登记成功时为 future 本身，否则为共享的 future
+     */
+    private static CompletableFuture<PushResult> attach(String domain, String fingerprint, boolean force,
+                                                        PushContext context, CompletableFuture<PushResult> future) {
+        AtomicReference<CompletableFuture<PushResult>> shared = new AtomicReference<>(future);
+        AtomicReference<CompletableFuture<PushResult>> followUp = new AtomicReference<>();
+        FLIGHTS.compute(domain, (key, cur) -> {
+            if (Objects.isNull(cur)) {
+                return new Flight(fingerprint, future);
+            }
+            if (Objects.equals(cur.fingerprint, fingerprint)) {
+                shared.set(cur.future);
+            } else {
+                if (Objects.isNull(cur.followUp)) {
+                    cur.followUp = new CompletableFuture<>();
+                    cur.followUpTrigger = context.trigger();
+                }
+                cur.followUpForce |= force;
+                followUp.set(cur.followUp);
+                shared.set(cur.followUp);
             }
+            return cur;
+        });
+        if (shared.get() != future) {
+            log.info("=> 阿里云 {} CDN https 证书正在更新中，{}", domain,
+                    Objects.isNull(followUp.get()) ? "共享本次更新的结果" : "完成后再更新一次");
+            Metrics.INSTANCE.counter("alicdn_push_coalesced_total", "合并到进行中的证书更新的触发次数",
+                            "trigger", context.trigger().label())
+                    .increment();
+            return shared.get();
+        }
+        future.whenComplete((result, e) -> SetCdnDomainSSLCertificate.land(domain, future));
+        return future;
+    }
 
-            String priPath = aliCdnProperties.getSslPath() + File.separator + curDomain + File.separator + curPri;
-            String priStr = "";
+    /**
+     * 进行中的更新完成，存在排队的后续更新时重新读取证书并更新
+     */
+    private static void land(String domain, CompletableFuture<PushResult> future) {
+        AtomicReference<Flight> landed = new AtomicReference<>();
+        FLIGHTS.computeIfPresent(domain, (key, cur) -> {
+            if (cur.future != future) {
+                return cur;
+            }
+            landed.set(cur);
+            return null;
+        });
+        Flight flight = landed.get();
+        if (Objects.isNull(flight) || Objects.isNull(flight.followUp)) {
+            return;
+        }
+        // 重新读取证书文件，不占用请求的回调线程；
+        // 后续更新由多次触发共享，使用自己的执行范围，不随其中任何一次触发的截止时间 或者 取消而取消
+        CompletableFuture.runAsync(() -> flight.followUp.complete(SetCdnDomainSSLCertificate.followUp(domain,
+                        flight.followUpForce, flight.followUpTrigger)), RUN_EXECUTOR)
+                .exceptionally(e -> {
+                    log.warn("<= 阿里云 {} CDN https 证书的后续更新失败：", domain, e);
+                    flight.followUp.complete(PushResult.builder()
+                            .domain(domain)
+                            .status(PushResult.PushStatus.FAILED)
+                            .message(e.getMessage())
+                            .build());
+                    return null;
+                });
+    }
+
+    /**
+     * 在新的执行范围内执行一个域名的后续更新，阻塞到完成 或者 超时
+     *
+     * @return 后续更新的结果
+     */
+    private static PushResult followUp(String domain, boolean force, TriggerSource trigger) {
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        try (RunScope scope = RunScope.open("push-follow-up-" + trigger.label(),
+                Duration.ofMillis(aliCdnProperties.getRunTimeout()))) {
+            CompletableFuture<PushResult> future = SetCdnDomainSSLCertificate.dispatch(List.of(domain), force,
+                            new PushContext(trigger, scope))
+                    .getOrDefault(domain, CompletableFuture.completedFuture(
+                            SetCdnDomainSSLCertificate.cancelledResult(domain, "域名已不在配置中")));
             try {
-                priStr = FileUtil.readString(priPath, StandardCharsets.UTF_8);
-            } catch (IORuntimeException e) {
-                throw new RuntimeException("读取私钥 " + priPath + " 异常");
+                scope.join(future);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                scope.cancel("等待时被中断");
+            }
+            return future.state() == Future.State.SUCCESS ?
+                    future.resultNow() :
+                    SetCdnDomainSSLCertificate.cancelledResult(domain, Objects.toString(scope.cancelReason(),
+                            String.valueOf(future.state())));
+        }
+    }
+
+    private static PushResult cancelledResult(String domain, String reason) {
+        return PushResult.builder()
+                .domain(domain)
+                .status(PushResult.PushStatus.CANCELLED)
+                .message(reason)
+                .build();
+    }
+
+    private static PushResult skippedResult(String domain) {
+        return PushResult.builder()
+                .domain(domain)
+                .status(PushResult.PushStatus.SKIPPED)
+                .build();
+    }
+
+    /**
+     * 修改共用同一个证书的域名
+     * <p>
+     * 未开启批量模式，或者证书只被一个域名使用时，逐个修改；否则批量修改
+     *
+     * @param requests    证书修改请求，证书内容一致 非空
+     * @param account     阿里云账号 非空
+     * @param fingerprint 证书指纹 非空
+     * @return 每个域名的更新结果
+     */
+    private static CompletableFuture<List<PushResult>> pushGroup(List<SetCdnDomainSSLCertificateRequest> requests,
+                                                                 AliAccount account,
+                                                                 String fingerprint,
+                                                                 PushContext context) {
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        List<CompletableFuture<List<PushResult>>> futures = new ArrayList<>();
+        if (!aliCdnProperties.getBatchMode() || requests.size() == 1) {
+            for (SetCdnDomainSSLCertificateRequest request : requests) {
+                futures.add(SetCdnDomainSSLCertificate.push(request, account, fingerprint, context)
+                        .thenApply(List::of));
+            }
+        } else {
+            for (List<SetCdnDomainSSLCertificateRequest> batch :
+                    ListUtil.partition(requests, aliCdnProperties.getBatchSize())) {
+                futures.add(SetCdnDomainSSLCertificate.pushBatch(batch, account, fingerprint, context));
             }
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(v -> futures.stream()
+                        .map(CompletableFuture::join)
+                        .flatMap(List::stream)
+                        .toList());
+    }
 
-            // 构建 cdn 证书修改请求对象
-            ans.add(SetCdnDomainSSLCertificateRequest.builder()
-                    .domainName(curDomain)
-                    .certName(SetCdnDomainSSLCertificate.generateCertName(curDomain))
-                    .certType("upload")
+    /**
+     * 复用证书修改共用同一个证书的域名
+     * <p>
+     * 证书名称由证书指纹生成，同一个证书在每个账号下只上传一次，其余域名通过证书名称绑定已上传的证书；
+     * 绑定失败的域名回退为上传证书
+     *
+     * @param requests    证书修改请求，证书内容一致 非空
+     * @param account     阿里云账号 非空
+     * @param fingerprint 证书指纹 非空
+     * @return 每个域名的更新结果
+     */
+    private static CompletableFuture<List<PushResult>> pushReuse(List<SetCdnDomainSSLCertificateRequest> requests,
+                                                                 AliAccount account,
+                                                                 String fingerprint,
+                                                                 PushContext context) {
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        CertFingerprintStore fingerprintStore = CertFingerprintStore.INSTANCE;
+        final String certName = SetCdnDomainSSLCertificate.generateCertName(fingerprint, Boolean.TRUE);
+        // 证书只在上传的账号下可见，默认账号保持原来的记录方式
+        final String uploadedKey = Objects.equals(account.getAccessKeyId(), aliCdnProperties.getAccessKeyId()) ?
+                certName :
+                account.getAccessKeyId() + "/" + certName;
+
+        // 证书已上传过，全部绑定
+        if (fingerprintStore.isUploaded(uploadedKey)) {
+            return SetCdnDomainSSLCertificate.bindWithFallback(requests, account, certName, fingerprint, context);
+        }
+
+        // 先上传一次证书，批量模式下第一批域名一起上传
+        int uploadSize = aliCdnProperties.getBatchMode() ?
+                Math.min(aliCdnProperties.getBatchSize(), requests.size()) :
+                1;
+        List<SetCdnDomainSSLCertificateRequest> uploads = requests.subList(0, uploadSize)
+                .stream()
+                .map(request -> SetCdnDomainSSLCertificate.buildUploadRequest(request.getDomainName(), certName,
+                        request.getSSLPub(), request.getSSLPri()))
+                .toList();
+        List<SetCdnDomainSSLCertificateRequest> rest = requests.subList(uploadSize, requests.size());
+        return SetCdnDomainSSLCertificate.pushGroup(uploads, account, fingerprint, context)
+                .thenCompose(uploadResults -> {
+                    boolean uploaded = uploadResults.stream()
+                            .anyMatch(result -> result.getStatus() == PushResult.PushStatus.SUCCESS);
+                    CompletableFuture<List<PushResult>> restFuture;
+                    if (uploaded) {
+                        fingerprintStore.markUploaded(uploadedKey);
+                        restFuture = SetCdnDomainSSLCertificate.bindWithFallback(rest, account, certName, fingerprint,
+                                context);
+                    } else {
+                        log.warn("<= 上传证书 {} 失败，其余域名逐个上传证书", certName);
+                        restFuture = SetCdnDomainSSLCertificate.pushGroup(rest, account, fingerprint, context);
+                    }
+                    return restFuture.thenApply(restResults -> {
+                        List<PushResult> results = new ArrayList<>(uploadResults);
+                        results.addAll(restResults);
+                        return results;
+                    });
+                });
+    }
+
+    /**
+     * 通过证书名称绑定已上传的证书，绑定失败的域名回退为上传证书
+     */
+    private static CompletableFuture<List<PushResult>> bindWithFallback(List<SetCdnDomainSSLCertificateRequest> requests,
+                                                                        AliAccount account,
+                                                                        String certName,
+                                                                        String fingerprint,
+                                                                        PushContext context) {
+        if (requests.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+        Map<String, SetCdnDomainSSLCertificateRequest> uploadRequests = new LinkedHashMap<>();
+        List<SetCdnDomainSSLCertificateRequest> binds = new ArrayList<>(requests.size());
+        for (SetCdnDomainSSLCertificateRequest request : requests) {
+            uploadRequests.put(request.getDomainName(), request);
+            binds.add(SetCdnDomainSSLCertificateRequest.builder()
+                    .domainName(request.getDomainName())
+                    .certName(certName)
+                    .certType("cas")
+                    .certRegion(aliCdnProperties.getCertRegion())
                     .SSLProtocol("on")
-                    .SSLPub(pubStr)
-                    .SSLPri(priStr)
                     .build());
         }
+        return SetCdnDomainSSLCertificate.pushGroup(binds, account, fingerprint, context)
+                .thenCompose(bindResults -> {
+                    List<PushResult> results = new ArrayList<>(bindResults.size());
+                    List<SetCdnDomainSSLCertificateRequest> fallbacks = new ArrayList<>();
+                    for (PushResult bindResult : bindResults) {
+                        if (bindResult.getStatus() == PushResult.PushStatus.SUCCESS) {
+                            results.add(bindResult);
+                        } else {
+                            fallbacks.add(uploadRequests.get(bindResult.getDomain()));
+                        }
+                    }
+                    if (fallbacks.isEmpty()) {
+                        return CompletableFuture.completedFuture(results);
+                    }
+                    log.warn("<= 绑定证书 {} 失败的域名回退为上传证书：{}", certName, fallbacks.stream()
+                            .map(SetCdnDomainSSLCertificateRequest::getDomainName)
+                            .toList());
+                    return SetCdnDomainSSLCertificate.pushGroup(fallbacks, account, fingerprint, context)
+                            .thenApply(fallbackResults -> {
+                                results.addAll(fallbackResults);
+                                return results;
+                            });
+                });
+    }
 
-        return ans;
+    /**
+     * 修改单个域名的证书
+     * <p>
+     * 由账号对应客户端的调度器控制并发数与每秒请求数，可重试的失败会延迟后重新提交
+     *
+     * @param request     证书修改请求 非空
+     * @param account     阿里云账号 非空
+     * @param fingerprint 证书指纹 非空
+     * @return 更新结果
+     */
+    private static CompletableFuture<PushResult> push(SetCdnDomainSSLCertificateRequest request, AliAccount account,
+                                                      String fingerprint, PushContext context) {
+        final String curDomain = request.getDomainName();
+        final long start = System.nanoTime();
+        CompletableFuture<PushResult> future = context.track(RETRY_SCHEDULER.execute(curDomain,
+                        () -> MyAliClient.INSTANCE.submit(account, client -> context.isCancelled() ?
+                                CompletableFuture.failedFuture(new CancellationException(context.cancelReason())) :
+                                client.setCdnDomainSSLCertificate(request),
+                                (response, e) -> SetCdnDomainSSLCertificate.isRetryable(
+                                        Objects.isNull(response) ? null : response.getStatusCode(), e)),
+                        (response, e) -> SetCdnDomainSSLCertificate.isRetryable(
+                                Objects.isNull(response) ? null : response.getStatusCode(), e)))
+                .thenApply(setCdnDomainSSLCertificateResponse -> {
+                    // 相应状态码
+                    Integer statusCode = setCdnDomainSSLCertificateResponse.getStatusCode();
+                    // 请求id
+                    String requestId = Optional.of(setCdnDomainSSLCertificateResponse)
+                            .map(SetCdnDomainSSLCertificateResponse::getBody)
+                            .map(SetCdnDomainSSLCertificateResponseBody::getRequestId)
+                            .orElse("");
+                    return SetCdnDomainSSLCertificate.toResult(curDomain, fingerprint, statusCode, requestId);
+                }).exceptionally(e -> {
+                    Throwable cause = RetryScheduler.unwrap(e);
+                    if (cause instanceof CancellationException) {
+                        log.warn("<= 修改阿里云 {} CDN https 证书已取消：{}", curDomain, cause.getMessage());
+                        return SetCdnDomainSSLCertificate.cancelledResult(curDomain,
+                                Objects.toString(cause.getMessage(), context.cancelReason()));
+                    }
+                    log.warn("<= 修改阿里云 {} CDN https 证书失败，异常堆栈信息：", curDomain, e);
+                    return PushResult.builder()
+                            .domain(curDomain)
+                            .status(PushResult.PushStatus.FAILED)
+                            .message(e.getMessage())
+                            .build();
+                }).whenComplete((result, e) -> SetCdnDomainSSLCertificate.recordLatency(curDomain, context.trigger(), start));
+        log.info("=> 修改阿里云 {} CDN https 证书请求已提交", curDomain);
+        return future;
     }
 
-    private static String generateCertName(String domain) {
-        return domain + "-" + System.currentTimeMillis();
-    }
-
-    public static void invoke(String domain) {
-        // 构建请求对象
-        for (SetCdnDomainSSLCertificateRequest setCdnDomainSSLCertificateRequest :
-                SetCdnDomainSSLCertificate.buildSetCdnDomainSSLCertificateRequests(domain)) {
-            final String curDomain = setCdnDomainSSLCertificateRequest.getDomainName();
-            // 执行修改
-            MyAliClient.INSTANCE.getAliClient()
-                    .setCdnDomainSSLCertificate(setCdnDomainSSLCertificateRequest)
-                    .thenAccept(setCdnDomainSSLCertificateResponse -> {
-                        // 相应状态码
-                        Integer statusCode = setCdnDomainSSLCertificateResponse.getStatusCode();
-                        if (Objects.equals(statusCode, HttpStatus.SC_OK)) {
-                            log.info("<= 修改阿里云 {} CDN https 证书成功", curDomain);
-                            return;
-                        }
-                        // 请求id
-                        String requestId = Optional.of(setCdnDomainSSLCertificateResponse)
-                                .map(SetCdnDomainSSLCertificateResponse::getBody)
-                                .map(SetCdnDomainSSLCertificateResponseBody::getRequestId)
-                                .orElse("");
-                        log.warn("<= 修改阿里云 {} CDN https 证书失败，状态码：{}，请求id：{}",
-                                curDomain, statusCode, requestId);
-                    }).exceptionally(e -> {
-                        log.warn("<= 修改阿里云 {} CDN https 证书失败，异常堆栈信息：", curDomain, e);
+    /**
+     * 批量修改共用同一个证书的域名
+     * <p>
+     * 只上传一次证书内容，批量请求最终失败时，回退为逐个修改
+     *
+     * @param requests    证书修改请求，证书内容一致 非空
+     * @param account     阿里云账号 非空
+     * @param fingerprint 证书指纹 非空
+     * @return 每个域名的更新结果
+     */
+    private static CompletableFuture<List<PushResult>> pushBatch(List<SetCdnDomainSSLCertificateRequest> requests,
+                                                                 AliAccount account,
+                                                                 String fingerprint,
+                                                                 PushContext context) {
+        SetCdnDomainSSLCertificateRequest first = requests.get(0);
+        final String domainNames = requests.stream()
+                .map(SetCdnDomainSSLCertificateRequest::getDomainName)
+                .collect(Collectors.joining(","));
+        BatchSetCdnDomainServerCertificateRequest batchRequest = BatchSetCdnDomainServerCertificateRequest.builder()
+                .domainName(domainNames)
+                .certName(first.getCertName())
+                .certType(first.getCertType())
+                .SSLProtocol(first.getSSLProtocol())
+                .SSLPub(first.getSSLPub())
+                .SSLPri(first.getSSLPri())
+                .region(first.getCertRegion())
+                .build();
+        final long start = System.nanoTime();
+        CompletableFuture<List<PushResult>> future = context.track(RETRY_SCHEDULER.execute(domainNames,
+                        () -> MyAliClient.INSTANCE.submit(account, client -> context.isCancelled() ?
+                                CompletableFuture.failedFuture(new CancellationException(context.cancelReason())) :
+                                client.batchSetCdnDomainServerCertificate(batchRequest),
+                                (response, e) -> SetCdnDomainSSLCertificate.isRetryable(
+                                        Objects.isNull(response) ? null : response.getStatusCode(), e)),
+                        (response, e) -> SetCdnDomainSSLCertificate.isRetryable(
+                                Objects.isNull(response) ? null : response.getStatusCode(), e)))
+                .handle((batchResponse, e) -> {
+                    if (Objects.nonNull(e)) {
+                        log.warn("<= 批量修改阿里云 {} CDN https 证书失败，回退为逐个修改，异常信息：{}",
+                                domainNames, e.toString());
                         return null;
-                    });
-            log.info("=> 修改阿里云 {} CDN https 证书请求发起成功", curDomain);
+                    }
+                    Integer statusCode = batchResponse.getStatusCode();
+                    if (!Objects.equals(statusCode, HttpStatus.SC_OK)) {
+                        log.warn("<= 批量修改阿里云 {} CDN https 证书失败，回退为逐个修改，状态码：{}",
+                                domainNames, statusCode);
+                        return null;
+                    }
+                    String requestId = Optional.of(batchResponse)
+                            .map(BatchSetCdnDomainServerCertificateResponse::getBody)
+                            .map(BatchSetCdnDomainServerCertificateResponseBody::getRequestId)
+                            .orElse("");
+                    return requests.stream()
+                            .map(request -> {
+                                SetCdnDomainSSLCertificate.recordLatency(request.getDomainName(), context.trigger(), start);
+                                return SetCdnDomainSSLCertificate.toResult(
+                                        request.getDomainName(), fingerprint, statusCode, requestId);
+                            })
+                            .toList();
+                })
+                .thenCompose(results -> {
+                    if (Objects.nonNull(results)) {
+                        return CompletableFuture.completedFuture(results);
+                    }
+                    List<CompletableFuture<PushResult>> fallbacks = requests.stream()
+                            .map(request -> SetCdnDomainSSLCertificate.push(request, account, fingerprint, context))
+                            .toList();
+                    return CompletableFuture.allOf(fallbacks.toArray(CompletableFuture[]::new))
+                            .thenApply(v -> fallbacks.stream()
+                                    .map(CompletableFuture::join)
+                                    .toList());
+                });
+        log.info("=> 批量修改阿里云 {} CDN https 证书请求已提交", domainNames);
+        return future;
+    }
+
+    /**
+     * 根据响应状态码构建更新结果，成功时记录证书指纹
+     */
+    private static PushResult toResult(String domain, String fingerprint, Integer statusCode, String requestId) {
+        if (Objects.equals(statusCode, HttpStatus.SC_OK)) {
+            log.info("<= 修改阿里云 {} CDN https 证书成功", domain);
+            CertFingerprintStore.INSTANCE.update(domain, fingerprint);
+            DescribeCdnHttpsDomainList.invalidate(domain);
+            return PushResult.builder()
+                    .domain(domain)
+                    .status(PushResult.PushStatus.SUCCESS)
+                    .statusCode(statusCode)
+                    .requestId(requestId)
+                    .build();
         }
+        log.warn("<= 修改阿里云 {} CDN https 证书失败，状态码：{}，请求id：{}",
+                domain, statusCode, requestId);
+        return PushResult.builder()
+                .domain(domain)
+                .status(PushResult.PushStatus.FAILED)
+                .statusCode(statusCode)
+                .requestId(requestId)
+                .message("状态码：" + statusCode)
+                .build();
+    }
+
+    /**
+     * 判断证书修改请求是否可以重试：限流、服务端异常、超时、熔断
+     * <p>
+     * 除熔断外，同时用于判断请求是否被限流，调整并发数与熔断
+     *
+     * @param statusCode 响应状态码，允许为空
+     * @param e          异常，允许为空
+     * @return true：可以重试；false：不可以重试
+     */
+    static boolean isRetryable(Integer statusCode, Throwable e) {
+        if (Objects.isNull(e)) {
+            return Objects.nonNull(statusCode) &&
+                    (statusCode == HttpStatus.SC_TOO_MANY_REQUESTS || statusCode >= HttpStatus.SC_SERVER_ERROR);
+        }
+        for (Throwable cause = e; Objects.nonNull(cause); cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof IOException ||
+                    cause instanceof CircuitBreaker.OpenException) {
+                return true;
+            }
+            String message = cause.getMessage();
+            if (StringUtils.isNotBlank(message) &&
+                    RETRYABLE_ERROR_CODES.stream().anyMatch(message::contains)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 记录从提交请求到收到最终结果（包括重试）的耗时
+     */
+    private static void recordLatency(String domain, TriggerSource trigger, long start) {
+        Metrics.INSTANCE.histogram("alicdn_push_latency_seconds", "证书修改请求从提交到完成的耗时，包括排队与重试",
+                        "domain", domain, "trigger", trigger.label())
+                .record(System.nanoTime() - start);
+    }
+
+    private static void summary(List<PushResult> results, TriggerSource trigger) {
+        Map<PushResult.PushStatus, Long> counts = results.stream()
+                .collect(Collectors.groupingBy(PushResult::getStatus, Collectors.counting()));
+        counts.forEach((status, count) -> Metrics.INSTANCE.counter("alicdn_push_total", "证书更新的域名数",
+                        "trigger", trigger.label(), "status", status.name().toLowerCase())
+                .add(count));
+        log.info("本次修改阿里云 CDN https 证书完成，共 {} 个域名，成功：{}，失败：{}，跳过：{}，取消：{}",
+                results.size(),
+                counts.getOrDefault(PushResult.PushStatus.SUCCESS, 0L),
+                counts.getOrDefault(PushResult.PushStatus.FAILED, 0L),
+                counts.getOrDefault(PushResult.PushStatus.SKIPPED, 0L),
+                counts.getOrDefault(PushResult.PushStatus.CANCELLED, 0L));
+    }
+
+    /**
+     * 一个域名进行中的更新
+     */
+    private static final class Flight {
+
+        private final String fingerprint;
+
+        private final CompletableFuture<PushResult> future;
+
+        /**
+         * 更新开始之后证书发生变化时，排队的后续更新，最多一个
+         */
+        private CompletableFuture<PushResult> followUp;
+
+        /**
+         * 第一次排队后续更新的触发来源，用于指标统计
+         */
+        private TriggerSource followUpTrigger;
+
+        private boolean followUpForce;
+
+        private Flight(String fingerprint, CompletableFuture<PushResult> future) {
+            this.fingerprint = fingerprint;
+            this.future = future;
+        }
+
+    }
+
+    /**
+     * 一次证书更新的上下文
+     *
+     * @param trigger 触发来源
+     * @param scope   结构化的执行范围，不在执行范围内时为空
+     */
+    private record PushContext(TriggerSource trigger, RunScope scope) {
+
+        boolean isCancelled() {
+            return Objects.nonNull(scope) && scope.isCancelled();
+        }
+
+        String cancelReason() {
+            return Objects.isNull(scope) ? null : scope.cancelReason();
+        }
+
+        /**
+         * 登记到执行范围，执行范围取消时取消请求：排队中的请求不再发出，等待中的重试不再执行
+         */
+        <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+            return Objects.isNull(scope) ? future : scope.track(future);
+        }
+
     }
 
 }
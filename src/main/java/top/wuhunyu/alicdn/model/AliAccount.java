@@ -0,0 +1,49 @@
+package top.wuhunyu.alicdn.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.Objects;
+
+/**
+ * 阿里云账号与地域，同一个账号与地域共用一个阿里云客户端
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 22:20
+ **/
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AliAccount {
+
+    /**
+     * 阿里云访问key
+     */
+    private String accessKeyId;
+
+    /**
+     * 阿里云访问密钥
+     */
+    @ToString.Exclude
+    private String accessKeySecret;
+
+    /**
+     * 地域，为空时使用 SDK 默认的地域
+     */
+    private String region;
+
+    /**
+     * 用于日志与指标的名称：访问key/地域
+     *
+     * @return 名称
+     */
+    public String label() {
+        return accessKeyId + "/" + Objects.toString(region, "default");
+    }
+
+}
@@ -0,0 +1,48 @@
+package top.wuhunyu.alicdn.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * CDN 域名当前使用的 https 证书信息
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 16:05
+ **/
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CdnCertInfo {
+
+    /**
+     * 域名
+     */
+    private String domain;
+
+    /**
+     * 证书名称
+     */
+    private String certName;
+
+    /**
+     * 证书通用名称
+     */
+    private String commonName;
+
+    /**
+     * 证书生效时间，解析失败时为空
+     */
+    private Instant startTime;
+
+    /**
+     * 证书过期时间，解析失败时为空
+     */
+    private Instant expireTime;
+
+}
@@ -0,0 +1,39 @@
+package top.wuhunyu.alicdn.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+
+/**
+ * 证书文件内容
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 15:30
+ **/
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CertMaterial {
+
+    /**
+     * 证书文件路径
+     */
+    private Path path;
+
+    /**
+     * PEM 格式的文件内容
+     */
+    private String pem;
+
+    /**
+     * 解析后的第一张证书，私钥文件或者解析失败时为空
+     */
+    private X509Certificate certificate;
+
+}
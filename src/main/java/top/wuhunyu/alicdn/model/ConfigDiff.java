@@ -0,0 +1,51 @@
+package top.wuhunyu.alicdn.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 重新加载前后 两份配置的差异
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 20:50
+ **/
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConfigDiff {
+
+    /**
+     * 新增的域名
+     */
+    private Set<String> added;
+
+    /**
+     * 移除的域名
+     */
+    private Set<String> removed;
+
+    /**
+     * 公钥、私钥路径 或者 阿里云账号发生变化的域名
+     */
+    private Set<String> changed;
+
+    /**
+     * 发生变化，但需要重启后才能生效的配置项
+     */
+    private List<String> restartRequired;
+
+    public boolean isEmpty() {
+        return added.isEmpty() &&
+                removed.isEmpty() &&
+                changed.isEmpty() &&
+                restartRequired.isEmpty();
+    }
+
+}
@@ -0,0 +1,73 @@
+package top.wuhunyu.alicdn.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个域名的证书更新结果
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 14:02
+ **/
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PushResult {
+
+    /**
+     * 域名
+     */
+    private String domain;
+
+    /**
+     * 更新状态
+     */
+    private PushStatus status;
+
+    /**
+     * 响应状态码，未收到响应时为空
+     */
+    private Integer statusCode;
+
+    /**
+     * 请求id，未收到响应时为空
+     */
+    private String requestId;
+
+    /**
+     * 失败原因，成功或跳过时为空
+     */
+    private String message;
+
+    /**
+     * 更新状态
+     */
+    public enum PushStatus {
+
+        /**
+         * 更新成功
+         */
+        SUCCESS,
+
+        /**
+         * 更新失败
+         */
+        FAILED,
+
+        /**
+         * 证书未发生变化，跳过更新
+         */
+        SKIPPED,
+
+        /**
+         * 超时 或者 程序关闭，请求未发出
+         */
+        CANCELLED
+
+    }
+
+}
@@ -0,0 +1,43 @@
+package top.wuhunyu.alicdn.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 一次证书更新的汇总结果
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 20:30
+ **/
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RunResult {
+
+    /**
+     * 触发来源
+     */
+    private TriggerSource trigger;
+
+    /**
+     * 每个域名的更新结果
+     */
+    private List<PushResult> results;
+
+    /**
+     * 耗时，单位：毫秒
+     */
+    private Long elapsed;
+
+    /**
+     * 取消原因，全部域名都已完成时为空
+     */
+    private String cancelReason;
+
+}
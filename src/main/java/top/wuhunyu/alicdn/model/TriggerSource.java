@@ -0,0 +1,56 @@
+package top.wuhunyu.alicdn.model;
+
+/**
+ * 触发证书更新的来源
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 19:20
+ **/
+
+public enum TriggerSource {
+
+    /**
+     * 程序启动时主动更新
+     */
+    STARTUP,
+
+    /**
+     * cron 定时任务
+     */
+    CRON,
+
+    /**
+     * 根据证书过期时间调度的检查
+     */
+    EXPIRY,
+
+    /**
+     * 监听到证书文件变化
+     */
+    WATCH,
+
+    /**
+     * 重新加载配置后，新增 或者 证书路径变化的域名
+     */
+    RELOAD,
+
+    /**
+     * 单次运行模式
+     */
+    ONCE,
+
+    /**
+     * 其他调用方
+     */
+    MANUAL;
+
+    /**
+     * 指标标签的值
+     *
+     * @return 小写的名称
+     */
+    public String label() {
+        return this.name().toLowerCase();
+    }
+
+}
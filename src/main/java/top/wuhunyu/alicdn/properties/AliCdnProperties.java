@@ -7,16 +7,26 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
+import top.wuhunyu.alicdn.model.AliAccount;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static top.wuhunyu.alicdn.constants.CommonConstants.*;
 
@@ -34,6 +44,11 @@ import static top.wuhunyu.alicdn.constants.CommonConstants.*;
 @Builder
 public class AliCdnProperties {
 
+    /**
+     * 打印配置时，域名与公私钥最多打印的数量
+     */
+    private static final int PRINT_LIMIT = 20;
+
     private static volatile AliCdnProperties instance;
 
     private String accessKeyId;
@@ -50,10 +65,75 @@ public class AliCdnProperties {
 
     private String scheduledCron;
 
+    private String scheduleMode;
+
+    private String runMode;
+
+    private Boolean leanMode;
+
     private Long fileModifyListenDelay;
 
     private Integer retryTimeWhenException;
 
+    private String statePath;
+
+    private Boolean forceWhenScheduled;
+
+    private Integer maxInFlight;
+
+    private Double qps;
+
+    private Boolean adaptiveConcurrency;
+
+    private Integer circuitFailureThreshold;
+
+    private Long circuitOpenTimeout;
+
+    private Long circuitQueueTimeout;
+
+    private Long retryBaseDelay;
+
+    private Long retryMaxDelay;
+
+    private Boolean batchMode;
+
+    private Integer batchSize;
+
+    private Boolean certReuse;
+
+    private String certRegion;
+
+    private Integer certCacheSize;
+
+    private Boolean certValidation;
+
+    private Boolean preflight;
+
+    private Long liveCertCacheTtl;
+
+    private Integer metricsPort;
+
+    private Long runTimeout;
+
+    private String manifest;
+
+    private String autoMapping;
+
+    /**
+     * 域名 -> 阿里云账号与地域，只包含清单中单独指定了账号或地域的域名
+     */
+    private Map<String, AliAccount> accounts;
+
+    private Long clientConnectTimeout;
+
+    private Long clientResponseTimeout;
+
+    private Integer clientMaxConnections;
+
+    private Long clientIdleTimeout;
+
+    private String endpoint;
+
     public static AliCdnProperties getInstance() {
         if (Objects.nonNull(instance)) {
             return instance;
@@ -67,9 +147,38 @@ public class AliCdnProperties {
         return instance;
     }
 
+    /**
+     * 重新读取配置，校验通过后替换当前配置
+     * <p>
+     * 校验在替换之前完成，校验失败时保留当前配置；已经获取到旧配置的调用方不受影响
+     *
+     * @param adjust 替换之前调整新的配置 非空，例如沿用只在启动时读取一次的配置项
+     * @return 新的配置
+     * @throws IllegalArgumentException 配置错误
+     */
+    public static AliCdnProperties reload(final Consumer<AliCdnProperties> adjust) {
+        Objects.requireNonNull(adjust, "配置调整不能为空");
+        AliCdnProperties aliCdnProperties = AliCdnProperties.init();
+        adjust.accept(aliCdnProperties);
+        synchronized (AliCdnProperties.class) {
+            instance = aliCdnProperties;
+        }
+        return aliCdnProperties;
+    }
+
     private static AliCdnProperties init() {
         // 读取配置文件
-        Properties aliCdnFromProperties = AliCdnProperties.readFromProperties();
+        return AliCdnProperties.init(AliCdnProperties.readFromProperties());
+    }
+
+    /**
+     * 按配置文件构建配置，环境变量优先于配置文件
+     *
+     * @param aliCdnFromProperties 配置文件 非空
+     * @return 校验通过的配置
+     * @throws IllegalArgumentException 配置错误
+     */
+    static AliCdnProperties init(Properties aliCdnFromProperties) {
 
         String accessKeyId = AliCdnProperties.readDefault(aliCdnFromProperties, ACCESS_KEY_ID);
         String accessKeySecret = AliCdnProperties.readDefault(aliCdnFromProperties, ACCESS_KEY_SECRET);
@@ -78,40 +187,103 @@ public class AliCdnProperties {
         String pubes = AliCdnProperties.readDefault(aliCdnFromProperties, PUBES);
         String pries = AliCdnProperties.readDefault(aliCdnFromProperties, PRIES);
         String scheduledCron = AliCdnProperties.readDefault(aliCdnFromProperties, SCHEDULED_CRON);
+        String scheduleMode = AliCdnProperties.readDefault(aliCdnFromProperties, SCHEDULE_MODE);
+        String runMode = AliCdnProperties.readDefault(aliCdnFromProperties, RUN_MODE);
+        String leanModeStr = AliCdnProperties.readDefault(aliCdnFromProperties, LEAN_MODE);
         String fileModifyListenDelayStr =
                 AliCdnProperties.readDefault(aliCdnFromProperties, FILE_MODIFY_LISTEN_DELAY);
         String retryTimeWhenExceptionStr =
                 AliCdnProperties.readDefault(aliCdnFromProperties, RETRY_TIME_WHEN_EXCEPTION);
+        String statePath = AliCdnProperties.readDefault(aliCdnFromProperties, STATE_PATH);
+        String forceWhenScheduledStr = AliCdnProperties.readDefault(aliCdnFromProperties, FORCE_WHEN_SCHEDULED);
+        String maxInFlightStr = AliCdnProperties.readDefault(aliCdnFromProperties, MAX_IN_FLIGHT);
+        String qpsStr = AliCdnProperties.readDefault(aliCdnFromProperties, QPS);
+        String adaptiveConcurrencyStr = AliCdnProperties.readDefault(aliCdnFromProperties, ADAPTIVE_CONCURRENCY);
+        String circuitFailureThresholdStr = AliCdnProperties.readDefault(aliCdnFromProperties,
+                CIRCUIT_FAILURE_THRESHOLD);
+        String circuitOpenTimeoutStr = AliCdnProperties.readDefault(aliCdnFromProperties, CIRCUIT_OPEN_TIMEOUT);
+        String circuitQueueTimeoutStr = AliCdnProperties.readDefault(aliCdnFromProperties, CIRCUIT_QUEUE_TIMEOUT);
+        String retryBaseDelayStr = AliCdnProperties.readDefault(aliCdnFromProperties, RETRY_BASE_DELAY);
+        String retryMaxDelayStr = AliCdnProperties.readDefault(aliCdnFromProperties, RETRY_MAX_DELAY);
+        String batchModeStr = AliCdnProperties.readDefault(aliCdnFromProperties, BATCH_MODE);
+        String batchSizeStr = AliCdnProperties.readDefault(aliCdnFromProperties, BATCH_SIZE);
+        String certReuseStr = AliCdnProperties.readDefault(aliCdnFromProperties, CERT_REUSE);
+        String certRegion = AliCdnProperties.readDefault(aliCdnFromProperties, CERT_REGION);
+        String certCacheSizeStr = AliCdnProperties.readDefault(aliCdnFromProperties, CERT_CACHE_SIZE);
+        String certValidationStr = AliCdnProperties.readDefault(aliCdnFromProperties, CERT_VALIDATION);
+        String preflightStr = AliCdnProperties.readDefault(aliCdnFromProperties, PREFLIGHT);
+        String liveCertCacheTtlStr = AliCdnProperties.readDefault(aliCdnFromProperties, LIVE_CERT_CACHE_TTL);
+        String metricsPortStr = AliCdnProperties.readDefault(aliCdnFromProperties, METRICS_PORT);
+        String runTimeoutStr = AliCdnProperties.readDefault(aliCdnFromProperties, RUN_TIMEOUT);
+        String manifest = AliCdnProperties.readDefault(aliCdnFromProperties, MANIFEST);
+        String autoMapping = AliCdnProperties.readDefault(aliCdnFromProperties, AUTO_MAPPING);
+        String clientConnectTimeoutStr = AliCdnProperties.readDefault(aliCdnFromProperties, CLIENT_CONNECT_TIMEOUT);
+        String clientResponseTimeoutStr = AliCdnProperties.readDefault(aliCdnFromProperties, CLIENT_RESPONSE_TIMEOUT);
+        String clientMaxConnectionsStr = AliCdnProperties.readDefault(aliCdnFromProperties, CLIENT_MAX_CONNECTIONS);
+        String clientIdleTimeoutStr = AliCdnProperties.readDefault(aliCdnFromProperties, CLIENT_IDLE_TIMEOUT);
+        String endpoint = AliCdnProperties.readDefault(aliCdnFromProperties, ENDPOINT);
 
         Objects.requireNonNull(accessKeyId, "阿里云访问key不能为空");
         Objects.requireNonNull(accessKeySecret, "阿里云访问密钥不能为空");
-        Objects.requireNonNull(domains, "阿里云域名不能为空");
         Objects.requireNonNull(sslPath, "保存 ssl 证书的目录不能为空");
-        Objects.requireNonNull(pubes, "公钥的名称不能为空");
-        Objects.requireNonNull(pries, "私钥的名称不能为空");
-
-        // 证书存在性验证
-        String[] domainSplit = domains.split(File.pathSeparator);
-        String[] pubSplit = pubes.split(File.pathSeparator);
-        String[] priSplit = pries.split(File.pathSeparator);
-        int n = domainSplit.length;
-        if (pubSplit.length < n) {
-            throw new IllegalArgumentException("公钥的数量与域名的数据不一致");
-        }
-        if (priSplit.length < n) {
-            throw new IllegalArgumentException("私钥的数量与域名的数据不一致");
-        }
-        for (int i = 0; i < n; i++) {
-            String domain = domainSplit[i];
-            String pub = pubSplit[i];
-            String pri = priSplit[i];
-            String pubPath = sslPath + File.separatorChar + domain + File.separatorChar + pub;
-            if (!new File(pubPath).isFile()) {
-                throw new IllegalArgumentException("公钥 " + pubPath + "不是一个有效的文件");
+
+        // 域名 -> 证书文件，先读取全部来源，再一次性报告全部错误
+        List<String> errors = new ArrayList<>();
+        List<DomainManifest.Entry> entries = new ArrayList<>();
+        if (StringUtils.isNotBlank(domains)) {
+            Objects.requireNonNull(pubes, "公钥的名称不能为空");
+            Objects.requireNonNull(pries, "私钥的名称不能为空");
+            String[] domainSplit = domains.split(File.pathSeparator);
+            String[] pubSplit = pubes.split(File.pathSeparator);
+            String[] priSplit = pries.split(File.pathSeparator);
+            int n = domainSplit.length;
+            if (pubSplit.length < n) {
+                errors.add("公钥的数量与域名的数据不一致");
+            }
+            if (priSplit.length < n) {
+                errors.add("私钥的数量与域名的数据不一致");
             }
-            String priPath = sslPath + File.separatorChar + domain + File.separatorChar + pri;
-            if (!new File(priPath).isFile()) {
-                throw new IllegalArgumentException("私钥 " + priPath + "不是一个有效的文件");
+            for (int i = 0; i < Math.min(n, Math.min(pubSplit.length, priSplit.length)); i++) {
+                entries.add(new DomainManifest.Entry(domainSplit[i], pubSplit[i], priSplit[i], null, DOMAINS));
+            }
+        }
+        if (StringUtils.isNotBlank(manifest)) {
+            entries.addAll(DomainManifest.read(Paths.get(manifest), errors));
+        }
+        // 目录约定只补充没有显式配置的域名
+        if (StringUtils.isBlank(autoMapping)) {
+            autoMapping = AUTO_MAPPING_NONE;
+        } else if (Objects.equals(autoMapping, AUTO_MAPPING_ACME)) {
+            Set<String> configured = new HashSet<>();
+            entries.forEach(entry -> configured.add(entry.domain()));
+            DomainManifest.scanAcme(sslPath, errors)
+                    .stream()
+                    .filter(entry -> !configured.contains(entry.domain()))
+                    .forEach(entries::add);
+        } else if (!Objects.equals(autoMapping, AUTO_MAPPING_NONE)) {
+            errors.add("域名映射的目录约定 " + autoMapping + " 只能是 " + AUTO_MAPPING_NONE + " 或 " + AUTO_MAPPING_ACME);
+        }
+        DomainManifest.validate(sslPath, entries, errors);
+        DomainManifest.report(errors);
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("阿里云域名不能为空");
+        }
+        List<String> domainList = new ArrayList<>(entries.size());
+        List<String> pubList = new ArrayList<>(entries.size());
+        List<String> priList = new ArrayList<>(entries.size());
+        Map<String, AliAccount> accounts = new HashMap<>();
+        for (DomainManifest.Entry entry : entries) {
+            domainList.add(entry.domain());
+            pubList.add(entry.pub());
+            priList.add(entry.pri());
+            // 清单中未指定访问key的域名使用默认的访问key
+            AliAccount account = entry.account();
+            if (Objects.nonNull(account)) {
+                accounts.put(entry.domain(), AliAccount.builder()
+                        .accessKeyId(StringUtils.defaultIfBlank(account.getAccessKeyId(), accessKeyId))
+                        .accessKeySecret(StringUtils.defaultIfBlank(account.getAccessKeySecret(), accessKeySecret))
+                        .region(account.getRegion())
+                        .build());
             }
         }
 
@@ -127,38 +299,196 @@ public class AliCdnProperties {
             }
         }
 
-        // 文件监听延迟时间
-        long fileModifyListenDelay = DEFAULT_FILE_MODIFY_LISTEN_DELAY;
-        if (StringUtils.isNotBlank(fileModifyListenDelayStr)) {
-            try {
-                fileModifyListenDelay = Long.parseLong(fileModifyListenDelayStr);
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("文件监听延迟时间（单位：毫秒） " + fileModifyListenDelayStr +
-                        " 不是一个数字");
-            }
+        // 定时更新的模式，自定义了 cron 表达式 而 未指定模式时，保持按 cron 表达式更新
+        boolean customCron = !Objects.equals(scheduledCron, DEFAULT_SCHEDULED_CRON);
+        if (StringUtils.isBlank(scheduleMode)) {
+            scheduleMode = customCron ? SCHEDULE_MODE_CRON : SCHEDULE_MODE_EXPIRY;
+        } else if (!Objects.equals(scheduleMode, SCHEDULE_MODE_EXPIRY) &&
+                !Objects.equals(scheduleMode, SCHEDULE_MODE_CRON)) {
+            throw new IllegalArgumentException("定时更新的模式 " + scheduleMode + " 只能是 " +
+                    SCHEDULE_MODE_EXPIRY + " 或 " + SCHEDULE_MODE_CRON);
+        } else if (customCron && Objects.equals(scheduleMode, SCHEDULE_MODE_EXPIRY)) {
+            log.warn("定时更新的模式为 {}，更新的时间表达式 {} 不会生效", SCHEDULE_MODE_EXPIRY, scheduledCron);
         }
 
+        // 运行模式
+        if (StringUtils.isBlank(runMode)) {
+            runMode = RUN_MODE_DAEMON;
+        } else if (!Objects.equals(runMode, RUN_MODE_DAEMON) &&
+                !Objects.equals(runMode, RUN_MODE_ONCE)) {
+            throw new IllegalArgumentException("运行模式 " + runMode + " 只能是 " +
+                    RUN_MODE_DAEMON + " 或 " + RUN_MODE_ONCE);
+        }
+
+        // 是否以低内存、少线程的方式运行
+        boolean leanMode = AliCdnProperties.parseBoolean(leanModeStr, DEFAULT_LEAN_MODE,
+                "是否以低内存、少线程的方式运行");
+
+        // 文件监听延迟时间
+        long fileModifyListenDelay = AliCdnProperties.parseLong(fileModifyListenDelayStr,
+                DEFAULT_FILE_MODIFY_LISTEN_DELAY, 0L, "文件监听延迟时间（单位：毫秒）");
+
         // 异常时重试的次数
-        int retryTimeWhenException = DEFAULT_TIME_RETRY_WHEN_EXCEPTION;
-        if (StringUtils.isNotBlank(retryTimeWhenExceptionStr)) {
+        int retryTimeWhenException = AliCdnProperties.parseInt(retryTimeWhenExceptionStr,
+                DEFAULT_TIME_RETRY_WHEN_EXCEPTION, 0, "异常时重试的次数");
+
+        // 状态文件保存的目录
+        if (StringUtils.isBlank(statePath)) {
+            statePath = DEFAULT_STATE_PATH;
+        }
+
+        // 定时任务是否强制更新证书
+        boolean forceWhenScheduled = AliCdnProperties.parseBoolean(forceWhenScheduledStr,
+                DEFAULT_FORCE_WHEN_SCHEDULED, "定时任务是否强制更新证书");
+
+        // 证书修改请求的最大并发数
+        int maxInFlight = AliCdnProperties.parseInt(maxInFlightStr, DEFAULT_MAX_IN_FLIGHT, 1,
+                "证书修改请求的最大并发数");
+
+        // 证书修改请求的每秒请求数
+        double qps = DEFAULT_QPS;
+        if (StringUtils.isNotBlank(qpsStr)) {
             try {
-                retryTimeWhenException = Integer.parseInt(retryTimeWhenExceptionStr);
+                qps = Double.parseDouble(qpsStr);
             } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("异常时重试的次数 " + retryTimeWhenExceptionStr + " 不是一个数字");
+                throw new IllegalArgumentException("证书修改请求的每秒请求数 " + qpsStr + " 不是一个数字");
+            }
+            if (!(qps > 0)) {
+                throw new IllegalArgumentException("证书修改请求的每秒请求数 " + qpsStr + " 必须大于 0");
             }
         }
 
+        // 是否自动调整证书修改请求的并发数
+        boolean adaptiveConcurrency = AliCdnProperties.parseBoolean(adaptiveConcurrencyStr,
+                DEFAULT_ADAPTIVE_CONCURRENCY, "是否自动调整证书修改请求的并发数");
+
+        // 连续多少个请求被限流或者服务端异常时熔断
+        int circuitFailureThreshold = AliCdnProperties.parseInt(circuitFailureThresholdStr,
+                DEFAULT_CIRCUIT_FAILURE_THRESHOLD, 1, "熔断的连续失败次数");
+
+        // 熔断多久后放行探测请求
+        long circuitOpenTimeout = AliCdnProperties.parseLong(circuitOpenTimeoutStr,
+                DEFAULT_CIRCUIT_OPEN_TIMEOUT, 0L, "熔断时间（单位：毫秒）");
+
+        // 熔断期间请求最多排队多久
+        long circuitQueueTimeout = AliCdnProperties.parseLong(circuitQueueTimeoutStr,
+                DEFAULT_CIRCUIT_QUEUE_TIMEOUT, 0L, "熔断期间的排队时间（单位：毫秒）");
+
+        // 重试的基础延迟时间
+        long retryBaseDelay = AliCdnProperties.parseLong(retryBaseDelayStr, DEFAULT_RETRY_BASE_DELAY, 0L,
+                "重试的基础延迟时间（单位：毫秒）");
+
+        // 重试的最大延迟时间
+        long retryMaxDelay = AliCdnProperties.parseLong(retryMaxDelayStr, DEFAULT_RETRY_MAX_DELAY, 0L,
+                "重试的最大延迟时间（单位：毫秒）");
+        if (retryMaxDelay < retryBaseDelay) {
+            throw new IllegalArgumentException("重试的最大延迟时间不能小于重试的基础延迟时间");
+        }
+
+        // 是否开启批量模式
+        boolean batchMode = AliCdnProperties.parseBoolean(batchModeStr, DEFAULT_BATCH_MODE, "是否开启批量模式");
+
+        // 批量模式下，一次请求最多修改的域名数量
+        int batchSize = AliCdnProperties.parseInt(batchSizeStr, DEFAULT_BATCH_SIZE, 1, "批量修改的域名数量");
+
+        // 是否复用证书
+        boolean certReuse = AliCdnProperties.parseBoolean(certReuseStr, DEFAULT_CERT_REUSE, "是否复用证书");
+
+        // 复用证书时，证书所在的地域
+        if (StringUtils.isBlank(certRegion)) {
+            certRegion = DEFAULT_CERT_REGION;
+        }
+
+        // 证书文件内容缓存的最大数量
+        int certCacheSize = AliCdnProperties.parseInt(certCacheSizeStr, DEFAULT_CERT_CACHE_SIZE, 1,
+                "证书文件内容缓存的最大数量");
+
+        // 更新证书前，是否在本地校验公私钥
+        boolean certValidation = AliCdnProperties.parseBoolean(certValidationStr, DEFAULT_CERT_VALIDATION,
+                "是否在本地校验公私钥");
+
+        // 更新证书前，是否先查询 CDN 当前使用的证书
+        boolean preflight = AliCdnProperties.parseBoolean(preflightStr, DEFAULT_PREFLIGHT,
+                "是否先查询 CDN 当前使用的证书");
+
+        // CDN 当前使用的证书的缓存时间
+        long liveCertCacheTtl = AliCdnProperties.parseLong(liveCertCacheTtlStr, DEFAULT_LIVE_CERT_CACHE_TTL, 0L,
+                "CDN 当前使用的证书的缓存时间（单位：毫秒）");
+
+        // 指标服务的端口
+        int metricsPort = AliCdnProperties.parseInt(metricsPortStr, DEFAULT_METRICS_PORT, "指标服务的端口");
+        if (metricsPort < 0 || metricsPort > 65535) {
+            throw new IllegalArgumentException("指标服务的端口 " + metricsPort + " 必须在 0 到 65535 之间");
+        }
+
+        // 一次证书更新的截止时间
+        long runTimeout = AliCdnProperties.parseLong(runTimeoutStr, DEFAULT_RUN_TIMEOUT, 1L,
+                "一次证书更新的截止时间（单位：毫秒）");
+
+        // 阿里云客户端的连接超时时间
+        long clientConnectTimeout = AliCdnProperties.parseLong(clientConnectTimeoutStr,
+                DEFAULT_CLIENT_CONNECT_TIMEOUT, 1L, "阿里云客户端的连接超时时间（单位：毫秒）");
+
+        // 阿里云客户端的响应超时时间
+        long clientResponseTimeout = AliCdnProperties.parseLong(clientResponseTimeoutStr,
+                DEFAULT_CLIENT_RESPONSE_TIMEOUT, 1L, "阿里云客户端的响应超时时间（单位：毫秒）");
+
+        // 每个阿里云客户端的最大连接数
+        int clientMaxConnections = AliCdnProperties.parseInt(clientMaxConnectionsStr,
+                DEFAULT_CLIENT_MAX_CONNECTIONS, 1, "每个阿里云客户端的最大连接数");
+
+        // 阿里云客户端空闲多久后关闭
+        long clientIdleTimeout = AliCdnProperties.parseLong(clientIdleTimeoutStr, DEFAULT_CLIENT_IDLE_TIMEOUT, 1L,
+                "阿里云客户端的空闲时间（单位：毫秒）");
+
+        // 阿里云 CDN 接口的地址，只支持 http 与 https
+        if (StringUtils.isNotBlank(endpoint) && endpoint.contains("://") &&
+                !StringUtils.startsWithAny(endpoint, "http://", "https://")) {
+            throw new IllegalArgumentException("阿里云 CDN 接口的地址 " + endpoint + " 只能使用 http 或 https");
+        }
+
         // 返回构建的配置类
         AliCdnProperties aliCdnProperties = AliCdnProperties.builder()
                 .accessKeyId(accessKeyId)
                 .accessKeySecret(accessKeySecret)
-                .domains(Arrays.stream(domainSplit).toList())
+                .domains(domainList)
                 .sslPath(sslPath)
-                .pubes(Arrays.stream(pubSplit).toList())
-                .pries(Arrays.stream(priSplit).toList())
+                .pubes(pubList)
+                .pries(priList)
                 .scheduledCron(scheduledCron)
+                .scheduleMode(scheduleMode)
+                .runMode(runMode)
+                .leanMode(leanMode)
                 .fileModifyListenDelay(fileModifyListenDelay)
                 .retryTimeWhenException(retryTimeWhenException)
+                .statePath(statePath)
+                .forceWhenScheduled(forceWhenScheduled)
+                .maxInFlight(maxInFlight)
+                .qps(qps)
+                .adaptiveConcurrency(adaptiveConcurrency)
+                .circuitFailureThreshold(circuitFailureThreshold)
+                .circuitOpenTimeout(circuitOpenTimeout)
+                .circuitQueueTimeout(circuitQueueTimeout)
+                .retryBaseDelay(retryBaseDelay)
+                .retryMaxDelay(retryMaxDelay)
+                .batchMode(batchMode)
+                .batchSize(batchSize)
+                .certReuse(certReuse)
+                .certRegion(certRegion)
+                .certCacheSize(certCacheSize)
+                .certValidation(certValidation)
+                .preflight(preflight)
+                .liveCertCacheTtl(liveCertCacheTtl)
+                .metricsPort(metricsPort)
+                .runTimeout(runTimeout)
+                .manifest(manifest)
+                .autoMapping(autoMapping)
+                .accounts(accounts)
+                .clientConnectTimeout(clientConnectTimeout)
+                .clientResponseTimeout(clientResponseTimeout)
+                .clientMaxConnections(clientMaxConnections)
+                .clientIdleTimeout(clientIdleTimeout)
+                .endpoint(endpoint)
                 .build();
 
         // 打印
@@ -167,6 +497,48 @@ public class AliCdnProperties {
         return aliCdnProperties;
     }
 
+    /**
+     * 获取证书文件的路径
+     *
+     * @param domain   域名 非空
+     * @param fileName 证书文件名称 非空
+     * @return 证书文件的路径：sslPath/domain/fileName
+     */
+    public String resolveCertPath(String domain, String fileName) {
+        return AliCdnProperties.resolveCertPath(sslPath, domain, fileName);
+    }
+
+    /**
+     * 获取域名所属的阿里云账号与地域
+     *
+     * @param domain 域名 非空
+     * @return 清单中指定的账号，未指定时为默认账号
+     */
+    public AliAccount accountOf(String domain) {
+        AliAccount account = Objects.isNull(accounts) ? null : accounts.get(domain);
+        return Objects.isNull(account) ? this.defaultAccount() : account;
+    }
+
+    /**
+     * 默认的阿里云账号：accessKeyId 与 accessKeySecret，使用 SDK 默认的地域
+     *
+     * @return 默认账号
+     */
+    public AliAccount defaultAccount() {
+        return AliAccount.builder()
+                .accessKeyId(accessKeyId)
+                .accessKeySecret(accessKeySecret)
+                .build();
+    }
+
+    static String resolveCertPath(String sslPath, String domain, String fileName) {
+        // 绝对路径直接使用
+        if (new File(fileName).isAbsolute()) {
+            return fileName;
+        }
+        return sslPath + File.separatorChar + domain + File.separatorChar + fileName;
+    }
+
     private static Properties readFromProperties() {
         Properties properties = new Properties();
         try (BufferedReader reader = new BufferedReader(
@@ -178,6 +550,15 @@ public class AliCdnProperties {
         } catch (Exception e) {
             log.warn("读取阿里云配置文件失败：", e);
         }
+        // 外部配置文件覆盖 classpath 中的配置
+        String configFile = System.getenv(CONFIG_FILE);
+        if (StringUtils.isNotBlank(configFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(configFile), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("读取外部配置文件 " + configFile + " 失败：" + e.getMessage());
+            }
+        }
         return properties;
     }
 
@@ -191,16 +572,138 @@ public class AliCdnProperties {
                 aliCdnFromProperties.getProperty(key);
     }
 
+    /**
+     * 解析布尔值类型的配置，未配置时使用默认值
+     *
+     * @param value        配置的值 可空
+     * @param defaultValue 默认值
+     * @param name         配置的名称，用于错误信息
+     * @return 配置的值
+     */
+    private static boolean parseBoolean(String value, boolean defaultValue, String name) {
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        Boolean parsed = BooleanUtils.toBooleanObject(value);
+        if (Objects.isNull(parsed)) {
+            throw new IllegalArgumentException(name + " " + value + " 不是一个布尔值");
+        }
+        return parsed;
+    }
+
+    /**
+     * 解析整数类型的配置，不限制取值范围
+     */
+    private static int parseInt(String value, int defaultValue, String name) {
+        return AliCdnProperties.parseInt(value, defaultValue, Integer.MIN_VALUE, name);
+    }
+
+    /**
+     * 解析整数类型的配置，未配置时使用默认值
+     *
+     * @param value        配置的值 可空
+     * @param defaultValue 默认值
+     * @param min          允许的最小值
+     * @param name         配置的名称，用于错误信息
+     * @return 配置的值
+     * @throws IllegalArgumentException 不是一个数字，或者超出取值范围
+     */
+    private static int parseInt(String value, int defaultValue, int min, String name) {
+        return Math.toIntExact(AliCdnProperties.parseLong(value, defaultValue, min, Integer.MAX_VALUE, name));
+    }
+
+    /**
+     * 解析长整数类型的配置，不限制取值范围
+     */
+    private static long parseLong(String value, long defaultValue, String name) {
+        return AliCdnProperties.parseLong(value, defaultValue, Long.MIN_VALUE, Long.MAX_VALUE, name);
+    }
+
+    /**
+     * 解析长整数类型的配置，未配置时使用默认值
+     *
+     * @param value        配置的值 可空
+     * @param defaultValue 默认值
+     * @param min          允许的最小值
+     * @param name         配置的名称，用于错误信息
+     * @return 配置的值
+     * @throws IllegalArgumentException 不是一个数字，或者超出取值范围
+     */
+    private static long parseLong(String value, long defaultValue, long min, String name) {
+        return AliCdnProperties.parseLong(value, defaultValue, min, Long.MAX_VALUE, name);
+    }
+
+    private static long parseLong(String value, long defaultValue, long min, long max, String name) {
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        long parsed;
+        try {
+            parsed = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " " + value + " 不是一个数字");
+        }
+        if (parsed > max) {
+            throw new IllegalArgumentException(name + " " + value + " 不能大于 " + max);
+        }
+        if (parsed < min) {
+            throw new IllegalArgumentException(name + " " + value +
+                    (min == 1L ? " 必须大于 0" : " 不能小于 " + min));
+        }
+        return parsed;
+    }
+
     private static void print(AliCdnProperties aliCdnProperties) {
         log.info("读取配置信息如下：");
         log.info("阿里云访问key：{}", aliCdnProperties.getAccessKeyId());
-        log.info("阿里云域名：{}", aliCdnProperties.getDomains());
+        log.info("阿里云域名：{}", AliCdnProperties.abbreviate(aliCdnProperties.getDomains()));
         log.info("保存 ssl 证书的目录：{}", aliCdnProperties.getSslPath());
-        log.info("公钥的名称：{}", aliCdnProperties.getPubes());
-        log.info("私钥的名称：{}", aliCdnProperties.getPries());
+        log.info("公钥的名称：{}", AliCdnProperties.abbreviate(aliCdnProperties.getPubes()));
+        log.info("私钥的名称：{}", AliCdnProperties.abbreviate(aliCdnProperties.getPries()));
+        log.info("清单文件：{}", aliCdnProperties.getManifest());
+        log.info("域名映射的目录约定：{}", aliCdnProperties.getAutoMapping());
+        log.info("单独指定阿里云账号的域名数量：{}", aliCdnProperties.getAccounts().size());
         log.info("更新的时间表达式：{}", aliCdnProperties.getScheduledCron());
+        log.info("定时更新的模式：{}", aliCdnProperties.getScheduleMode());
+        log.info("运行模式：{}", aliCdnProperties.getRunMode());
+        log.info("是否以低内存、少线程的方式运行：{}", aliCdnProperties.getLeanMode());
         log.info("文件监听延迟时间：{}", aliCdnProperties.getFileModifyListenDelay());
         log.info("异常时重试的次数：{}", aliCdnProperties.getRetryTimeWhenException());
+        log.info("状态文件保存的目录：{}", aliCdnProperties.getStatePath());
+        log.info("定时任务是否强制更新证书：{}", aliCdnProperties.getForceWhenScheduled());
+        log.info("证书修改请求的最大并发数：{}", aliCdnProperties.getMaxInFlight());
+        log.info("证书修改请求的每秒请求数：{}", aliCdnProperties.getQps());
+        log.info("是否自动调整证书修改请求的并发数：{}", aliCdnProperties.getAdaptiveConcurrency());
+        log.info("熔断的连续失败次数：{}", aliCdnProperties.getCircuitFailureThreshold());
+        log.info("熔断时间（单位：毫秒）：{}", aliCdnProperties.getCircuitOpenTimeout());
+        log.info("熔断期间的排队时间（单位：毫秒）：{}", aliCdnProperties.getCircuitQueueTimeout());
+        log.info("重试的基础延迟时间：{}", aliCdnProperties.getRetryBaseDelay());
+        log.info("重试的最大延迟时间：{}", aliCdnProperties.getRetryMaxDelay());
+        log.info("是否开启批量模式：{}", aliCdnProperties.getBatchMode());
+        log.info("批量修改的域名数量：{}", aliCdnProperties.getBatchSize());
+        log.info("是否复用证书：{}", aliCdnProperties.getCertReuse());
+        log.info("复用证书所在的地域：{}", aliCdnProperties.getCertRegion());
+        log.info("证书文件内容缓存的最大数量：{}", aliCdnProperties.getCertCacheSize());
+        log.info("更新证书前是否在本地校验公私钥：{}", aliCdnProperties.getCertValidation());
+        log.info("是否先查询 CDN 当前使用的证书：{}", aliCdnProperties.getPreflight());
+        log.info("CDN 当前使用的证书的缓存时间：{}", aliCdnProperties.getLiveCertCacheTtl());
+        log.info("指标服务的端口：{}", aliCdnProperties.getMetricsPort());
+        log.info("一次证书更新的截止时间：{}", aliCdnProperties.getRunTimeout());
+        log.info("阿里云客户端的连接超时时间：{}", aliCdnProperties.getClientConnectTimeout());
+        log.info("阿里云客户端的响应超时时间：{}", aliCdnProperties.getClientResponseTimeout());
+        log.info("每个阿里云客户端的最大连接数：{}", aliCdnProperties.getClientMaxConnections());
+        log.info("阿里云客户端的空闲时间：{}", aliCdnProperties.getClientIdleTimeout());
+        log.info("阿里云 CDN 接口的地址：{}", aliCdnProperties.getEndpoint());
+    }
+
+    /**
+     * 域名较多时只打印前 {@link #PRINT_LIMIT} 个
+     */
+    private static String abbreviate(List<String> values) {
+        if (values.size() <= PRINT_LIMIT) {
+            return values.toString();
+        }
+        return values.subList(0, PRINT_LIMIT) + " 等 " + values.size() + " 个";
     }
 
 }
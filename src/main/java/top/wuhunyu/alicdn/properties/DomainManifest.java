@@ -0,0 +1,233 @@
+package top.wuhunyu.alicdn.properties;
+
+import cn.hutool.json.JSONException;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import top.wuhunyu.alicdn.model.AliAccount;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 域名 -> 证书文件 的映射
+ * <p>
+ * 除了 domains、pubes、pries 三个按位置对应的配置外，支持：
+ * <p>
+ * 1. 清单文件：每行一个 json 对象，例如 {@code {"domain":"a.com","pub":"a.com.cer","pri":"a.com.key"}}，
+ * 逐行读取，适合上万个域名；空行与 # 开头的行会被忽略。
+ * 可选的 accessKeyId、accessKeySecret、region 指定域名所属的阿里云账号与地域，未指定时使用默认的访问key
+ * <p>
+ * 2. acme.sh 目录约定：扫描 sslPath 下的 &lt;domain&gt;_ecc/fullchain.cer 与 &lt;domain&gt;_ecc/&lt;domain&gt;.key，
+ * 同一个域名同时存在 RSA 与 ECC 证书时使用 ECC 证书
+ * <p>
+ * 证书文件名为相对路径时，相对于 sslPath/domain；为绝对路径时直接使用
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 21:10
+ **/
+
+@Slf4j
+final class DomainManifest {
+
+    private static final String DOMAIN = "domain";
+
+    private static final String PUB = "pub";
+
+    private static final String PRI = "pri";
+
+    private static final String ACCESS_KEY_ID = "accessKeyId";
+
+    private static final String ACCESS_KEY_SECRET = "accessKeySecret";
+
+    private static final String REGION = "region";
+
+    private static final String ACME_ECC_SUFFIX = "_ecc";
+
+    private static final String ACME_FULLCHAIN = "fullchain.cer";
+
+    /**
+     * 异常信息中最多列出的错误数量，全部错误都会打印到日志
+     */
+    private static final int MAX_REPORTED_ERRORS = 50;
+
+    private DomainManifest() {
+    }
+
+    /**
+     * 逐行读取清单文件
+     *
+     * @param manifest 清单文件 非空
+     * @param errors   收集错误信息 非空
+     * @return 清单中的映射
+     */
+    static List<Entry> read(Path manifest, List<String> errors) {
+        List<Entry> ans = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while (Objects.nonNull(line = reader.readLine())) {
+                lineNumber++;
+                String trimmed = line.strip();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                String source = manifest.getFileName() + ":" + lineNumber;
+                JSONObject json;
+                try {
+                    json = JSONUtil.parseObj(trimmed);
+                } catch (JSONException e) {
+                    errors.add(source + " 不是一个有效的 json 对象");
+                    continue;
+                }
+                String domain = json.getStr(DOMAIN);
+                String pub = json.getStr(PUB);
+                String pri = json.getStr(PRI);
+                if (StringUtils.isAnyBlank(domain, pub, pri)) {
+                    errors.add(source + " 缺少 " + DOMAIN + "、" + PUB + " 或者 " + PRI);
+                    continue;
+                }
+                String accessKeyId = StringUtils.trimToNull(json.getStr(ACCESS_KEY_ID));
+                String accessKeySecret = StringUtils.trimToNull(json.getStr(ACCESS_KEY_SECRET));
+                String region = StringUtils.trimToNull(json.getStr(REGION));
+                if (Objects.isNull(accessKeyId) != Objects.isNull(accessKeySecret)) {
+                    errors.add(source + " 的 " + ACCESS_KEY_ID + " 与 " + ACCESS_KEY_SECRET + " 必须同时配置");
+                    continue;
+                }
+                AliAccount account = StringUtils.isAllBlank(accessKeyId, region) ?
+                        null :
+                        new AliAccount(accessKeyId, accessKeySecret, region);
+                ans.add(new Entry(domain.strip(), pub.strip(), pri.strip(), account, source));
+            }
+        } catch (IOException e) {
+            errors.add("读取清单文件 " + manifest + " 失败：" + e.getMessage());
+        }
+        return ans;
+    }
+
+    /**
+     * 按照 acme.sh 的目录约定扫描证书目录
+     *
+     * @param sslPath 证书目录 非空
+     * @param errors  收集错误信息 非空
+     * @return 扫描到的映射，按域名排序
+     */
+    static List<Entry> scanAcme(String sslPath, List<String> errors) {
+        Map<String, Entry> ans = new TreeMap<>();
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(Paths.get(sslPath), Files::isDirectory)) {
+            for (Path dir : dirs) {
+                String name = dir.getFileName()
+                        .toString();
+                boolean ecc = name.endsWith(ACME_ECC_SUFFIX);
+                String domain = ecc ? name.substring(0, name.length() - ACME_ECC_SUFFIX.length()) : name;
+                Path pub = dir.resolve(ACME_FULLCHAIN);
+                Path pri = dir.resolve(domain + ".key");
+                // 不是 acme.sh 的证书目录
+                if (!Files.isRegularFile(pub) || !Files.isRegularFile(pri)) {
+                    continue;
+                }
+                if (!ecc && ans.containsKey(domain)) {
+                    continue;
+                }
+                ans.put(domain, new Entry(domain, pub.toAbsolutePath().toString(),
+                        pri.toAbsolutePath().toString(), null, dir.toString()));
+            }
+        } catch (IOException e) {
+            errors.add("扫描证书目录 " + sslPath + " 失败：" + e.getMessage());
+        }
+        return new ArrayList<>(ans.values());
+    }
+
+    /**
+     * 校验域名没有重复，并且公私钥文件存在
+     * <p>
+     * 文件检查是阻塞的 IO，域名较多时在虚拟线程中并行检查；错误信息按映射的顺序收集
+     *
+     * @param sslPath 证书目录 非空
+     * @param entries 映射 非空
+     * @param errors  收集错误信息 非空
+     */
+    static void validate(String sslPath, List<Entry> entries, List<String> errors) {
+        Map<String, String> sources = new HashMap<>();
+        for (Entry entry : entries) {
+            String pre = sources.putIfAbsent(entry.domain(), entry.source());
+            if (Objects.nonNull(pre)) {
+                errors.add("域名 " + entry.domain() + " 重复配置：" + pre + "，" + entry.source());
+            }
+        }
+
+        int n = entries.size();
+        String[] fileErrors = new String[n << 1];
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < n; i++) {
+                final int index = i;
+                executorService.execute(() -> {
+                    Entry entry = entries.get(index);
+                    String pubPath = AliCdnProperties.resolveCertPath(sslPath, entry.domain(), entry.pub());
+                    if (!Files.isRegularFile(Paths.get(pubPath))) {
+                        fileErrors[index << 1] = entry.source() + " 公钥 " + pubPath + " 不是一个有效的文件";
+                    }
+                    String priPath = AliCdnProperties.resolveCertPath(sslPath, entry.domain(), entry.pri());
+                    if (!Files.isRegularFile(Paths.get(priPath))) {
+                        fileErrors[index << 1 | 1] = entry.source() + " 私钥 " + priPath + " 不是一个有效的文件";
+                    }
+                });
+            }
+        }
+        for (String fileError : fileErrors) {
+            if (Objects.nonNull(fileError)) {
+                errors.add(fileError);
+            }
+        }
+    }
+
+    /**
+     * 一次性报告全部错误
+     *
+     * @param errors 错误信息 非空
+     * @throws IllegalArgumentException 存在错误时
+     */
+    static void report(List<String> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        errors.forEach(error -> log.error("域名配置错误：{}", error));
+        StringBuilder sb = new StringBuilder("域名配置校验失败，共 ")
+                .append(errors.size())
+                .append(" 个错误：");
+        errors.stream()
+                .limit(MAX_REPORTED_ERRORS)
+                .forEach(error -> sb.append(System.lineSeparator()).append(error));
+        if (errors.size() > MAX_REPORTED_ERRORS) {
+            sb.append(System.lineSeparator()).append("...");
+        }
+        throw new IllegalArgumentException(sb.toString());
+    }
+
+    /**
+     * 一个域名的证书文件
+     *
+     * @param domain  域名
+     * @param pub     公钥文件
+     * @param pri     私钥文件
+     * @param account 阿里云账号与地域，未指定时为空；访问key为空时使用默认的访问key
+     * @param source  来源，用于错误信息
+     */
+    record Entry(String domain, String pub, String pri, AliAccount account, String source) {
+    }
+
+}
@@ -0,0 +1,202 @@
+package top.wuhunyu.alicdn.benchmark;
+
+import top.wuhunyu.alicdn.properties.AliCdnProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static top.wuhunyu.alicdn.constants.CommonConstants.*;
+
+/**
+ * 性能测试的夹具
+ * <p>
+ * 使用 jdk 自带的 keytool 生成证书，按 sslPath/域名/文件名 的目录结构为每个域名复制一份证书文件，
+ * 并直接替换 {@link AliCdnProperties} 单例，不依赖环境变量
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 18:40
+ **/
+
+public final class BenchmarkFixtures {
+
+    private static final String STORE_PASS = "benchmark";
+
+    private static final String ALIAS = "benchmark";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 生成证书文件
+     *
+     * @param sslPath 证书目录 非空
+     * @param n       域名数量
+     * @return 域名
+     * @throws IOException 生成证书失败
+     */
+    public static List<String> generate(Path sslPath, int n) throws IOException {
+        String[] pem = BenchmarkFixtures.generatePem(sslPath);
+        List<String> domains = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String domain = "d" + i + ".bench.example.com";
+            Path dir = Files.createDirectories(sslPath.resolve(domain));
+            // 每个域名一份独立的文件，与实际部署时 acme.sh 的目录结构一致
+            Files.writeString(dir.resolve(domain + ".cer"), pem[0], StandardCharsets.UTF_8);
+            Files.writeString(dir.resolve(domain + ".key"), pem[1], StandardCharsets.UTF_8);
+            domains.add(domain);
+        }
+        return domains;
+    }
+
+    /**
+     * 替换配置单例，未指定的参数使用默认值
+     *
+     * @param sslPath       证书目录 非空
+     * @param statePath     状态文件目录 非空
+     * @param domains       域名 非空
+     * @param certCacheSize 证书文件缓存的最大数量
+     */
+    public static void install(Path sslPath, Path statePath, List<String> domains, int certCacheSize) {
+        List<String> pubes = new ArrayList<>(domains.size());
+        List<String> pries = new ArrayList<>(domains.size());
+        for (String domain : domains) {
+            pubes.add(domain + ".cer");
+            pries.add(domain + ".key");
+        }
+        AliCdnProperties aliCdnProperties = AliCdnProperties.builder()
+                .accessKeyId("benchmark")
+                .accessKeySecret("benchmark")
+                .domains(Collections.unmodifiableList(domains))
+                .sslPath(sslPath.toString())
+                .pubes(pubes)
+                .pries(pries)
+                .scheduledCron(DEFAULT_SCHEDULED_CRON)
+                .scheduleMode(SCHEDULE_MODE_EXPIRY)
+                .runMode(RUN_MODE_DAEMON)
+                .leanMode(DEFAULT_LEAN_MODE)
+                .fileModifyListenDelay(DEFAULT_FILE_MODIFY_LISTEN_DELAY)
+                .retryTimeWhenException(DEFAULT_TIME_RETRY_WHEN_EXCEPTION)
+                .statePath(statePath.toString())
+                .forceWhenScheduled(DEFAULT_FORCE_WHEN_SCHEDULED)
+                .maxInFlight(DEFAULT_MAX_IN_FLIGHT)
+                .qps(DEFAULT_QPS)
+                .adaptiveConcurrency(DEFAULT_ADAPTIVE_CONCURRENCY)
+                .circuitFailureThreshold(DEFAULT_CIRCUIT_FAILURE_THRESHOLD)
+                .circuitOpenTimeout(DEFAULT_CIRCUIT_OPEN_TIMEOUT)
+                .circuitQueueTimeout(DEFAULT_CIRCUIT_QUEUE_TIMEOUT)
+                .retryBaseDelay(DEFAULT_RETRY_BASE_DELAY)
+                .retryMaxDelay(DEFAULT_RETRY_MAX_DELAY)
+                .batchMode(DEFAULT_BATCH_MODE)
+                .batchSize(DEFAULT_BATCH_SIZE)
+                .certReuse(DEFAULT_CERT_REUSE)
+                .certRegion(DEFAULT_CERT_REGION)
+                .certCacheSize(certCacheSize)
+                .certValidation(DEFAULT_CERT_VALIDATION)
+                .preflight(Boolean.FALSE)
+                .liveCertCacheTtl(DEFAULT_LIVE_CERT_CACHE_TTL)
+                .metricsPort(DEFAULT_METRICS_PORT)
+                .runTimeout(DEFAULT_RUN_TIMEOUT)
+                .accounts(Map.of())
+                .clientConnectTimeout(DEFAULT_CLIENT_CONNECT_TIMEOUT)
+                .clientResponseTimeout(DEFAULT_CLIENT_RESPONSE_TIMEOUT)
+                .clientMaxConnections(DEFAULT_CLIENT_MAX_CONNECTIONS)
+                .clientIdleTimeout(DEFAULT_CLIENT_IDLE_TIMEOUT)
+                .build();
+        try {
+            Field field = AliCdnProperties.class.getDeclaredField("instance");
+            field.setAccessible(Boolean.TRUE);
+            field.set(null, aliCdnProperties);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("替换配置单例失败", e);
+        }
+    }
+
+    /**
+     * 解析 key=value 形式的命令行参数，maven 传入的整个参数字符串也按空白拆分
+     *
+     * @param args 命令行参数
+     * @return key -> value
+     */
+    public static Map<String, String> arguments(String[] args) {
+        Map<String, String> ans = new HashMap<>();
+        for (String arg : args) {
+            for (String pair : arg.trim().split("\\s+")) {
+                int index = pair.indexOf('=');
+                if (index > 0) {
+                    ans.put(pair.substring(0, index), pair.substring(index + 1));
+                }
+            }
+        }
+        return ans;
+    }
+
+    /**
+     * 生成 EC P-256 的自签名证书
+     *
+     * @return 公钥 PEM 与 私钥 PEM
+     */
+    private static String[] generatePem(Path workDir) throws IOException {
+        Path keyStorePath = workDir.resolve("benchmark.p12");
+        Files.deleteIfExists(keyStorePath);
+        String keytool = Path.of(System.getProperty("java.home"), "bin", "keytool").toString();
+        Process process = new ProcessBuilder(keytool, "-genkeypair",
+                "-alias", ALIAS,
+                "-keyalg", "EC",
+                "-groupname", "secp256r1",
+                "-dname", "CN=*.bench.example.com",
+                "-ext", "SAN=dns:*.bench.example.com",
+                "-validity", "90",
+                "-storetype", "PKCS12",
+                "-keystore", keyStorePath.toString(),
+                "-storepass", STORE_PASS,
+                "-keypass", STORE_PASS)
+                .redirectErrorStream(Boolean.TRUE)
+                .start();
+        try {
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            if (!process.waitFor(1, TimeUnit.MINUTES) || process.exitValue() != 0) {
+                throw new IOException("keytool 生成证书失败：" + output);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("keytool 生成证书被中断", e);
+        }
+
+        try (InputStream in = Files.newInputStream(keyStorePath)) {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(in, STORE_PASS.toCharArray());
+            Certificate certificate = keyStore.getCertificate(ALIAS);
+            PrivateKey privateKey = (PrivateKey) keyStore.getKey(ALIAS, STORE_PASS.toCharArray());
+            return new String[]{
+                    BenchmarkFixtures.toPem("CERTIFICATE", certificate.getEncoded()),
+                    BenchmarkFixtures.toPem("PRIVATE KEY", privateKey.getEncoded())
+            };
+        } catch (GeneralSecurityException e) {
+            throw new IOException("读取生成的证书失败", e);
+        } finally {
+            Files.deleteIfExists(keyStorePath);
+        }
+    }
+
+    private static String toPem(String type, byte[] der) {
+        return "-----BEGIN " + type + "-----\n" +
+                Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(der) +
+                "\n-----END " + type + "-----\n";
+    }
+
+}
@@ -0,0 +1,409 @@
+package top.wuhunyu.alicdn.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import top.wuhunyu.alicdn.core.TokenBucket;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地的阿里云 CDN 接口模拟服务
+ * <p>
+ * 实现 {@code MyAliClient} 调用的 SetCdnDomainSSLCertificate、BatchSetCdnDomainServerCertificate、
+ * DescribeCdnHttpsDomainList 三个接口，不校验签名；配置 endpoint 指向该服务即可压测，不会访问真实的 CDN
+ * <p>
+ * 1. 延迟：对数正态分布，中位数为 latencyMillis，sigma 越大长尾越明显（sigma = 0.5 时 p99 约为中位数的 3.2 倍）
+ * <p>
+ * 2. 限流：每个 AccessKeyId 一个令牌桶，超出 throttleQps 时返回 Throttling.User
+ * <p>
+ * 3. 故障注入：按 failureRate 的概率返回 InternalError 或 ServiceUnavailable
+ * <p>
+ * 上传的证书按域名保存，DescribeCdnHttpsDomainList 返回已设置的证书，与真实接口一样可以用于更新前的预检查
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 22:45
+ **/
+
+@Slf4j
+public class CdnApiSimulator implements Closeable {
+
+    private static final String SET_CERTIFICATE = "SetCdnDomainSSLCertificate";
+
+    private static final String BATCH_SET_CERTIFICATE = "BatchSetCdnDomainServerCertificate";
+
+    private static final String DESCRIBE_CERTIFICATE = "DescribeCdnHttpsDomainList";
+
+    private static final String CERT_TYPE_CAS = "cas";
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss xx")
+            .withZone(ZoneOffset.UTC);
+
+    private final HttpServer server;
+
+    private final ExecutorService executorService;
+
+    private final double latencyMillis;
+
+    private final double latencySigma;
+
+    private final double throttleQps;
+
+    private final double failureRate;
+
+    /**
+     * AccessKeyId -> 令牌桶
+     */
+    private final Map<String, TokenBucket> buckets;
+
+    /**
+     * 域名 -> 正在使用的证书，按域名排序，分页查询时顺序稳定
+     */
+    private final Map<String, Cert> domainCerts;
+
+    /**
+     * 证书名称 -> 已上传的证书，用于 cas 类型的绑定
+     */
+    private final Map<String, Cert> namedCerts;
+
+    /**
+     * 证书内容 -> 解析后的证书，同一个证书只解析一次
+     */
+    private final Map<String, Cert> parsedCerts;
+
+    /**
+     * 接口 -> 请求数
+     */
+    private final Map<String, LongAdder> requests;
+
+    private final LongAdder throttled;
+
+    private final LongAdder failed;
+
+    private CdnApiSimulator(int port, double latencyMillis, double latencySigma, double throttleQps,
+                            double failureRate) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.latencySigma = latencySigma;
+        this.throttleQps = throttleQps;
+        this.failureRate = failureRate;
+        this.buckets = new ConcurrentHashMap<>();
+        this.domainCerts = new ConcurrentSkipListMap<>();
+        this.namedCerts = new ConcurrentHashMap<>();
+        this.parsedCerts = new ConcurrentHashMap<>();
+        this.requests = new ConcurrentHashMap<>();
+        this.throttled = new LongAdder();
+        this.failed = new LongAdder();
+        // 每个请求一个虚拟线程，模拟的延迟直接 sleep
+        this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executorService);
+        this.server.start();
+    }
+
+    /**
+     * 启动模拟服务
+     *
+     * @param port          端口，0 表示随机端口
+     * @param latencyMillis 延迟的中位数，单位：毫秒
+     * @param latencySigma  延迟的对数标准差，0 表示固定延迟
+     * @param throttleQps   每个 AccessKeyId 每秒允许的请求数，小于等于 0 表示不限流
+     * @param failureRate   返回服务端异常的概率
+     * @return 模拟服务
+     * @throws IOException 端口被占用
+     */
+    public static CdnApiSimulator start(int port, double latencyMillis, double latencySigma, double throttleQps,
+                                        double failureRate) throws IOException {
+        CdnApiSimulator simulator = new CdnApiSimulator(port, latencyMillis, latencySigma, throttleQps, failureRate);
+        log.info("CDN 接口模拟服务已启动，地址：{}，延迟中位数：{}ms，sigma：{}，限流：{}/s，故障率：{}",
+                simulator.endpoint(), latencyMillis, latencySigma, throttleQps, failureRate);
+        return simulator;
+    }
+
+    /**
+     * 模拟服务的地址，可以直接作为 endpoint 配置
+     *
+     * @return 地址，例如 http://127.0.0.1:8080
+     */
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * 接口的请求数，包括被限流与故障注入的请求
+     *
+     * @param action 接口名称
+     * @return 请求数
+     */
+    public long requests(String action) {
+        LongAdder adder = requests.get(action);
+        return Objects.isNull(adder) ? 0L : adder.sum();
+    }
+
+    /**
+     * 证书修改的请求数，包括单个与批量
+     *
+     * @return 请求数
+     */
+    public long writeRequests() {
+        return this.requests(SET_CERTIFICATE) + this.requests(BATCH_SET_CERTIFICATE);
+    }
+
+    public long throttled() {
+        return throttled.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    /**
+     * 已经设置了证书的域名数
+     *
+     * @return 域名数
+     */
+    public int domains() {
+        return domainCerts.size();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Map<String, String> params = CdnApiSimulator.params(exchange);
+            String action = params.getOrDefault("Action", "");
+            requests.computeIfAbsent(action, key -> new LongAdder()).increment();
+
+            // 限流在延迟之前判断，与真实接口一样被限流的请求很快返回
+            if (throttleQps > 0 && buckets.computeIfAbsent(params.getOrDefault("AccessKeyId", ""),
+                    key -> TokenBucket.init(throttleQps, Math.max(1, (int) Math.ceil(throttleQps)))).tryAcquire() > 0) {
+                throttled.increment();
+                this.error(exchange, 400, "Throttling.User", "Request was denied due to user flow control.");
+                return;
+            }
+            this.sleep();
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                failed.increment();
+                if (ThreadLocalRandom.current().nextBoolean()) {
+                    this.error(exchange, 500, "InternalError", "The request processing has failed due to some unknown error.");
+                } else {
+                    this.error(exchange, 503, "ServiceUnavailable", "The request has failed due to a temporary failure of the server.");
+                }
+                return;
+            }
+
+            switch (action) {
+                case SET_CERTIFICATE -> this.set(exchange, params, List.of(params.getOrDefault("DomainName", "")));
+                case BATCH_SET_CERTIFICATE -> this.set(exchange, params,
+                        List.of(params.getOrDefault("DomainName", "").split(",")));
+                case DESCRIBE_CERTIFICATE -> this.describe(exchange, params);
+                default -> this.error(exchange, 400, "InvalidAction.NotFound", "Specified api is not found.");
+            }
+        }
+    }
+
+    private void set(HttpExchange exchange, Map<String, String> params, List<String> domains) throws IOException {
+        String certName = params.get("CertName");
+        Cert cert;
+        if (Objects.equals(params.get("CertType"), CERT_TYPE_CAS)) {
+            cert = Objects.isNull(certName) ? null : namedCerts.get(certName);
+            if (Objects.isNull(cert)) {
+                this.error(exchange, 400, "Certificate.NotFound", "The specified certificate does not exist.");
+                return;
+            }
+        } else {
+            try {
+                cert = this.parse(params.getOrDefault("SSLPub", ""));
+            } catch (CertificateException e) {
+                this.error(exchange, 400, "InvalidSSLPub", "The specified SSLPub is invalid.");
+                return;
+            }
+            if (Objects.nonNull(certName)) {
+                namedCerts.put(certName, cert);
+            }
+        }
+        for (String domain : domains) {
+            if (!domain.isBlank()) {
+                domainCerts.put(domain.strip(), new Cert(Objects.toString(certName, ""), cert.commonName(),
+                        cert.start(), cert.expire()));
+            }
+        }
+        this.ok(exchange, "{\"RequestId\":\"" + UUID.randomUUID() + "\"}");
+    }
+
+    private void describe(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String keyword = params.get("Keyword");
+        int pageNumber = Math.max(1, CdnApiSimulator.parseInt(params.get("PageNumber"), 1));
+        int pageSize = Math.max(1, CdnApiSimulator.parseInt(params.get("PageSize"), 20));
+        Map<String, Cert> matched = new TreeMap<>();
+        domainCerts.forEach((domain, cert) -> {
+            if (Objects.isNull(keyword) || domain.contains(keyword)) {
+                matched.put(domain, cert);
+            }
+        });
+        StringBuilder sb = new StringBuilder(256 + pageSize * 256);
+        sb.append("{\"RequestId\":\"").append(UUID.randomUUID())
+                .append("\",\"TotalCount\":").append(matched.size())
+                .append(",\"CertInfos\":{\"CertInfo\":[");
+        int skip = (pageNumber - 1) * pageSize;
+        int count = 0;
+        for (Map.Entry<String, Cert> entry : matched.entrySet()) {
+            if (skip-- > 0) {
+                continue;
+            }
+            if (count == pageSize) {
+                break;
+            }
+            Cert cert = entry.getValue();
+            if (count++ > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"DomainName\":\"").append(entry.getKey())
+                    .append("\",\"CertName\":\"").append(cert.name())
+                    .append("\",\"CertCommonName\":\"").append(cert.commonName())
+                    .append("\",\"CertStartTime\":\"").append(TIME_FORMATTER.format(cert.start())).append(" UTC")
+                    .append("\",\"CertExpireTime\":\"").append(TIME_FORMATTER.format(cert.expire())).append(" UTC")
+                    .append("\",\"CertStatus\":\"success\",\"CertType\":\"upload\"}");
+        }
+        sb.append("]}}");
+        this.ok(exchange, sb.toString());
+    }
+
+    private Cert parse(String pem) throws CertificateException {
+        Cert cert = parsedCerts.get(pem);
+        if (Objects.nonNull(cert)) {
+            return cert;
+        }
+        X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+                .generateCertificate(new ByteArrayInputStream(pem.getBytes(StandardCharsets.US_ASCII)));
+        String subject = certificate.getSubjectX500Principal().getName();
+        cert = new Cert("", subject.startsWith("CN=") ? subject.substring(3).split(",")[0] : subject,
+                certificate.getNotBefore().toInstant(), certificate.getNotAfter().toInstant());
+        parsedCerts.put(pem, cert);
+        return cert;
+    }
+
+    private void sleep() {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        double millis = latencyMillis * Math.exp(latencySigma * ThreadLocalRandom.current().nextGaussian());
+        try {
+            TimeUnit.MICROSECONDS.sleep((long) (millis * 1000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ok(HttpExchange exchange, String body) throws IOException {
+        this.send(exchange, 200, body);
+    }
+
+    private void error(HttpExchange exchange, int statusCode, String code, String message) throws IOException {
+        this.send(exchange, statusCode, "{\"RequestId\":\"" + UUID.randomUUID() + "\",\"HostId\":\"cdn.aliyuncs.com\"," +
+                "\"Code\":\"" + code + "\",\"Message\":\"" + message + "\"}");
+    }
+
+    private void send(HttpExchange exchange, int statusCode, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * 合并查询参数与表单参数，SDK 的 RPC 风格接口两种方式都会使用
+     */
+    private static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        CdnApiSimulator.parseForm(exchange.getRequestURI().getRawQuery(), params);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        if (Objects.nonNull(contentType) && contentType.startsWith("application/x-www-form-urlencoded")) {
+            CdnApiSimulator.parseForm(new String(body, StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (Objects.isNull(form) || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int index = pair.indexOf('=');
+            String key = index < 0 ? pair : pair.substring(0, index);
+            String value = index < 0 ? "" : pair.substring(index + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return Objects.isNull(value) ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 单独启动模拟服务，应用配置 endpoint=http://127.0.0.1:端口 后即可压测
+     * <p>
+     * 参数：port=8080 latency=50 sigma=0.5 throttleQps=0 failureRate=0
+     *
+     * @param args key=value 形式的参数
+     * @throws IOException 端口被占用
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> arguments = BenchmarkFixtures.arguments(args);
+        CdnApiSimulator simulator = CdnApiSimulator.start(
+                Integer.parseInt(arguments.getOrDefault("port", "8080")),
+                Double.parseDouble(arguments.getOrDefault("latency", "50")),
+                Double.parseDouble(arguments.getOrDefault("sigma", "0.5")),
+                Double.parseDouble(arguments.getOrDefault("throttleQps", "0")),
+                Double.parseDouble(arguments.getOrDefault("failureRate", "0")));
+        Runtime.getRuntime().addShutdownHook(new Thread(simulator::close, "cdn-api-simulator-shutdown"));
+    }
+
+    /**
+     * 域名正在使用的证书
+     *
+     * @param name       证书名称
+     * @param commonName 证书通用名称
+     * @param start      生效时间
+     * @param expire     过期时间
+     */
+    private record Cert(String name, String commonName, Instant start, Instant expire) {
+    }
+
+}
@@ -0,0 +1,170 @@
+package top.wuhunyu.alicdn.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.wuhunyu.alicdn.handler.SetCdnDomainSSLCertificate;
+import top.wuhunyu.alicdn.model.PushResult;
+import top.wuhunyu.alicdn.model.RunResult;
+import top.wuhunyu.alicdn.model.TriggerSource;
+import top.wuhunyu.alicdn.properties.AliCdnProperties;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 常驻内存与线程数的检查
+ * <p>
+ * 生成 footprint.domains 个域名的证书与配置，启动 {@link CdnApiSimulator} 并把 endpoint 指向它，先预热更新一次，
+ * 再连续强制更新 footprint.runs 次全部域名，然后比较（均在 GC 之后）的：
+ * <p>
+ * 1. 常驻堆内存：以预热之后为基准，更新之后仍然被引用的对象，不超过 footprint.maxRetainedMb；
+ * 类加载、客户端与连接池等一次性的开销在预热时产生，不计入
+ * <p>
+ * 2. 平台线程数：以预热之前为基准，虚拟线程的载体线程之外新增的线程数不超过 footprint.maxThreads，
+ * 不随域名数、账号数增长；载体线程由 jdk 按 CPU 核数创建，文件 I/O 阻塞时临时补偿，空闲后回收：
+ * 读取证书文件的补偿不超过 CPU 核数，日志写入加锁、最多补偿 1 个，合计不超过 CPU 核数 * 2 + 1
+ * <p>
+ * 3. 稳定状态：预热之后的多次更新不再新增平台线程；logback 扫描配置文件的定时线程池（最多 4 个线程）
+ * 随运行时间逐个创建，不参与该项比较
+ * <p>
+ * 默认的 qps 与 failureRate 使更新过程中出现排队与重试，调度器与重试调度器的延迟任务都会执行；
+ * 耗时较长，默认不执行，运行：mvn -Pbenchmark test -Dfootprint.domains=1000 -Dfootprint.lean=true；
+ * footprint.lean=false 时关闭低内存模式，用于对比
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/19 00:40
+ **/
+
+@Tag("footprint")
+class FootprintTest {
+
+    private static final long MB = 1024L * 1024L;
+
+    private static final String CARRIER = "ForkJoinPool-#-worker-#";
+
+    private static final String LOGBACK = "logback-#";
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void staysWithinFootprint() throws IOException, InterruptedException {
+        int n = Integer.getInteger("footprint.domains", 1000);
+        int runs = Integer.getInteger("footprint.runs", 3);
+        boolean lean = Boolean.parseBoolean(System.getProperty("footprint.lean", "true"));
+        long maxRetainedMb = Long.getLong("footprint.maxRetainedMb", 16L);
+        int maxThreads = Integer.getInteger("footprint.maxThreads", 6);
+        int maxCarriers = Runtime.getRuntime()
+                .availableProcessors() * 2 + 1;
+
+        Path sslPath = Files.createDirectories(workDir.resolve("ssl"));
+        Path statePath = Files.createDirectories(workDir.resolve("state"));
+        List<String> domains = BenchmarkFixtures.generate(sslPath, n);
+
+        try (CdnApiSimulator simulator = CdnApiSimulator.start(0, 5D, 0.2D, 0D,
+                Double.parseDouble(System.getProperty("footprint.failureRate", "0.01")))) {
+            // 在第一次使用 SetCdnDomainSSLCertificate 之前替换配置，调度器与重试调度器按该配置创建
+            BenchmarkFixtures.install(sslPath, statePath, domains, n << 1);
+            AliCdnProperties aliCdnProperties = AliCdnProperties.getInstance();
+            aliCdnProperties.setEndpoint(simulator.endpoint());
+            aliCdnProperties.setLeanMode(lean);
+            aliCdnProperties.setMaxInFlight(Integer.getInteger("footprint.maxInFlight", 32));
+            aliCdnProperties.setQps(Double.parseDouble(System.getProperty("footprint.qps", "200")));
+            aliCdnProperties.setRetryBaseDelay(100L);
+            aliCdnProperties.setRetryMaxDelay(1000L);
+            aliCdnProperties.setClientMaxConnections(aliCdnProperties.getMaxInFlight());
+
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            Map<String, Long> baselineThreads = FootprintTest.threadGroups();
+            FootprintTest.print("预热", SetCdnDomainSSLCertificate.run(null, Boolean.TRUE, TriggerSource.MANUAL));
+            long baselineHeap = FootprintTest.settledHeap(memory);
+            Map<String, Long> warmedThreads = FootprintTest.threadGroups();
+
+            for (int i = 0; i < runs; i++) {
+                FootprintTest.print("第 " + (i + 1) + " 次更新",
+                        SetCdnDomainSSLCertificate.run(null, Boolean.TRUE, TriggerSource.MANUAL));
+            }
+
+            long retained = FootprintTest.settledHeap(memory) - baselineHeap;
+            Map<String, Long> current = FootprintTest.threadGroups();
+            Map<String, Long> added = FootprintTest.added(baselineThreads, current);
+            Map<String, Long> grown = FootprintTest.added(warmedThreads, current);
+            long carriers = current.getOrDefault(CARRIER, 0L);
+            added.remove(CARRIER);
+            grown.remove(CARRIER);
+            grown.remove(LOGBACK);
+            long addedThreads = added.values()
+                    .stream()
+                    .mapToLong(Long::longValue)
+                    .sum();
+
+            System.out.printf("域名数：%d，低内存模式：%s，更新次数：%d%n", n, lean, runs);
+            System.out.printf("常驻堆内存：%.2f MB（上限 %d MB），平均每个域名 %d B%n",
+                    (double) retained / MB, maxRetainedMb, retained / Math.max(1, n));
+            System.out.printf("新增平台线程：%s，载体线程：%d（上限 %d），预热之后新增：%s%n",
+                    added, carriers, maxCarriers, grown);
+
+            assertTrue(retained <= maxRetainedMb * MB,
+                    String.format("常驻堆内存 %d B 超过 %d MB", retained, maxRetainedMb));
+            assertTrue(addedThreads <= maxThreads,
+                    String.format("新增平台线程 %d 个超过 %d 个：%s", addedThreads, maxThreads, added));
+            assertTrue(carriers <= maxCarriers,
+                    String.format("载体线程 %d 个超过 %d 个", carriers, maxCarriers));
+            assertTrue(grown.isEmpty(), "预热之后仍然新增平台线程：" + grown);
+        }
+    }
+
+    private static void print(String label, RunResult result) {
+        System.out.printf("%s：%s，耗时 %d ms%n", label, new TreeMap<>(result.getResults()
+                        .stream()
+                        .collect(Collectors.groupingBy(PushResult::getStatus, Collectors.counting()))),
+                result.getElapsed());
+    }
+
+    /**
+     * 多次 GC 之后的堆内存使用量，等待异步的日志写入、指标更新完成
+     */
+    private static long settledHeap(MemoryMXBean memory) throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(200L);
+            System.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage()
+                    .getUsed());
+        }
+        return used;
+    }
+
+    /**
+     * 按名称分组的平台线程数，名称中的序号不参与分组
+     */
+    private static Map<String, Long> threadGroups() {
+        return Thread.getAllStackTraces()
+                .keySet()
+                .stream()
+                .filter(thread -> !thread.isVirtual())
+                .collect(Collectors.groupingBy(thread -> thread.getName().replaceAll("\\d+", "#"),
+                        TreeMap::new, Collectors.counting()));
+    }
+
+    /**
+     * 与 baseline 相比各分组新增的线程数，只保留有新增的分组
+     */
+    private static Map<String, Long> added(Map<String, Long> baseline, Map<String, Long> current) {
+        Map<String, Long> added = new TreeMap<>(current);
+        baseline.forEach((name, count) -> added.merge(name, -count, Long::sum));
+        added.values().removeIf(count -> count <= 0L);
+        return added;
+    }
+
+}
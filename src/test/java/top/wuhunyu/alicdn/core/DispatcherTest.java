@@ -0,0 +1,105 @@
+package top.wuhunyu.alicdn.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 调度器的排队、取消与排空
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 20:40
+ **/
+
+class DispatcherTest {
+
+    private Dispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = Dispatcher.init("dispatcher-test", 1, 1_000_000D);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.close();
+    }
+
+    @Test
+    void limitsInFlight() {
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        CompletableFuture<String> first = dispatcher.submit(() -> blocker);
+        CompletableFuture<String> second = dispatcher.submit(() -> CompletableFuture.completedFuture("second"));
+
+        assertEquals(1, dispatcher.inFlight());
+        assertEquals(1, dispatcher.queued());
+
+        blocker.complete("first");
+        assertEquals("first", first.join());
+        assertEquals("second", second.join());
+        assertEquals(0, dispatcher.inFlight());
+    }
+
+    @Test
+    void cancelledQueuedTaskIsNotSent() {
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        dispatcher.submit(() -> blocker);
+        boolean[] sent = new boolean[1];
+        CompletableFuture<String> queued = dispatcher.submit(() -> {
+            sent[0] = true;
+            return CompletableFuture.completedFuture("queued");
+        });
+
+        queued.cancel(Boolean.TRUE);
+        assertEquals(0, dispatcher.queued());
+        blocker.complete("first");
+
+        assertEquals(0, dispatcher.inFlight());
+        assertFalse(sent[0]);
+    }
+
+    /**
+     * 排空队列的线程判断队列非空之后、出队之前，另一个线程取消了排队中的请求，之后提交的请求仍然能够完成
+     * <p>
+     * 持有 {@link CircuitBreaker} 的锁，让排空队列的线程停在两者之间的 {@link CircuitBreaker#state()}；
+     * 正在执行的请求以 {@link CircuitBreaker.OpenException} 失败，不计入熔断器，完成时不会提前停在熔断器的锁上
+     */
+    @Test
+    void keepsDrainingAfterConcurrentCancel() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.init("dispatcher-test", Integer.MAX_VALUE, 0L, TimeUnit.MILLISECONDS);
+        Dispatcher dispatcher = Dispatcher.init("dispatcher-test",
+                AdaptiveLimiter.init("dispatcher-test", 1, Boolean.FALSE), breaker,
+                1_000_000D, 0L, TimeUnit.MILLISECONDS);
+        try {
+            CompletableFuture<String> blocker = new CompletableFuture<>();
+            dispatcher.submit(() -> blocker);
+            CompletableFuture<String> queued = dispatcher.submit(() -> CompletableFuture.completedFuture("queued"));
+
+            Thread drainer;
+            synchronized (breaker) {
+                // 请求完成时在完成请求的线程中排空队列
+                drainer = Thread.ofPlatform().start(() ->
+                        blocker.completeExceptionally(new CircuitBreaker.OpenException("blocker")));
+                while (drainer.getState() != Thread.State.BLOCKED) {
+                    Thread.sleep(1L);
+                }
+                queued.cancel(Boolean.TRUE);
+            }
+            drainer.join();
+
+            CompletableFuture<String> after = dispatcher.submit(() -> CompletableFuture.completedFuture("after"));
+            assertEquals("after", after.get(5L, TimeUnit.SECONDS));
+            assertEquals(0, dispatcher.inFlight());
+            assertEquals(0, dispatcher.queued());
+        } finally {
+            dispatcher.close();
+        }
+    }
+
+}
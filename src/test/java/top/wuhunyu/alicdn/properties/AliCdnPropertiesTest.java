@@ -0,0 +1,149 @@
+package top.wuhunyu.alicdn.properties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static top.wuhunyu.alicdn.constants.CommonConstants.*;
+
+/**
+ * 配置的解析与校验
+ * <p>
+ * 直接构建配置文件，不依赖 classpath 中的配置与环境变量
+ *
+ * @author gongzhiqiang
+ * @date 2026/10/18 20:10
+ **/
+
+class AliCdnPropertiesTest {
+
+    private static final String DOMAIN = "a.example.com";
+
+    @TempDir
+    Path sslPath;
+
+    private Properties properties;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path dir = Files.createDirectories(sslPath.resolve(DOMAIN));
+        Files.writeString(dir.resolve("a.cer"), "cer");
+        Files.writeString(dir.resolve("a.key"), "key");
+        properties = new Properties();
+        properties.setProperty(ACCESS_KEY_ID, "id");
+        properties.setProperty(ACCESS_KEY_SECRET, "secret");
+        properties.setProperty(SSL_PATH, sslPath.toString());
+        properties.setProperty(DOMAINS, DOMAIN);
+        properties.setProperty(PUBES, "a.cer");
+        properties.setProperty(PRIES, "a.key");
+    }
+
+    @Test
+    void defaultsWhenNotConfigured() {
+        AliCdnProperties aliCdnProperties = AliCdnProperties.init(properties);
+
+        assertEquals(DEFAULT_MAX_IN_FLIGHT, aliCdnProperties.getMaxInFlight());
+        assertEquals(DEFAULT_RETRY_BASE_DELAY, aliCdnProperties.getRetryBaseDelay());
+        assertEquals(DEFAULT_LEAN_MODE, aliCdnProperties.getLeanMode());
+    }
+
+    @Test
+    void parsesConfiguredValues() {
+        properties.setProperty(MAX_IN_FLIGHT, "8");
+        properties.setProperty(CIRCUIT_OPEN_TIMEOUT, "0");
+        properties.setProperty(LEAN_MODE, "true");
+
+        AliCdnProperties aliCdnProperties = AliCdnProperties.init(properties);
+
+        assertEquals(8, aliCdnProperties.getMaxInFlight());
+        assertEquals(0L, aliCdnProperties.getCircuitOpenTimeout());
+        assertEquals(Boolean.TRUE, aliCdnProperties.getLeanMode());
+    }
+
+    @Test
+    void rejectsNonNumber() {
+        this.assertRejected(BATCH_SIZE, "ten", "不是一个数字");
+    }
+
+    @Test
+    void rejectsIntegerOverflow() {
+        this.assertRejected(MAX_IN_FLIGHT, "2147483648", "不能大于 " + Integer.MAX_VALUE);
+    }
+
+    @Test
+    void rejectsLongOverflow() {
+        this.assertRejected(RUN_TIMEOUT, "9223372036854775808", "不是一个数字");
+    }
+
+    @Test
+    void rejectsNonPositive() {
+        this.assertRejected(MAX_IN_FLIGHT, "0", "必须大于 0");
+        this.assertRejected(CLIENT_IDLE_TIMEOUT, "-1", "必须大于 0");
+    }
+
+    @Test
+    void rejectsNegative() {
+        this.assertRejected(CIRCUIT_QUEUE_TIMEOUT, "-1", "不能小于 0");
+    }
+
+    @Test
+    void rejectsNegativeFileModifyListenDelay() {
+        this.assertRejected(FILE_MODIFY_LISTEN_DELAY, "-1", "不能小于 0");
+    }
+
+    @Test
+    void rejectsNegativeRetry() {
+        this.assertRejected(RETRY_TIME_WHEN_EXCEPTION, "-1", "不能小于 0");
+        this.assertRejected(RETRY_BASE_DELAY, "-1", "不能小于 0");
+        this.assertRejected(RETRY_MAX_DELAY, "-1", "不能小于 0");
+    }
+
+    @Test
+    void acceptsNoRetry() {
+        properties.setProperty(RETRY_TIME_WHEN_EXCEPTION, "0");
+        properties.setProperty(RETRY_BASE_DELAY, "0");
+
+        AliCdnProperties aliCdnProperties = AliCdnProperties.init(properties);
+
+        assertEquals(0, aliCdnProperties.getRetryTimeWhenException());
+        assertEquals(0L, aliCdnProperties.getRetryBaseDelay());
+    }
+
+    @Test
+    void rejectsNegativeLiveCertCacheTtl() {
+        this.assertRejected(LIVE_CERT_CACHE_TTL, "-1", "不能小于 0");
+    }
+
+    @Test
+    void rejectsNonBoolean() {
+        this.assertRejected(LEAN_MODE, "maybe", "不是一个布尔值");
+        this.assertRejected(BATCH_MODE, "2", "不是一个布尔值");
+    }
+
+    @Test
+    void rejectsMetricsPortOutOfRange() {
+        this.assertRejected(METRICS_PORT, "65536", "必须在 0 到 65535 之间");
+        this.assertRejected(METRICS_PORT, "-1", "必须在 0 到 65535 之间");
+    }
+
+    /**
+     * 配置 key 为 value 时，启动失败并且错误信息包含配置的值与原因
+     */
+    private void assertRejected(String key, String value, String reason) {
+        properties.setProperty(key, value);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> AliCdnProperties.init(properties));
+        assertTrue(e.getMessage().contains(value), e.getMessage());
+        assertTrue(e.getMessage().contains(reason), e.getMessage());
+        properties.remove(key);
+    }
+
+}